@@ -0,0 +1,325 @@
+package bench.cosc202.andie;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cosc202.andie.BrightnessFilter;
+import cosc202.andie.ContrastFilter;
+import cosc202.andie.ConvertToGrey;
+import cosc202.andie.Crop;
+import cosc202.andie.EmbossFilter1;
+import cosc202.andie.EmbossFilter2;
+import cosc202.andie.EmbossFilter3;
+import cosc202.andie.EmbossFilter4;
+import cosc202.andie.EmbossFilter5;
+import cosc202.andie.EmbossFilter6;
+import cosc202.andie.EmbossFilter7;
+import cosc202.andie.EmbossFilter8;
+import cosc202.andie.FlipHorizontal;
+import cosc202.andie.FlipVertical;
+import cosc202.andie.FusedPointOperation;
+import cosc202.andie.GaussianFilter;
+import cosc202.andie.ImageOperation;
+import cosc202.andie.MeanFilter;
+import cosc202.andie.MedianFilter;
+import cosc202.andie.NegativeFilter;
+import cosc202.andie.PointOperation;
+import cosc202.andie.Resampler;
+import cosc202.andie.Resize;
+import cosc202.andie.Rotate;
+import cosc202.andie.SharpenFilter;
+import cosc202.andie.SobelHorizontal;
+import cosc202.andie.SobelVertical;
+
+/**
+ * <p>
+ * JMH benchmarks of how long each {@link ImageOperation} takes.
+ * </p>
+ *
+ * <p>
+ * Every operation is run on random images of each size and type in
+ * {@link Image}, and over a range of its own parameters, each held in a small
+ * state of its own so a benchmark only runs over the parameters it uses.
+ * Operations that draw on their input get a fresh copy each time; copying is
+ * not timed.
+ * The bench module builds a self-contained jar that runs JMH, so results can be
+ * written as JSON and kept to compare runs:
+ * </p>
+ *
+ * <pre>
+ * java -jar bench/target/benchmarks.jar -rf json -rff benchmark.json
+ *   -p megapixels=1,8 -p type=INT_ARGB   only some sizes and types
+ *   -p radius=5                          only some parameters
+ *   Gaussian                             only benchmarks whose name matches
+ * </pre>
+ *
+ * <p>
+ * {@code Draw} and {@code Stickers.StickerOperation} are not benchmarked: they
+ * are part of the editor in the app module, which the benchmarks do not
+ * depend on.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g", "-Djava.awt.headless=true" })
+public class Benchmarks {
+
+    /**
+     * <p>
+     * The image each operation is applied to.
+     * </p>
+     */
+    @State(Scope.Benchmark)
+    public static class Image {
+        /** The size of the image, in millions of pixels. */
+        @Param({ "1", "8", "50" })
+        public double megapixels;
+
+        /** The type of the image, as the name of a BufferedImage TYPE_ constant. */
+        @Param({ "INT_RGB", "INT_ARGB", "3BYTE_BGR" })
+        public String type;
+
+        /** The random image, made once per trial. */
+        BufferedImage source;
+
+        /** A copy of the source for one invocation. */
+        BufferedImage input;
+
+        @Setup(Level.Trial)
+        public void makeSource() {
+            int width = (int) Math.round(Math.sqrt(megapixels * 1e6 * 4 / 3));
+            int height = (int) Math.round(megapixels * 1e6 / width);
+            source = randomImage(width, height, imageType(type));
+        }
+
+        @Setup(Level.Invocation)
+        public void copySource() {
+            input = new BufferedImage(source.getColorModel(), source.copyData(null),
+                    source.isAlphaPremultiplied(), null);
+        }
+    }
+
+    /** The amount to change the brightness by. */
+    @State(Scope.Benchmark)
+    public static class Brightness {
+        @Param({ "-50", "50" })
+        public int brightness;
+    }
+
+    /** The amount to change the contrast by. */
+    @State(Scope.Benchmark)
+    public static class Contrast {
+        @Param({ "90", "150" })
+        public int contrast;
+    }
+
+    /** The radius of the blurs. */
+    @State(Scope.Benchmark)
+    public static class BlurRadius {
+        @Param({ "1", "5", "10" })
+        public int radius;
+    }
+
+    /** The radius of the median filter, which is slower, so smaller. */
+    @State(Scope.Benchmark)
+    public static class MedianRadius {
+        @Param({ "1", "3", "5" })
+        public int medianRadius;
+    }
+
+    /** Which of the eight emboss directions to use. */
+    @State(Scope.Benchmark)
+    public static class Emboss {
+        @Param({ "1", "2", "3", "4", "5", "6", "7", "8" })
+        public int direction;
+    }
+
+    /** The angle to rotate by. */
+    @State(Scope.Benchmark)
+    public static class Angle {
+        @Param({ "90", "180", "270" })
+        public int angle;
+    }
+
+    /** The size to resize to, as a percentage, with nearest-pixel sampling. */
+    @State(Scope.Benchmark)
+    public static class Scale {
+        @Param({ "50", "200" })
+        public int percent;
+    }
+
+    /** The filter to shrink to 20% with. */
+    @State(Scope.Benchmark)
+    public static class Filter {
+        @Param({ "BOX", "BILINEAR", "BICUBIC", "MITCHELL", "LANCZOS3" })
+        public Resampler.Kernel kernel;
+    }
+
+    @Benchmark
+    public BufferedImage brightness(Image image, Brightness b) {
+        return new BrightnessFilter(b.brightness).apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage contrast(Image image, Contrast c) {
+        return new ContrastFilter(c.contrast).apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage negative(Image image) {
+        return new NegativeFilter().apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage convertToGrey(Image image) {
+        return new ConvertToGrey().apply(image.input);
+    }
+
+    /** Brightness, contrast and negative fused into one pass. */
+    @Benchmark
+    public BufferedImage fusedPoint(Image image) {
+        return new FusedPointOperation(Arrays.<PointOperation>asList(new BrightnessFilter(20),
+                new ContrastFilter(120), new NegativeFilter())).apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage gaussian(Image image, BlurRadius r) {
+        return new GaussianFilter(r.radius).apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage mean(Image image, BlurRadius r) {
+        return new MeanFilter(r.radius).apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage median(Image image, MedianRadius r) {
+        return new MedianFilter(r.medianRadius).apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage sharpen(Image image) {
+        return new SharpenFilter().apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage emboss(Image image, Emboss e) {
+        return emboss(e.direction).apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage sobelHorizontal(Image image) {
+        return new SobelHorizontal().apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage sobelVertical(Image image) {
+        return new SobelVertical().apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage flipHorizontal(Image image) {
+        return new FlipHorizontal().apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage flipVertical(Image image) {
+        return new FlipVertical().apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage rotate(Image image, Angle a) {
+        return new Rotate(a.angle).apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage resize(Image image, Scale s) {
+        return new Resize(s.percent).apply(image.input);
+    }
+
+    @Benchmark
+    public BufferedImage resample(Image image, Filter f) {
+        return new Resize(20, f.kernel).apply(image.input);
+    }
+
+    /** The centre half of the image, which is a view until it is drawn on. */
+    @Benchmark
+    public BufferedImage crop(Image image) {
+        BufferedImage input = image.input;
+        int width = input.getWidth();
+        int height = input.getHeight();
+        return new Crop(new Rectangle(width / 4, height / 4, width / 2, height / 2)).apply(input);
+    }
+
+    private static ImageOperation emboss(int direction) {
+        switch (direction) {
+            case 1:
+                return new EmbossFilter1();
+            case 2:
+                return new EmbossFilter2();
+            case 3:
+                return new EmbossFilter3();
+            case 4:
+                return new EmbossFilter4();
+            case 5:
+                return new EmbossFilter5();
+            case 6:
+                return new EmbossFilter6();
+            case 7:
+                return new EmbossFilter7();
+            case 8:
+                return new EmbossFilter8();
+            default:
+                throw new IllegalArgumentException("Unknown emboss direction " + direction);
+        }
+    }
+
+    private static int imageType(String name) {
+        switch (name) {
+            case "INT_RGB":
+                return BufferedImage.TYPE_INT_RGB;
+            case "INT_ARGB":
+                return BufferedImage.TYPE_INT_ARGB;
+            case "3BYTE_BGR":
+                return BufferedImage.TYPE_3BYTE_BGR;
+            default:
+                throw new IllegalArgumentException("Unknown image type " + name);
+        }
+    }
+
+    private static BufferedImage randomImage(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(202);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                row[x] = random.nextInt();
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+}
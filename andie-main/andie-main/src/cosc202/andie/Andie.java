@@ -6,6 +6,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.ResourceBundle;
 import javax.imageio.*;
@@ -402,12 +403,18 @@ public class Andie {
      *
      * <p>
      * Creates a popup when the method is run with a certain String as input.
+     * It can be called from any thread; the popup is always shown on the event
+     * dispatch thread.
      * </p>
      *
      * @param error error message
      */
 
     public static void createErrorMessage(String error) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> createErrorMessage(error));
+            return;
+        }
         JOptionPane.showMessageDialog(
                 frame,
                 error,
@@ -618,6 +625,23 @@ public class Andie {
         Andie.bundle = bundle;
     }
 
+    /**
+     * <p>
+     * Let the operations that draw on the image be saved in operations files.
+     * </p>
+     *
+     * <p>
+     * The image engine's own operations are always known to {@link OpsFormat};
+     * these live with the user interface, so they are added here, before any
+     * image is opened.
+     * Calling this more than once does no harm.
+     * </p>
+     */
+    public static void registerOperations() {
+        OpsFormat.register("draw", Draw.class, Draw.CODEC);
+        OpsFormat.register("sticker", Stickers.StickerOperation.class, Stickers.StickerOperation.CODEC);
+    }
+
     /**
      * <p>
      * Main entry point to the ANDIE program.
@@ -629,11 +653,21 @@ public class Andie {
      * {@code createLanguageGUI()}.
      * </p>
      *
-     * @param args Command line arguments, not currently used
+     * <p>
+     * If the first argument is {@code --batch}, no window is opened; instead the
+     * rest of the arguments are passed to {@link BatchProcessor}.
+     * </p>
+     *
+     * @param args Command line arguments, only used for batch processing
      * @throws Exception If something goes awry
      * @see #createLanguageGUI()
      */
     public static void main(String[] args) throws Exception {
+        registerOperations();
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchProcessor.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         Login window = new Login();
         window.frame.setVisible(true);
         // javax.swing.SwingUtilities.invokeLater(new Runnable() {
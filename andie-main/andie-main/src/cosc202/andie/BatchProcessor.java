@@ -0,0 +1,680 @@
+package cosc202.andie;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * <p>
+ * Applies a saved set of operations to many images without the user interface.
+ * </p>
+ *
+ * <p>
+ * The operations are read from an <code>.ops</code> file, as written when an
+ * image is saved or a macro is recorded, and are applied in the order they were
+ * done to every image matching a glob pattern.
+ * The results are written to an output directory, keeping each image's path
+ * relative to where the pattern starts.
+ * This needs no display, login or database, so it can be run from scripts:
+ * </p>
+ *
+ * <pre>
+ * java cosc202.andie.Andie --batch edits.ops "photos/**.jpg" out [options]
+ * </pre>
+ *
+ * <p>
+ * Images go through a pipeline of three stages, each with its own threads:
+ * decoding, which reads the file as {@link EditableImage#open} does; applying
+ * the operations; and encoding, which writes the result as
+ * {@link EditableImage#export} does.
+ * The queues between the stages are short, so reading and writing files
+ * overlaps with the operations without many images waiting in memory.
+ * Each image also holds an estimate of the memory it needs, from its size,
+ * until it is written, so a folder of large images does not run out of memory:
+ * the next image waits until enough of the budget is free.
+ * The options are:
+ * </p>
+ * <ul>
+ * <li><code>--format EXT</code> write every image in this format instead of its
+ * own.</li>
+ * <li><code>--threads N</code> apply operations to at most N images at once; the
+ * default is the number of processors.
+ * Half as many threads decode and encode.</li>
+ * <li><code>--memory MB</code> the memory budget; the default is half the
+ * maximum heap.</li>
+ * </ul>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @version 1.0
+ */
+public class BatchProcessor {
+
+    /** How many copies of an image may be held at once while operations run on it. */
+    private static final int COPIES = 3;
+
+    /** The unit the memory budget is counted in, in bytes. */
+    private static final int UNIT = 1024;
+
+    /** The operations to apply, serialized so each image gets its own copy. */
+    private final byte[] ops;
+
+    /** The directory to write results to. */
+    private final Path outputDir;
+
+    /** The format to write results in, or null to keep each image's own. */
+    private final String format;
+
+    /** The number of threads applying operations; half as many decode and encode. */
+    private final int threads;
+
+    /** The memory budget, in units of {@link #UNIT} bytes. */
+    private final int budget;
+
+    /** The part of the memory budget that is free. */
+    private final Semaphore memory;
+
+    /** The number of images written so far. */
+    private final AtomicInteger succeeded = new AtomicInteger();
+
+    /**
+     * <p>
+     * Create a batch processor.
+     * </p>
+     *
+     * @param opsFile   The file to read the operations from.
+     * @param outputDir The directory to write results to.
+     * @param format    The format to write results in, or null to keep each
+     *                  image's own.
+     * @param threads   The number of threads applying operations.
+     * @param budget    The memory budget in bytes.
+     * @throws IOException If the operations cannot be read.
+     */
+    public BatchProcessor(Path opsFile, Path outputDir, String format, int threads, long budget)
+            throws IOException {
+        this.ops = Files.readAllBytes(opsFile);
+        this.outputDir = outputDir;
+        this.format = format;
+        this.threads = Math.max(1, threads);
+        this.budget = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budget / UNIT));
+        this.memory = new Semaphore(this.budget);
+        readOps();
+    }
+
+    /**
+     * <p>
+     * Run a batch from the command line.
+     * </p>
+     *
+     * @param args The .ops file, the input pattern, the output directory and
+     *             any options.
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args));
+    }
+
+    /**
+     * <p>
+     * Run a batch with command line arguments.
+     * </p>
+     *
+     * @param args The .ops file, the input pattern, the output directory and
+     *             any options.
+     * @return 0 if every image was processed, 1 if some failed, or 2 if the
+     *         arguments were wrong.
+     */
+    public static int run(String[] args) {
+        List<String> positional = new ArrayList<String>();
+        String format = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long budget = Runtime.getRuntime().maxMemory() / 2;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--format":
+                        format = args[++i].toLowerCase();
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--memory":
+                        budget = Long.parseLong(args[++i]) * 1024 * 1024;
+                        break;
+                    default:
+                        positional.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+            positional.clear();
+        }
+        if (positional.size() != 3) {
+            System.err.println("Usage: --batch OPS_FILE INPUT_GLOB OUTPUT_DIR"
+                    + " [--format EXT] [--threads N] [--memory MB]");
+            return 2;
+        }
+        if (format != null && !ImageIO.getImageWritersBySuffix(format).hasNext()) {
+            System.err.println("Cannot write images in the format " + format);
+            return 2;
+        }
+
+        BatchProcessor batch;
+        try {
+            batch = new BatchProcessor(Paths.get(positional.get(0)), Paths.get(positional.get(2)), format,
+                    threads, budget);
+        } catch (IOException ex) {
+            System.err.println("Cannot read operations from " + positional.get(0) + ": " + ex);
+            return 2;
+        }
+        List<Path> inputs;
+        try {
+            inputs = expand(positional.get(1));
+        } catch (IOException ex) {
+            System.err.println("Cannot search for " + positional.get(1) + ": " + ex);
+            return 1;
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("No images match " + positional.get(1));
+            return 1;
+        }
+        return batch.process(inputs, baseOf(positional.get(1))) == inputs.size() ? 0 : 1;
+    }
+
+    /**
+     * <p>
+     * Process images through the pipeline.
+     * </p>
+     *
+     * <p>
+     * This thread admits images one at a time, waiting for enough of the memory
+     * budget to be free for each, and the stages' threads do the rest.
+     * When every image is done, a summary of each stage is printed.
+     * </p>
+     *
+     * @param inputs The images to process.
+     * @param base   The directory the outputs' paths are relative to.
+     * @return The number of images processed without error.
+     */
+    public int process(List<Path> inputs, Path base) {
+        long start = System.nanoTime();
+        succeeded.set(0);
+        int codecs = Math.max(1, (threads + 1) / 2);
+        BlockingQueue<Job> admitted = new ArrayBlockingQueue<Job>(codecs);
+        BlockingQueue<Job> decoded = new ArrayBlockingQueue<Job>(threads);
+        BlockingQueue<Job> processed = new ArrayBlockingQueue<Job>(codecs);
+        Stage decode = new Stage("decode", admitted, decoded, codecs, threads);
+        Stage apply = new Stage("process", decoded, processed, threads, codecs);
+        Stage encode = new Stage("encode", processed, null, codecs, 0);
+
+        List<Thread> workers = new ArrayList<Thread>();
+        workers.addAll(decode.start(job -> {
+            job.image = ImageIO.read(job.input.toFile());
+            if (job.image == null) {
+                throw new IOException("not a readable image");
+            }
+        }));
+        workers.addAll(apply.start(job -> job.image = replay(readOps(), job.image)));
+        workers.addAll(encode.start(job -> {
+            write(job.image, job.output);
+            job.image = null;
+            memory.release(job.units);
+            succeeded.incrementAndGet();
+            System.out.println(job.input + " -> " + job.output + " ("
+                    + (System.nanoTime() - job.admitted) / 1000000 + " ms)");
+        }));
+
+        for (Path input : inputs) {
+            Job job = new Job(input, outputFor(input, base));
+            try {
+                job.units = unitsFor(input);
+            } catch (IOException ex) {
+                System.err.println(input + ": " + ex.getMessage());
+                continue;
+            }
+            memory.acquireUninterruptibly(job.units);
+            job.admitted = System.nanoTime();
+            putUninterruptibly(admitted, job);
+        }
+        decode.close();
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Processed %d of %d images in %.1f s (%.1f images/s)%n", succeeded.get(), inputs.size(),
+                seconds, succeeded.get() / seconds);
+        System.out.printf("%-8s %7s %7s %9s %11s %10s%n", "stage", "images", "busy s", "images/s", "mean queue",
+                "max queue");
+        for (Stage stage : new Stage[] { decode, apply, encode }) {
+            System.out.println(stage);
+        }
+        return succeeded.get();
+    }
+
+    /**
+     * <p>
+     * Put a job on a queue, waiting for space however long it takes.
+     * </p>
+     *
+     * @param queue The queue.
+     * @param job   The job.
+     */
+    private static void putUninterruptibly(BlockingQueue<Job> queue, Job job) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(job);
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * <p>
+     * An image on its way through the pipeline.
+     * </p>
+     */
+    private static class Job {
+
+        /** Marks the end of a queue: there are no more jobs after it. */
+        static final Job END = new Job(null, null);
+
+        /** The image to read. */
+        final Path input;
+
+        /** The file to write the result to. */
+        final Path output;
+
+        /** The memory held for this image, in units of {@link #UNIT} bytes. */
+        int units;
+
+        /** When the image was admitted, from {@link System#nanoTime()}. */
+        long admitted;
+
+        /** The image, once it has been decoded. */
+        BufferedImage image;
+
+        Job(Path input, Path output) {
+            this.input = input;
+            this.output = output;
+        }
+    }
+
+    /**
+     * <p>
+     * The work a stage does on each job.
+     * </p>
+     */
+    private interface Step {
+
+        /**
+         * @param job The job to work on.
+         * @throws Exception If the job cannot be done.
+         */
+        void run(Job job) throws Exception;
+    }
+
+    /**
+     * <p>
+     * One stage of the pipeline: some threads that take jobs from one queue, do
+     * a step on each, and put them on the next queue.
+     * </p>
+     *
+     * <p>
+     * The queues are bounded, so a stage that gets ahead waits for the one after
+     * it, and only a few images are in memory however many there are to do.
+     * A stage records how long its threads spend working and how full its queue
+     * is each time it takes a job.
+     * </p>
+     */
+    private class Stage {
+
+        /** The name shown in the summary. */
+        private final String name;
+
+        /** The queue jobs are taken from. */
+        private final BlockingQueue<Job> in;
+
+        /** The queue finished jobs are put on, or null for the last stage. */
+        private final BlockingQueue<Job> out;
+
+        /** The number of threads taking from the input queue. */
+        private final int workers;
+
+        /** The number of threads taking from the output queue. */
+        private final int consumers;
+
+        /** The number of threads that have not finished. */
+        private final AtomicInteger running = new AtomicInteger();
+
+        /** The number of jobs finished. */
+        private final AtomicInteger count = new AtomicInteger();
+
+        /** The time spent on jobs, over all threads, in nanoseconds. */
+        private final AtomicLong busy = new AtomicLong();
+
+        /** The sum of the input queue's length each time a job was taken. */
+        private final AtomicLong depthSum = new AtomicLong();
+
+        /** The longest the input queue has been. */
+        private final AtomicInteger depthMax = new AtomicInteger();
+
+        Stage(String name, BlockingQueue<Job> in, BlockingQueue<Job> out, int workers, int consumers) {
+            this.name = name;
+            this.in = in;
+            this.out = out;
+            this.workers = workers;
+            this.consumers = consumers;
+        }
+
+        /**
+         * <p>
+         * Start the stage's threads.
+         * </p>
+         *
+         * @param step The work to do on each job.
+         * @return The threads.
+         */
+        List<Thread> start(Step step) {
+            List<Thread> threads = new ArrayList<Thread>();
+            running.set(workers);
+            for (int i = 0; i < workers; i++) {
+                Thread thread = new Thread(() -> work(step), "ANDIE batch " + name + " " + (i + 1));
+                thread.start();
+                threads.add(thread);
+            }
+            return threads;
+        }
+
+        /**
+         * <p>
+         * Tell the stage's threads there are no more jobs.
+         * </p>
+         */
+        void close() {
+            for (int i = 0; i < workers; i++) {
+                putUninterruptibly(in, Job.END);
+            }
+        }
+
+        /**
+         * <p>
+         * Do the step on jobs until the end of the input queue.
+         * </p>
+         *
+         * <p>
+         * A job that fails is reported and dropped, and its memory is given back.
+         * The last thread to finish closes the next stage.
+         * </p>
+         *
+         * @param step The work to do on each job.
+         */
+        private void work(Step step) {
+            try {
+                while (true) {
+                    Job job;
+                    try {
+                        job = in.take();
+                    } catch (InterruptedException ex) {
+                        continue;
+                    }
+                    if (job == Job.END) {
+                        break;
+                    }
+                    int depth = in.size();
+                    depthSum.addAndGet(depth);
+                    depthMax.accumulateAndGet(depth, Math::max);
+                    long start = System.nanoTime();
+                    try {
+                        step.run(job);
+                    } catch (Exception | OutOfMemoryError ex) {
+                        System.err.println(job.input + ": " + ex);
+                        job.image = null;
+                        memory.release(job.units);
+                        continue;
+                    } finally {
+                        busy.addAndGet(System.nanoTime() - start);
+                    }
+                    count.incrementAndGet();
+                    if (out != null) {
+                        putUninterruptibly(out, job);
+                    }
+                }
+            } finally {
+                if (running.decrementAndGet() == 0 && out != null) {
+                    for (int i = 0; i < consumers; i++) {
+                        putUninterruptibly(out, Job.END);
+                    }
+                }
+            }
+        }
+
+        /**
+         * <p>
+         * Summarise the stage as a line of the table printed after a batch.
+         * </p>
+         *
+         * @return The stage's name, jobs, busy time, rate and queue lengths.
+         */
+        @Override
+        public String toString() {
+            double seconds = busy.get() / 1e9;
+            int n = count.get();
+            return String.format("%-8s %7d %7.2f %9.1f %11.2f %10d", name, n, seconds,
+                    seconds > 0 ? n * workers / seconds : 0.0, n > 0 ? (double) depthSum.get() / n : 0.0,
+                    depthMax.get());
+        }
+    }
+
+    /**
+     * <p>
+     * Apply operations to an image in order.
+     * </p>
+     *
+     * <p>
+     * This is the same {@link OperationReplay} ANDIE uses when an image is
+     * opened, so runs of colour adjustments are applied together in one pass,
+     * and so are runs of rotations, flips, crops and resizes.
+     * </p>
+     *
+     * @param ops   The operations to apply.
+     * @param image The image to apply them to.
+     * @return The result.
+     */
+    public static BufferedImage replay(List<ImageOperation> ops, BufferedImage image) {
+        return OperationReplay.replay(ops, 0, ops.size(), image, OperationReplay.NONE);
+    }
+
+    /**
+     * <p>
+     * Make a fresh copy of the operations.
+     * </p>
+     *
+     * <p>
+     * Some operations keep state, so each image gets its own copy rather than
+     * sharing one between threads.
+     * </p>
+     *
+     * @return The operations, in the order they were applied.
+     * @throws IOException If the operations cannot be read.
+     */
+    private List<ImageOperation> readOps() throws IOException {
+        return OpsFormat.fromByteArray(ops);
+    }
+
+    /**
+     * <p>
+     * Estimate the memory needed to process an image, without decoding it.
+     * </p>
+     *
+     * @param input The image.
+     * @return The estimate in units of {@link #UNIT} bytes, no more than the
+     *         whole budget.
+     * @throws IOException If the image cannot be read.
+     */
+    private int unitsFor(Path input) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(input.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("not a readable image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                long bytes = (long) reader.getWidth(0) * reader.getHeight(0) * 4 * COPIES;
+                return (int) Math.max(1, Math.min(budget, bytes / UNIT));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Work out where to write the result for an image.
+     * </p>
+     *
+     * @param input The image.
+     * @param base  The directory the output's path is relative to.
+     * @return The file to write to.
+     */
+    private Path outputFor(Path input, Path base) {
+        Path relative = base.toAbsolutePath().normalize().relativize(input.toAbsolutePath().normalize());
+        if (format != null) {
+            String name = relative.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            relative = relative.resolveSibling((dot < 0 ? name : name.substring(0, dot)) + "." + format);
+        }
+        return outputDir.resolve(relative);
+    }
+
+    /**
+     * <p>
+     * Write an image, in the format given by its file name.
+     * </p>
+     *
+     * <p>
+     * Formats without transparency, like JPEG, cannot store some images, so
+     * those are written without their alpha channel.
+     * </p>
+     *
+     * @param image  The image to write.
+     * @param output The file to write to.
+     * @throws IOException If the image cannot be written.
+     */
+    private static void write(BufferedImage image, Path output) throws IOException {
+        String name = output.getFileName().toString();
+        String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        File file = output.toFile();
+        if (ImageIO.write(image, extension, file)) {
+            return;
+        }
+        BufferedImage opaque = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = opaque.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        if (!ImageIO.write(opaque, extension, file)) {
+            throw new IOException("cannot write images in the format " + extension);
+        }
+    }
+
+    /**
+     * <p>
+     * Get the directory a glob pattern starts from: the path up to the first
+     * part with a wildcard in it.
+     * </p>
+     *
+     * @param glob The pattern.
+     * @return The directory to search from.
+     */
+    static Path baseOf(String glob) {
+        String[] parts = glob.replace('\\', '/').split("/", -1);
+        StringBuilder base = new StringBuilder(glob.startsWith("/") ? "/" : "");
+        for (int i = 0; i < parts.length - 1 && !hasWildcard(parts[i]); i++) {
+            if (!parts[i].isEmpty()) {
+                base.append(parts[i]).append('/');
+            }
+        }
+        return Paths.get(base.length() == 0 ? "." : base.toString());
+    }
+
+    /**
+     * <p>
+     * Find the files matching a glob pattern, such as
+     * <code>photos/**&#47;*.png</code>.
+     * </p>
+     *
+     * <p>
+     * The pattern uses the syntax of {@link java.nio.file.FileSystem#getPathMatcher},
+     * and is matched against paths relative to the directory it starts from.
+     * </p>
+     *
+     * @param glob The pattern.
+     * @return The matching files, sorted by path.
+     * @throws IOException If a directory cannot be read.
+     */
+    public static List<Path> expand(String glob) throws IOException {
+        Path base = baseOf(glob);
+        String normalised = glob.replace('\\', '/');
+        String prefix = base.toString().equals(".") && !normalised.startsWith("./") ? "" : base.toString();
+        String rest = normalised.substring(Math.min(normalised.length(), prefix.length())).replaceFirst("^/+", "");
+        if (!hasWildcard(rest)) {
+            Path file = Paths.get(glob);
+            return Files.isRegularFile(file) ? List.of(file) : new ArrayList<Path>();
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + rest);
+        int depth = rest.contains("**") ? Integer.MAX_VALUE : rest.split("/").length;
+        try (Stream<Path> paths = Files.walk(base, depth)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(p -> matcher.matches(base.relativize(p)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * <p>
+     * Check whether part of a glob pattern has a wildcard in it.
+     * </p>
+     *
+     * @param part The part of the pattern.
+     * @return True if it has any of <code>*?[{</code>.
+     */
+    private static boolean hasWildcard(String part) {
+        return part.matches(".*[*?\\[{].*");
+    }
+}
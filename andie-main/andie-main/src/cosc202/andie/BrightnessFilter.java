@@ -22,7 +22,10 @@ import java.awt.image.BufferedImage;
  * @author Lucy Hadden
  * @version 1.0
  */
-public class BrightnessFilter implements ImageOperation, java.io.Serializable {
+public class BrightnessFilter implements PointOperation, java.io.Serializable {
+
+    private static final long serialVersionUID = 3049708271889562608L;
+
     /**
      * The size of filter to apply.
      */
@@ -63,48 +66,61 @@ public class BrightnessFilter implements ImageOperation, java.io.Serializable {
      * @return the resulting BufferedImage object after brightness has been applied
      */
     public BufferedImage apply(BufferedImage input) {
-        int width = input.getWidth();
-        int height = input.getHeight();
-
-        // Create a new BufferedImage object with the same dimensions as the input image
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
-        // Get the pixel data from the input image
-        int[] pixels = new int[width * height];
-        input.getRGB(0, 0, width, height, pixels, 0, width);
+        return TileScheduler.apply(this, input);
+    }
 
+    /**
+     * <p>
+     * Work out the new brightness of one colour channel.
+     * </p>
+     *
+     * @param c The channel value, from 0 to 255.
+     * @return The adjusted value, clipped to 0 to 255.
+     */
+    private int adjust(int c) {
         // Calculate the offset value for brightness
         int offset = brightness < 0 ? -brightness : 0;
+        int j = c + brightness - offset;
+        return j < 0 ? 0 : (j > 255 ? 255 : j);
+    }
 
-        // Create a lookup table to map the input pixel values to the new brightness
-        // values
+    /**
+     * <p>
+     * Build a lookup table that maps each channel value to its new brightness.
+     * </p>
+     *
+     * @return The new value for each of the 256 channel values.
+     */
+    public int[] getLookupTable() {
         int[] lookupTable = new int[256];
         for (int i = 0; i < 256; i++) {
-            int j = i + brightness - offset;
-            lookupTable[i] = j < 0 ? 0 : (j > 255 ? 255 : j);
+            lookupTable[i] = adjust(i);
         }
+        return lookupTable;
+    }
 
-        // Apply the brightness to each pixel in the input image
-        for (int i = 0; i < pixels.length; i++) {
-            int pixel = pixels[i];
-            int r = (pixel >> 16) & 0xff;
-            int g = (pixel >> 8) & 0xff;
-            int b = pixel & 0xff;
-
-            // Map the input pixel values to the new brightness values using the lookup
-            // table
-            int nr = lookupTable[r];
-            int ng = lookupTable[g];
-            int nb = lookupTable[b];
-
-            // Create the new pixel value with the adjusted brightness values
-            int newPixel = (pixel & 0xff000000) | (nr << 16) | (ng << 8) | nb;
-
-            // Set the new pixel value in the result image
-            result.setRGB(i % width, i / width, newPixel);
-        }
+    /**
+     * <p>
+     * Adjust the brightness of one pixel.
+     * </p>
+     *
+     * @param argb The input pixel.
+     * @return The adjusted pixel, which is opaque since the result has no alpha.
+     */
+    public int filterPixel(int argb) {
+        return 0xFF000000 | (adjust((argb >> 16) & 0xff) << 16) | (adjust((argb >> 8) & 0xff) << 8)
+                | adjust(argb & 0xff);
+    }
 
-        // Return the resulting BufferedImage object after brightness has been applied
-        return result;
+    /**
+     * <p>
+     * Create an opaque RGB image to hold the result.
+     * </p>
+     *
+     * @param input The image the filter is being applied to.
+     * @return A new TYPE_INT_RGB image the same size as the input.
+     */
+    public BufferedImage createOutput(BufferedImage input) {
+        return Pixels.create(input, input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
     }
 }
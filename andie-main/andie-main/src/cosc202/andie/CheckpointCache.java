@@ -0,0 +1,662 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>
+ * A cache of intermediate images, used to avoid replaying every operation when
+ * undoing.
+ * </p>
+ *
+ * <p>
+ * A checkpoint is a copy of the image after a given number of operations (its
+ * depth) have been applied to the original.
+ * To get back to some depth, {@link EditableImage} starts from the deepest
+ * checkpoint at or before it and only replays the operations after that.
+ * Checkpoints are kept every few operations, and after any operation that was
+ * slow to apply.
+ * </p>
+ *
+ * <p>
+ * Checkpoints are not kept as whole images.
+ * Each one is cut into square tiles of raw pixel data, and each tile is
+ * compressed.
+ * Tiles are shared by content, so a tile that is the same in several
+ * checkpoints, such as the part of the image outside a crop or a drawing, is
+ * only stored once.
+ * </p>
+ *
+ * <p>
+ * The total compressed size of the stored tiles is kept under a memory budget.
+ * When a new checkpoint would go over the budget, the least recently used
+ * checkpoints are thrown away first.
+ * The budget can be set with the <code>andie.checkpoint.budget</code> system
+ * property, in bytes, and is a quarter of the maximum heap size by default.
+ * The cache counts how often undo finds a checkpoint to start from, so that the
+ * budget can be tuned; see {@link #toString()}.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see EditableImage
+ * @version 1.0
+ */
+public class CheckpointCache {
+
+    /** The default number of operations between checkpoints. */
+    public static final int DEFAULT_INTERVAL = 8;
+
+    /** The default time an operation must take to always be checkpointed. */
+    public static final long DEFAULT_EXPENSIVE_MILLIS = 250;
+
+    /** The width and height of the tiles checkpoints are cut into. */
+    static final int TILE_SIZE = 256;
+
+    /**
+     * <p>
+     * A compressed tile of raw pixel data, which may be shared by several
+     * checkpoints.
+     * </p>
+     */
+    private static class Tile {
+        /** A hash of the raw data, used to find tiles with the same content. */
+        final long key;
+        /** The compressed raw data. */
+        final byte[] data;
+        /** The length of the raw data. */
+        final int rawLength;
+        /** The number of checkpoints using the tile. */
+        int refs;
+
+        Tile(long key, byte[] data, int rawLength) {
+            this.key = key;
+            this.data = data;
+            this.rawLength = rawLength;
+        }
+    }
+
+    /**
+     * <p>
+     * A checkpoint, stored as a grid of tiles.
+     * </p>
+     */
+    private static class Snapshot {
+        /** A one pixel image of the same kind, to make the restored image from. */
+        final BufferedImage template;
+        final int width;
+        final int height;
+        /** The tiles in rows, left to right and top to bottom. */
+        final Tile[] tiles;
+
+        Snapshot(BufferedImage template, int width, int height, Tile[] tiles) {
+            this.template = template;
+            this.width = width;
+            this.height = height;
+            this.tiles = tiles;
+        }
+    }
+
+    /** The checkpoints by depth, with the least recently used first. */
+    private final LinkedHashMap<Integer, Snapshot> checkpoints;
+
+    /** Every stored tile, by the hash of its content. */
+    private final HashMap<Long, Tile> tiles;
+
+    /** The number of operations between checkpoints. */
+    private final int interval;
+
+    /** The time in milliseconds an operation must take to always be checkpointed. */
+    private final long expensiveMillis;
+
+    /** The most bytes the stored tiles may use. */
+    private long budget;
+
+    /** The bytes the stored tiles currently use. */
+    private long used;
+
+    /** The bytes the checkpoints would use if they were stored uncompressed. */
+    private long rawUsed;
+
+    /** The number of times a checkpoint was looked for. */
+    private long lookups;
+
+    /** The number of times a checkpoint was found. */
+    private long hits;
+
+    /** The number of tiles added that were already stored. */
+    private long sharedTiles;
+
+    /** The number of tiles added. */
+    private long addedTiles;
+
+    /**
+     * <p>
+     * Create a checkpoint cache with the default settings.
+     * </p>
+     */
+    public CheckpointCache() {
+        this(Long.getLong("andie.checkpoint.budget", Runtime.getRuntime().maxMemory() / 4), DEFAULT_INTERVAL,
+                DEFAULT_EXPENSIVE_MILLIS);
+    }
+
+    /**
+     * <p>
+     * Create a checkpoint cache.
+     * </p>
+     *
+     * @param budget          The most bytes the stored tiles may use.
+     * @param interval        The number of operations between checkpoints.
+     * @param expensiveMillis The time in milliseconds an operation must take to
+     *                        always be checkpointed.
+     */
+    public CheckpointCache(long budget, int interval, long expensiveMillis) {
+        this.checkpoints = new LinkedHashMap<Integer, Snapshot>(16, 0.75f, true);
+        this.tiles = new HashMap<Long, Tile>();
+        this.budget = budget;
+        this.interval = interval;
+        this.expensiveMillis = expensiveMillis;
+    }
+
+    /**
+     * <p>
+     * Work out roughly how many bytes an image's pixels use.
+     * </p>
+     *
+     * @param image The image to measure.
+     * @return The size of the image's data buffer in bytes.
+     */
+    public static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * <p>
+     * Offer the image after an operation as a checkpoint.
+     * </p>
+     *
+     * <p>
+     * The image is kept if the depth is a multiple of the interval, or the
+     * operation took longer than the expensive time.
+     * </p>
+     *
+     * @param depth  The number of operations applied to get the image.
+     * @param image  The image after those operations.
+     * @param millis How long the last operation took, in milliseconds.
+     * @return True if the image was kept.
+     */
+    public boolean offer(int depth, BufferedImage image, long millis) {
+        if (depth <= 0 || (depth % interval != 0 && millis < expensiveMillis)) {
+            return false;
+        }
+        return put(depth, image);
+    }
+
+    /**
+     * <p>
+     * Keep a copy of an image as the checkpoint for a depth.
+     * </p>
+     *
+     * <p>
+     * The image is cut into tiles, and any tile whose content is already stored
+     * is shared rather than compressed and stored again.
+     * The new tiles are compressed in parallel.
+     * </p>
+     *
+     * <p>
+     * A {@link MappedImage} is never kept, since cutting it up would need
+     * room for all of its pixels on the heap at once.
+     * Undoing past it replays the operations from an earlier checkpoint.
+     * </p>
+     *
+     * @param depth The number of operations applied to get the image.
+     * @param image The image after those operations.
+     * @return True if the image was kept, or false if it did not fit in the
+     *         budget or is mapped.
+     */
+    public boolean put(int depth, BufferedImage image) {
+        remove(depth);
+        if (MappedImage.isMapped(image)) {
+            return false;
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int across = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int down = (height + TILE_SIZE - 1) / TILE_SIZE;
+        Raster raster = image.getRaster();
+        byte[][] raw = new byte[across * down][];
+        long[] keys = new long[raw.length];
+        TileScheduler.forEachBand(down, 1, (ty0, ty1) -> {
+            for (int i = ty0 * across; i < ty1 * across; i++) {
+                int x = (i % across) * TILE_SIZE;
+                int y = (i / across) * TILE_SIZE;
+                Object elements = raster.getDataElements(x, y, Math.min(TILE_SIZE, width - x),
+                        Math.min(TILE_SIZE, height - y), null);
+                raw[i] = toBytes(elements);
+                keys[i] = hash(raw[i]);
+            }
+        });
+
+        // Share tiles that are already stored, or that repeat an earlier tile of
+        // this image, and only compress the rest.
+        Tile[] grid = new Tile[raw.length];
+        int[] sameAs = new int[raw.length];
+        HashMap<Long, Integer> firstWithKey = new HashMap<Long, Integer>();
+        for (int i = 0; i < raw.length; i++) {
+            sameAs[i] = i;
+            Tile stored = tiles.get(keys[i]);
+            Integer first = firstWithKey.putIfAbsent(keys[i], i);
+            if (stored != null && Arrays.equals(raw[i], inflate(stored))) {
+                grid[i] = stored;
+            } else if (first != null && Arrays.equals(raw[i], raw[first])) {
+                sameAs[i] = first;
+            }
+            if (sameAs[i] != i || grid[i] != null) {
+                sharedTiles++;
+            }
+            addedTiles++;
+        }
+        TileScheduler.forEachBand(down, 1, (ty0, ty1) -> {
+            for (int i = ty0 * across; i < ty1 * across; i++) {
+                if (grid[i] == null && sameAs[i] == i) {
+                    grid[i] = new Tile(keys[i], deflate(raw[i]), raw[i].length);
+                }
+            }
+        });
+        for (int i = 0; i < raw.length; i++) {
+            if (grid[i] == null) {
+                grid[i] = grid[sameAs[i]];
+            }
+        }
+
+        Snapshot snapshot = new Snapshot(Pixels.createCompatible(image, 1, 1), width, height, grid);
+        for (Tile tile : grid) {
+            if (tile.refs++ == 0) {
+                used += tile.data.length;
+                tiles.putIfAbsent(tile.key, tile);
+            }
+            rawUsed += tile.rawLength;
+        }
+        checkpoints.put(depth, snapshot);
+        trim();
+        return checkpoints.containsKey(depth);
+    }
+
+    /**
+     * <p>
+     * Find the deepest checkpoint at or before a depth.
+     * </p>
+     *
+     * @param depth The depth to look from.
+     * @return The depth of the checkpoint, or 0 if there is none.
+     */
+    public int floorDepth(int depth) {
+        int best = 0;
+        for (int d : checkpoints.keySet()) {
+            if (d <= depth && d > best) {
+                best = d;
+            }
+        }
+        lookups++;
+        if (best > 0) {
+            hits++;
+        }
+        return best;
+    }
+
+    /**
+     * <p>
+     * Rebuild the image for the checkpoint at a depth.
+     * </p>
+     *
+     * <p>
+     * The image is a new copy each time, so operations applied to it cannot
+     * change the checkpoint.
+     * </p>
+     *
+     * @param depth The depth of the checkpoint.
+     * @return The image, or null if there is no checkpoint at that depth.
+     */
+    public BufferedImage restore(int depth) {
+        Snapshot snapshot = checkpoints.get(depth);
+        if (snapshot == null) {
+            return null;
+        }
+        BufferedImage image = Pixels.createCompatible(snapshot.template, snapshot.width, snapshot.height);
+        WritableRaster raster = image.getRaster();
+        int transferType = raster.getTransferType();
+        int across = (snapshot.width + TILE_SIZE - 1) / TILE_SIZE;
+        int down = (snapshot.height + TILE_SIZE - 1) / TILE_SIZE;
+        TileScheduler.forEachBand(down, 1, (ty0, ty1) -> {
+            for (int i = ty0 * across; i < ty1 * across; i++) {
+                int x = (i % across) * TILE_SIZE;
+                int y = (i / across) * TILE_SIZE;
+                raster.setDataElements(x, y, Math.min(TILE_SIZE, snapshot.width - x),
+                        Math.min(TILE_SIZE, snapshot.height - y), fromBytes(inflate(snapshot.tiles[i]), transferType));
+            }
+        });
+        return image;
+    }
+
+    /**
+     * <p>
+     * Throw away every checkpoint at or after a depth.
+     * </p>
+     *
+     * <p>
+     * This is needed when the operation at that depth changes, since the later
+     * checkpoints no longer match the operations.
+     * </p>
+     *
+     * @param depth The first depth to throw away.
+     */
+    public void discardFrom(int depth) {
+        Iterator<Map.Entry<Integer, Snapshot>> it = checkpoints.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Snapshot> entry = it.next();
+            if (entry.getKey() >= depth) {
+                release(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Throw away every checkpoint.
+     * </p>
+     */
+    public void clear() {
+        checkpoints.clear();
+        tiles.clear();
+        used = 0;
+        rawUsed = 0;
+    }
+
+    /**
+     * <p>
+     * Remove the checkpoint at a depth, if there is one.
+     * </p>
+     *
+     * @param depth The depth of the checkpoint.
+     */
+    private void remove(int depth) {
+        Snapshot old = checkpoints.remove(depth);
+        if (old != null) {
+            release(old);
+        }
+    }
+
+    /**
+     * <p>
+     * Stop a checkpoint using its tiles, freeing any that are no longer used.
+     * </p>
+     *
+     * @param snapshot The checkpoint being thrown away.
+     */
+    private void release(Snapshot snapshot) {
+        for (Tile tile : snapshot.tiles) {
+            rawUsed -= tile.rawLength;
+            if (--tile.refs == 0) {
+                used -= tile.data.length;
+                tiles.remove(tile.key, tile);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Throw away the least recently used checkpoints until under budget.
+     * </p>
+     */
+    private void trim() {
+        Iterator<Snapshot> it = checkpoints.values().iterator();
+        while (used > budget && it.hasNext()) {
+            release(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * <p>
+     * Hash the raw data of a tile, to find other tiles with the same content.
+     * </p>
+     *
+     * @param raw The raw data.
+     * @return A 64 bit hash made of two different 32 bit hashes.
+     */
+    private static long hash(byte[] raw) {
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        return ((long) Arrays.hashCode(raw) << 32) | crc.getValue();
+    }
+
+    /**
+     * <p>
+     * Compress the raw data of a tile.
+     * </p>
+     *
+     * @param raw The raw data.
+     * @return The compressed data.
+     */
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        byte[] buffer = new byte[16384];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    /**
+     * <p>
+     * Decompress the raw data of a tile.
+     * </p>
+     *
+     * @param tile The tile.
+     * @return The raw data.
+     */
+    private static byte[] inflate(Tile tile) {
+        Inflater inflater = new Inflater();
+        inflater.setInput(tile.data);
+        byte[] raw = new byte[tile.rawLength];
+        try {
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                n += inflater.inflate(raw, n, raw.length - n);
+            }
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    /**
+     * <p>
+     * Turn an array of raster data elements into bytes.
+     * </p>
+     *
+     * @param elements The array from {@link Raster#getDataElements}.
+     * @return The same data as bytes.
+     */
+    private static byte[] toBytes(Object elements) {
+        if (elements instanceof byte[]) {
+            return (byte[]) elements;
+        } else if (elements instanceof int[]) {
+            int[] array = (int[]) elements;
+            ByteBuffer bytes = ByteBuffer.allocate(array.length * 4);
+            bytes.asIntBuffer().put(array);
+            return bytes.array();
+        } else if (elements instanceof short[]) {
+            short[] array = (short[]) elements;
+            ByteBuffer bytes = ByteBuffer.allocate(array.length * 2);
+            bytes.asShortBuffer().put(array);
+            return bytes.array();
+        } else if (elements instanceof float[]) {
+            float[] array = (float[]) elements;
+            ByteBuffer bytes = ByteBuffer.allocate(array.length * 4);
+            bytes.asFloatBuffer().put(array);
+            return bytes.array();
+        } else {
+            double[] array = (double[]) elements;
+            ByteBuffer bytes = ByteBuffer.allocate(array.length * 8);
+            bytes.asDoubleBuffer().put(array);
+            return bytes.array();
+        }
+    }
+
+    /**
+     * <p>
+     * Turn bytes back into an array of raster data elements.
+     * </p>
+     *
+     * @param raw          The data as bytes.
+     * @param transferType The transfer type of the raster, one of the
+     *                     DataBuffer.TYPE_ constants.
+     * @return An array to pass to {@link WritableRaster#setDataElements}.
+     */
+    private static Object fromBytes(byte[] raw, int transferType) {
+        ByteBuffer bytes = ByteBuffer.wrap(raw);
+        switch (transferType) {
+            case DataBuffer.TYPE_BYTE:
+                return raw;
+            case DataBuffer.TYPE_INT: {
+                int[] array = new int[raw.length / 4];
+                bytes.asIntBuffer().get(array);
+                return array;
+            }
+            case DataBuffer.TYPE_USHORT:
+            case DataBuffer.TYPE_SHORT: {
+                short[] array = new short[raw.length / 2];
+                bytes.asShortBuffer().get(array);
+                return array;
+            }
+            case DataBuffer.TYPE_FLOAT: {
+                float[] array = new float[raw.length / 4];
+                bytes.asFloatBuffer().get(array);
+                return array;
+            }
+            default: {
+                double[] array = new double[raw.length / 8];
+                bytes.asDoubleBuffer().get(array);
+                return array;
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Get the memory budget.
+     * </p>
+     *
+     * @return The most bytes the stored tiles may use.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * <p>
+     * Change the memory budget, throwing away checkpoints if needed.
+     * </p>
+     *
+     * @param budget The most bytes the stored tiles may use.
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+        trim();
+    }
+
+    /**
+     * <p>
+     * Get the memory the stored tiles currently use.
+     * </p>
+     *
+     * @return The total compressed size of the stored tiles in bytes.
+     */
+    public long getUsed() {
+        return used;
+    }
+
+    /**
+     * <p>
+     * Get the memory the checkpoints would use without compression or sharing.
+     * </p>
+     *
+     * @return The total raw size of the checkpoints in bytes.
+     */
+    public long getRawUsed() {
+        return rawUsed;
+    }
+
+    /**
+     * <p>
+     * Get the number of checkpoints kept.
+     * </p>
+     *
+     * @return The number of checkpoints.
+     */
+    public int size() {
+        return checkpoints.size();
+    }
+
+    /**
+     * <p>
+     * Get the fraction of undos that found a checkpoint to start from.
+     * </p>
+     *
+     * @return The hit rate, from 0 to 1, or 0 if there have been no lookups.
+     */
+    public double getHitRate() {
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * <p>
+     * Get the fraction of tiles added that were already stored.
+     * </p>
+     *
+     * @return The share rate, from 0 to 1, or 0 if no tiles have been added.
+     */
+    public double getShareRate() {
+        return addedTiles == 0 ? 0 : (double) sharedTiles / addedTiles;
+    }
+
+    /**
+     * <p>
+     * Describe how much memory the cache uses and how well it is working.
+     * </p>
+     *
+     * @return A one line summary of the cache.
+     */
+    @Override
+    public String toString() {
+        return String.format("%d checkpoints, %d/%d KB used (%d KB raw), hit rate %.0f%%, %.0f%% of tiles shared",
+                checkpoints.size(), used / 1024, budget / 1024, rawUsed / 1024, 100 * getHitRate(),
+                100 * getShareRate());
+    }
+}
@@ -129,9 +129,7 @@ public class ColourActions {
      */
     public void actionPerformed(ActionEvent e) {
       if (ImagePanel.image.hasImage()) {
-        target.getImage().apply(new ConvertToGrey());
-        target.repaint();
-        target.getParent().revalidate();
+        OperationRunner.apply(target, new ConvertToGrey());
       } else {
         try {
           Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -189,6 +187,14 @@ public class ColourActions {
         brightnessSlider.setPaintTicks(true);
         brightnessSlider.setPaintLabels(true);
 
+        // Preview the adjustment on the visible part of the image as the slider moves.
+        Preview preview = new Preview(
+          target,
+          (value, scale) -> new BrightnessFilter(value)
+        );
+        brightnessSlider.addChangeListener(ev -> preview.show(brightnessSlider.getValue()));
+        preview.show(brightnessSlider.getValue());
+
         int option = JOptionPane.showOptionDialog(
           null,
           brightnessSlider,
@@ -199,6 +205,7 @@ public class ColourActions {
           null,
           null
         );
+        preview.close();
 
         // Check the return value from the dialog box.
         if (option == JOptionPane.CANCEL_OPTION) {
@@ -207,9 +214,7 @@ public class ColourActions {
           int brightness = brightnessSlider.getValue();
 
           // Create and apply the filter
-          target.getImage().apply(new BrightnessFilter(brightness));
-          target.repaint();
-          target.getParent().revalidate();
+          OperationRunner.apply(target, new BrightnessFilter(brightness));
         }
       } else {
         try {
@@ -264,6 +269,14 @@ public class ColourActions {
         contrastSlider.setPaintTicks(true);
         contrastSlider.setPaintLabels(true);
 
+        // Preview the adjustment on the visible part of the image as the slider moves.
+        Preview preview = new Preview(
+          target,
+          (value, scale) -> new ContrastFilter(value)
+        );
+        contrastSlider.addChangeListener(ev -> preview.show(contrastSlider.getValue()));
+        preview.show(contrastSlider.getValue());
+
         int option = JOptionPane.showOptionDialog(
           null,
           contrastSlider,
@@ -274,6 +287,7 @@ public class ColourActions {
           null,
           null
         );
+        preview.close();
 
         // Check the return value from the dialog box.
         if (option == JOptionPane.CANCEL_OPTION) {
@@ -282,9 +296,7 @@ public class ColourActions {
           int contrast = contrastSlider.getValue();
 
           // Create and apply the filter
-          target.getImage().apply(new ContrastFilter(contrast));
-          target.repaint();
-          target.getParent().revalidate();
+          OperationRunner.apply(target, new ContrastFilter(contrast));
         }
       } else {
         try {
@@ -0,0 +1,123 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * A run of geometric operations done in a single pass over the image.
+ * </p>
+ *
+ * <p>
+ * Rotating, flipping and cropping one after another makes a new image for each
+ * step and copies every pixel each time.
+ * This operation instead follows each output pixel back through the whole run
+ * to the input pixel it ends up coming from, so each pixel is copied once, and
+ * only the pixels that are left after any crop are copied at all.
+ * A run that ends up where it started, such as two horizontal flips or rotations
+ * adding up to a full turn, copies nothing.
+ * </p>
+ *
+ * <p>
+ * A filtered resize cannot be composed with what comes after it, so it ends
+ * one pass and starts the next, but it still reads its input through the
+ * operations before it rather than waiting for them to make an image.
+ * </p>
+ *
+ * <p>
+ * The result is exactly the same as applying the operations one at a time.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see GeometricOperation
+ * @see Remap
+ * @version 1.0
+ */
+public class ComposedTransform implements GeometricOperation {
+
+    /** The operations in the run, in the order they are applied. */
+    private final List<GeometricOperation> operations;
+
+    /**
+     * <p>
+     * Create a composed operation from a run of geometric operations.
+     * </p>
+     *
+     * @param operations The operations to apply, in order.
+     */
+    public ComposedTransform(List<? extends GeometricOperation> operations) {
+        this.operations = new ArrayList<GeometricOperation>(operations);
+    }
+
+    /**
+     * <p>
+     * Combine the remaps of every operation in the run.
+     * </p>
+     *
+     * @param width  The width of the image the run is applied to.
+     * @param height The height of the image the run is applied to.
+     * @return One remap that does the whole run, or null if the run includes an
+     *         operation that blends pixels.
+     */
+    @Override
+    public Remap getRemap(int width, int height) {
+        Remap remap = Remap.identity(width, height);
+        for (GeometricOperation op : operations) {
+            Remap next = op.getRemap(remap.getWidth(), remap.getHeight());
+            if (next == null) {
+                return null;
+            }
+            remap = remap.then(next);
+        }
+        return remap;
+    }
+
+    /**
+     * <p>
+     * Apply the run after a remap, composing as much of it as can be.
+     * </p>
+     *
+     * @param input  The image the remap applies to.
+     * @param before The remap to apply first.
+     * @return The resulting image.
+     */
+    @Override
+    public BufferedImage apply(BufferedImage input, Remap before) {
+        BufferedImage image = input;
+        for (GeometricOperation op : operations) {
+            Remap next = op.getRemap(before.getWidth(), before.getHeight());
+            if (next != null) {
+                before = before.then(next);
+            } else {
+                image = op.apply(image, before);
+                before = Remap.identity(image.getWidth(), image.getHeight());
+            }
+        }
+        return before.apply(image);
+    }
+
+    /**
+     * <p>
+     * Apply a run of geometric operations, composing them if there is more than
+     * one.
+     * </p>
+     *
+     * @param operations The operations to apply, in order, perhaps none.
+     * @param input      The image to apply them to.
+     * @return The resulting image.
+     */
+    public static BufferedImage applyAll(List<GeometricOperation> operations, BufferedImage input) {
+        if (operations.isEmpty()) {
+            return input;
+        }
+        if (operations.size() == 1) {
+            return OperationStats.apply(operations.get(0), input);
+        }
+        return OperationStats.apply(new ComposedTransform(operations), input);
+    }
+}
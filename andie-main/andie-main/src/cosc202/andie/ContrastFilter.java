@@ -1,6 +1,5 @@
 package cosc202.andie;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 
 /**
@@ -19,7 +18,9 @@ import java.awt.image.BufferedImage;
  * @author Lucy Hadden
  * @version 1.0
  */
-public class ContrastFilter implements ImageOperation, java.io.Serializable {
+public class ContrastFilter implements PointOperation, java.io.Serializable {
+
+    private static final long serialVersionUID = -1097995986625086161L;
 
     /**
      * The contrast adjustment value
@@ -53,37 +54,61 @@ public class ContrastFilter implements ImageOperation, java.io.Serializable {
      * @return A new BufferedImage with the contrast adjustment applied.
      */
     public BufferedImage apply(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-
-        // Create a new BufferedImage with the same dimensions as the input image
-        BufferedImage adjustedImage = new BufferedImage(width, height, image.getType());
+        return TileScheduler.apply(this, image);
+    }
 
+    /**
+     * 
+     * Adjust the contrast of one colour channel.
+     * 
+     * @param c The channel value, from 0 to 255.
+     * 
+     * @return The adjusted value, clipped to 0 to 255.
+     */
+    private int adjust(int c) {
         // Calculate the contrast factor
         double factor = (259 * (contrast + 255)) / (255 * (259 - contrast));
+        int adjusted = (int) (factor * (c - 128) + 128);
+        // Ensure that the color values are within the valid range of 0-255
+        return Math.min(Math.max(adjusted, 0), 255);
+    }
 
-        // Loop through each pixel in the image
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                // Get the color of the current pixel
-                Color color = new Color(image.getRGB(x, y));
-
-                // Calculate the new color values based on the contrast factor
-                int red = (int) (factor * (color.getRed() - 128) + 128);
-                int green = (int) (factor * (color.getGreen() - 128) + 128);
-                int blue = (int) (factor * (color.getBlue() - 128) + 128);
-
-                // Ensure that the color values are within the valid range of 0-255
-                red = Math.min(Math.max(red, 0), 255);
-                green = Math.min(Math.max(green, 0), 255);
-                blue = Math.min(Math.max(blue, 0), 255);
-
-                // Set the new color of the pixel in the adjusted image
-                Color adjustedColor = new Color(red, green, blue);
-                adjustedImage.setRGB(x, y, adjustedColor.getRGB());
-            }
+    /**
+     * 
+     * Build a lookup table that maps each channel value to its adjusted value.
+     * 
+     * @return The new value for each of the 256 channel values.
+     */
+    public int[] getLookupTable() {
+        int[] lookupTable = new int[256];
+        for (int i = 0; i < 256; i++) {
+            lookupTable[i] = adjust(i);
         }
+        return lookupTable;
+    }
+
+    /**
+     * 
+     * Adjust the contrast of one pixel.
+     * 
+     * @param argb The input pixel.
+     * 
+     * @return The adjusted pixel, which is always opaque.
+     */
+    public int filterPixel(int argb) {
+        return 0xFF000000 | (adjust((argb >> 16) & 0xFF) << 16) | (adjust((argb >> 8) & 0xFF) << 8)
+                | adjust(argb & 0xFF);
+    }
 
-        return adjustedImage;
+    /**
+     * 
+     * Create an image of the same type as the input to hold the result.
+     * 
+     * @param image The BufferedImage being adjusted.
+     * 
+     * @return A new BufferedImage the same size and type as the input.
+     */
+    public BufferedImage createOutput(BufferedImage image) {
+        return Pixels.create(image, image.getWidth(), image.getHeight(), image.getType());
     }
-}
\ No newline at end of file
+}
@@ -20,14 +20,16 @@ import java.awt.image.*;
  * @author Steven Mills
  * @version 1.0
  */
-public class ConvertToGrey implements ImageOperation, java.io.Serializable {
+public class ConvertToGrey implements PointOperation, java.io.Serializable {
+
+    private static final long serialVersionUID = -6551968746842527704L;
 
     /**
      * <p>
      * Create a new CovertToGrey operation.
      * </p>
      */
-    ConvertToGrey() {
+    public ConvertToGrey() {
 
     }
 
@@ -41,29 +43,32 @@ public class ConvertToGrey implements ImageOperation, java.io.Serializable {
      * weighted average that reflects the human visual system's sensitivity 
      * to different wavelengths -- we are most sensitive to green light and 
      * least to blue.
+     * The input image is not changed.
      * </p>
      * 
      * @param input The image to be converted to greyscale
      * @return The resulting greyscale image.
      */
     public BufferedImage apply(BufferedImage input) {
-  
-        for (int y = 0; y < input.getHeight(); ++y) {
-            for (int x = 0; x < input.getWidth(); ++x) {
-                int argb = input.getRGB(x, y);
-                int a = (argb & 0xFF000000) >> 24;
-                int r = (argb & 0x00FF0000) >> 16;
-                int g = (argb & 0x0000FF00) >> 8;
-                int b = (argb & 0x000000FF);
+        return TileScheduler.apply(this, input);
+    }
+
+    /**
+     * <p>
+     * Convert one pixel to greyscale, keeping its alpha.
+     * </p>
+     * 
+     * @param argb The input pixel.
+     * @return The grey pixel.
+     */
+    public int filterPixel(int argb) {
+        int r = (argb & 0x00FF0000) >> 16;
+        int g = (argb & 0x0000FF00) >> 8;
+        int b = (argb & 0x000000FF);
 
-                int grey = (int) Math.round(0.3*r + 0.6*g + 0.1*b);
+        int grey = (int) Math.round(0.3*r + 0.6*g + 0.1*b);
 
-                argb = (a << 24) | (grey << 16) | (grey << 8) | grey;
-                input.setRGB(x, y, argb);
-            }
-        }
-        
-        return input;
+        return (argb & 0xFF000000) | (grey << 16) | (grey << 8) | grey;
     }
     
 }
@@ -1,199 +1,541 @@
 package cosc202.andie;
 
-import java.awt.Color;
 import java.awt.image.*;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>
  * A custom implementation of image convolution.
  * </p>
- * 
+ *
  * <p>
  * Convolve is similar to the java ConvolveOp class except the edges of an
  * image are handled differently.
  * If a pixel to sample is outside of the image then the nearest pixel is used.
  * </p>
- * 
+ *
+ * <p>
+ * The convolution works on packed ARGB arrays rather than calling getRGB for
+ * every kernel tap.
+ * The source image is copied once into an array with a border as wide as the
+ * kernel, and that border is filled in before the convolution starts, so the
+ * inner loop never has to check whether a sample is inside the image.
+ * The kernel is read once into a list of offsets and weights, and the taps are
+ * still visited in the same order (column by column) so the floating point sums
+ * come out exactly as they did before.
+ * </p>
+ *
+ * <p>
+ * Kernels that are separable, such as the Gaussian and mean kernels, can also
+ * be given as a row kernel and a column kernel.
+ * These are applied as a horizontal pass followed by a vertical pass, which
+ * costs 2n multiplications per pixel instead of n * n.
+ * A box (mean) kernel is cheaper again: it is done with running sums, so the
+ * cost per pixel does not depend on the radius at all.
+ * </p>
+ *
+ * <p>
+ * Every convolution is split into bands of rows that run in parallel on the
+ * {@link TileScheduler}.
+ * The row methods are package-private so that {@link TiledImageOperation}s
+ * can call them on their own bands.
+ * </p>
+ *
  * @author Shyamalima Shreya Das.
  */
 public class Convolve {
 
     private static final int OFFSET = 127;
-    private static Kernel kernel;
-    private static Boolean applyOffset;
-    private static BufferedImage input;
+
+    /** The number of output rows a separable convolution works on at a time. */
+    private static final int BAND_HEIGHT = 64;
+
+    private Convolve() {
+    }
 
     /**
      * <p>
-     * Constructs a new convolve object.
+     * Copy an image into a packed ARGB array with a border around it.
      * </p>
-     * 
-     * @param k     The kernel to be used in the convolution.
-     * @param input The image to be used in the convolution.
+     *
+     * <p>
+     * If nearest is true, the border is filled with the nearest edge pixel of the
+     * image, otherwise it is left as zero.
+     * </p>
+     *
+     * @param input   The image to copy.
+     * @param left    The width of the border on the left.
+     * @param top     The height of the border on the top.
+     * @param right   The width of the border on the right.
+     * @param bottom  The height of the border on the bottom.
+     * @param nearest If true, the border repeats the edge pixels.
+     * @return The padded pixels, (left + width + right) pixels per row.
      */
-    public Convolve(Kernel k, BufferedImage input) {
-        this.kernel = k;
-        this.applyOffset = false;
-        this.input = input;
+    static int[] pad(BufferedImage input, int left, int top, int right, int bottom, boolean nearest) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int paddedWidth = left + width + right;
+        int[] padded = new int[paddedWidth * (top + height + bottom)];
+        Pixels.read(input, 0, 0, width, height, padded, top * paddedWidth + left, paddedWidth);
+        if (nearest) {
+            for (int y = top; y < top + height; y++) {
+                int row = y * paddedWidth;
+                Arrays.fill(padded, row, row + left, padded[row + left]);
+                Arrays.fill(padded, row + left + width, row + paddedWidth, padded[row + left + width - 1]);
+            }
+            for (int y = 0; y < top; y++) {
+                System.arraycopy(padded, top * paddedWidth, padded, y * paddedWidth, paddedWidth);
+            }
+            for (int y = top + height; y < top + height + bottom; y++) {
+                System.arraycopy(padded, (top + height - 1) * paddedWidth, padded, y * paddedWidth, paddedWidth);
+            }
+        }
+        return padded;
     }
 
     /**
      * <p>
-     * Constructs a new convolve object with offset enabled.
+     * Copy a strip of rows of an image into a packed ARGB array with a border
+     * around it.
      * </p>
-     * 
-     * @param k           The kernel to be used in the convolution.
-     * @param applyOffset if true, an offset is applied to the convolution so that
-     *                    negative results are now shifted to zero.
+     *
+     * <p>
+     * This gives rows y0 - halo up to y1 + halo of what
+     * {@link #pad(BufferedImage, int, int, int, int, boolean)} would give with a
+     * border of halo on every side, without reading the rest of the image.
+     * </p>
+     *
+     * @param input   The image to copy.
+     * @param y0      The first row of the strip.
+     * @param y1      One past the last row of the strip.
+     * @param halo    The width of the border on every side.
+     * @param nearest If true, the border repeats the edge pixels.
+     * @return The padded pixels, (halo + width + halo) pixels per row.
      */
-    public Convolve(Kernel k, Boolean applyOffset) {
-        kernel = k;
-        this.applyOffset = applyOffset;
+    static int[] pad(BufferedImage input, int y0, int y1, int halo, boolean nearest) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int paddedWidth = width + 2 * halo;
+        int rows = y1 - y0 + 2 * halo;
+        int[] padded = new int[paddedWidth * rows];
+        for (int r = 0; r < rows; r++) {
+            int y = y0 - halo + r;
+            if (nearest) {
+                y = Math.max(0, Math.min(height - 1, y));
+            } else if (y < 0 || y >= height) {
+                continue;
+            }
+            int row = r * paddedWidth;
+            Pixels.read(input, 0, y, width, 1, padded, row + halo, paddedWidth);
+            if (nearest) {
+                Arrays.fill(padded, row, row + halo, padded[row + halo]);
+                Arrays.fill(padded, row + halo + width, row + paddedWidth, padded[row + halo + width - 1]);
+            }
+        }
+        return padded;
     }
 
     /**
      * <p>
-     * Splits a color into different channels.
+     * A kernel flattened into offsets and weights for a padded array.
      * </p>
-     * 
+     *
      * <p>
-     * An integer color value is split into its different color channels and then
-     * each channel is placed into an array.
+     * Taps with a weight of zero are left out, since adding zero never changes
+     * the sum.
      * </p>
-     * 
-     * @param local The color value to be split.
-     * @return An array of color channels.
      */
-    private static int[] extractColors(int local) {
-        int[] colors = { (local & 0xFF000000) >>> 24,
-                (local & 0x00FF0000) >>> 16, (local & 0x0000FF00) >>> 8, (local & 0x000000FF) };
-        return colors;
+    static class Taps {
+        /** Offset of each tap from the top left of the kernel in the padded array. */
+        final int[] offsets;
+        /** Weight of each tap. */
+        final float[] weights;
+        /** The row width of the padded array the offsets are for. */
+        final int paddedWidth;
+
+        /**
+         * <p>
+         * Flatten a kernel for a padded array with the given row width.
+         * </p>
+         *
+         * @param kernel      The kernel to flatten.
+         * @param paddedWidth The number of pixels per row of the padded array.
+         */
+        Taps(Kernel kernel, int paddedWidth) {
+            this.paddedWidth = paddedWidth;
+            int kw = kernel.getWidth();
+            int kh = kernel.getHeight();
+            float[] data = kernel.getKernelData(null);
+            int count = 0;
+            for (float k : data) {
+                if (k != 0.0f) {
+                    count++;
+                }
+            }
+            offsets = new int[count];
+            weights = new float[count];
+            int t = 0;
+            for (int kx = 0; kx < kw; kx++) {
+                for (int ky = 0; ky < kh; ky++) {
+                    float k = data[ky * kw + kx];
+                    if (k != 0.0f) {
+                        offsets[t] = ky * paddedWidth + kx;
+                        weights[t] = k;
+                        t++;
+                    }
+                }
+            }
+        }
     }
 
+    /** The taps last made for each kernel, by {@link #taps}. */
+    private static final Map<Kernel, Taps> RECENT_TAPS = new ConcurrentHashMap<Kernel, Taps>();
+
     /**
      * <p>
-     * Combines color channels into one value.
+     * Get the taps of a kernel for a padded array, made once and shared.
      * </p>
-     * 
+     *
      * <p>
-     * Each color is recombined back into one integer value. If the color is outside
-     * the region 0-255
-     * it is then clipped.
+     * Filters with a fixed kernel convolve every band of an image with the same
+     * taps, so the taps for the most recent width are kept for each kernel
+     * rather than made again for every band.
+     * Kernels are compared by identity, so this is meant for kernels held in
+     * constants.
      * </p>
-     * 
-     * @param colors The array of color channels to be recombined.
-     * @return The one int value describing all of the color channels.
+     *
+     * @param kernel      The kernel to flatten.
+     * @param paddedWidth The number of pixels per row of the padded array.
+     * @return The taps, which must not be changed.
      */
-    private static int combineColors(int[] colors) {
-        int finalColor = 0;
-        for (int i = 0; i < colors.length; i++) {
-            finalColor = finalColor << 8;
-            // If there is an offset then add it to colors[i] here.
-            if (applyOffset) {
-                colors[i] += OFFSET; // Offset applied.
+    static Taps taps(Kernel kernel, int paddedWidth) {
+        Taps taps = RECENT_TAPS.get(kernel);
+        if (taps == null || taps.paddedWidth != paddedWidth) {
+            taps = new Taps(kernel, paddedWidth);
+            RECENT_TAPS.put(kernel, taps);
+        }
+        return taps;
+    }
+
+    /**
+     * <p>
+     * Convolve a band of rows from a padded array.
+     * </p>
+     *
+     * <p>
+     * Output pixel (x, y) is the weighted sum of the padded pixels covered by the
+     * kernel when its top left corner is at (x, y) in the padded array.
+     * Each channel is rounded, shifted by the offset if applyOffset is true, and
+     * clipped to 0-255.
+     * If alpha is false the alpha channel is not convolved and every output pixel
+     * is opaque.
+     * </p>
+     *
+     * @param padded      The padded source pixels.
+     * @param paddedWidth The number of pixels per row of padded.
+     * @param taps        The kernel taps for padded.
+     * @param output      The array to write output pixels to, width per row.
+     * @param width       The width of the output.
+     * @param y0          The first output row to compute.
+     * @param y1          One past the last output row to compute.
+     * @param alpha       If true, the alpha channel is convolved too.
+     * @param applyOffset If true, OFFSET is added to each channel.
+     */
+    static void convolveRows(int[] padded, int paddedWidth, Taps taps, int[] output, int width,
+            int y0, int y1, boolean alpha, boolean applyOffset) {
+        int[] offsets = taps.offsets;
+        float[] weights = taps.weights;
+        int count = offsets.length;
+        int offset = applyOffset ? OFFSET : 0;
+        for (int y = y0; y < y1; y++) {
+            int origin = y * paddedWidth;
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                int base = origin + x;
+                float a = 0.0f;
+                float r = 0.0f;
+                float g = 0.0f;
+                float b = 0.0f;
+                if (alpha) {
+                    for (int t = 0; t < count; t++) {
+                        int p = padded[base + offsets[t]];
+                        float k = weights[t];
+                        a += (p >>> 24) * k;
+                        r += ((p >> 16) & 0xFF) * k;
+                        g += ((p >> 8) & 0xFF) * k;
+                        b += (p & 0xFF) * k;
+                    }
+                } else {
+                    for (int t = 0; t < count; t++) {
+                        int p = padded[base + offsets[t]];
+                        float k = weights[t];
+                        r += ((p >> 16) & 0xFF) * k;
+                        g += ((p >> 8) & 0xFF) * k;
+                        b += (p & 0xFF) * k;
+                    }
+                }
+                int oa = alpha ? clip(Math.round(a) + offset) : 0xFF;
+                output[out + x] = (oa << 24) | (clip(Math.round(r) + offset) << 16)
+                        | (clip(Math.round(g) + offset) << 8) | clip(Math.round(b) + offset);
             }
-            if (colors[i] > 255) {
-                // Clipping to large values.
-                colors[i] = 255;
+        }
+    }
+
+    /**
+     * <p>
+     * Convolve a band of rows from a padded array with a separable kernel.
+     * </p>
+     *
+     * <p>
+     * This gives the same result as {@link #convolveRows} with the kernel whose
+     * weights are rowWeights[x] * columnWeights[y], apart from floating point
+     * rounding.
+     * Each padded row is first convolved with the row weights, and the results
+     * are then convolved down each column with the column weights.
+     * The intermediate sums are kept as floats so they are only rounded once.
+     * The work is done a few rows at a time to keep the intermediate arrays
+     * small.
+     * </p>
+     *
+     * @param padded        The padded source pixels.
+     * @param paddedWidth   The number of pixels per row of padded.
+     * @param rowWeights    The weights of the horizontal pass, left to right.
+     * @param columnWeights The weights of the vertical pass, top to bottom.
+     * @param output        The array to write output pixels to, width per row.
+     * @param width         The width of the output.
+     * @param y0            The first output row to compute.
+     * @param y1            One past the last output row to compute.
+     * @param alpha         If true, the alpha channel is convolved too.
+     */
+    static void separableRows(int[] padded, int paddedWidth, float[] rowWeights, float[] columnWeights,
+            int[] output, int width, int y0, int y1, boolean alpha) {
+        int kw = rowWeights.length;
+        int kh = columnWeights.length;
+        int channels = alpha ? 4 : 3;
+        int maxRows = Math.min(BAND_HEIGHT, y1 - y0) + kh - 1;
+        // Channel planes in the order red, green, blue, alpha.
+        float[][] line = new float[channels][paddedWidth];
+        float[][] across = new float[channels][maxRows * width];
+        float[][] sums = new float[channels][width];
+
+        for (int band = y0; band < y1; band += BAND_HEIGHT) {
+            int bandEnd = Math.min(band + BAND_HEIGHT, y1);
+            int rows = bandEnd - band + kh - 1;
+
+            // Horizontal pass over every padded row the band needs.
+            for (int i = 0; i < rows; i++) {
+                int src = (band + i) * paddedWidth;
+                for (int x = 0; x < paddedWidth; x++) {
+                    int p = padded[src + x];
+                    line[0][x] = (p >> 16) & 0xFF;
+                    line[1][x] = (p >> 8) & 0xFF;
+                    line[2][x] = p & 0xFF;
+                    if (alpha) {
+                        line[3][x] = p >>> 24;
+                    }
+                }
+                int o = i * width;
+                for (int c = 0; c < channels; c++) {
+                    float[] in = line[c];
+                    float[] out = across[c];
+                    Arrays.fill(out, o, o + width, 0.0f);
+                    for (int t = 0; t < kw; t++) {
+                        float k = rowWeights[t];
+                        for (int x = 0; x < width; x++) {
+                            out[o + x] += in[x + t] * k;
+                        }
+                    }
+                }
             }
-            if (colors[i] < 0) {
-                // Clipping to small values.
-                colors[i] = 0;
+
+            // Vertical pass down each column of the horizontal results.
+            for (int y = band; y < bandEnd; y++) {
+                for (int c = 0; c < channels; c++) {
+                    float[] in = across[c];
+                    float[] sum = sums[c];
+                    Arrays.fill(sum, 0.0f);
+                    for (int t = 0; t < kh; t++) {
+                        float k = columnWeights[t];
+                        int o = (y - band + t) * width;
+                        for (int x = 0; x < width; x++) {
+                            sum[x] += in[o + x] * k;
+                        }
+                    }
+                }
+                int out = y * width;
+                for (int x = 0; x < width; x++) {
+                    int oa = alpha ? clip(Math.round(sums[3][x])) : 0xFF;
+                    output[out + x] = (oa << 24) | (clip(Math.round(sums[0][x])) << 16)
+                            | (clip(Math.round(sums[1][x])) << 8) | clip(Math.round(sums[2][x]));
+                }
             }
-            finalColor = finalColor | colors[i];
         }
-        return finalColor;
     }
 
     /**
      * <p>
-     * Converts a int array to float array.
+     * Sum each channel over a horizontal window at every pixel of a padded row.
+     * </p>
+     *
+     * <p>
+     * The window for output pixel x covers padded pixels x to x + 2 * radius.
+     * The sum is kept as a running total, adding the pixel entering the window
+     * and removing the one leaving it, so the cost does not depend on the
+     * radius.
      * </p>
-     * 
-     * @param in The array to be converted.
-     * @return The converted array.
+     *
+     * @param padded The padded source pixels.
+     * @param row    The index in padded of the first pixel of the row.
+     * @param width  The number of output pixels in the row.
+     * @param radius The radius of the window.
+     * @param sums   The arrays to write the alpha, red, green and blue sums to.
      */
-    private static float[] intsToFloats(int[] in) {
-        float[] out = new float[in.length];
-        for (int i = 0; i < in.length; i++) {
-            out[i] = in[i];
+    private static void boxRow(int[] padded, int row, int width, int radius, int[][] sums) {
+        int side = 2 * radius + 1;
+        int a = 0;
+        int r = 0;
+        int g = 0;
+        int b = 0;
+        for (int k = 0; k < side; k++) {
+            int p = padded[row + k];
+            a += p >>> 24;
+            r += (p >> 16) & 0xFF;
+            g += (p >> 8) & 0xFF;
+            b += p & 0xFF;
+        }
+        int[] sa = sums[0];
+        int[] sr = sums[1];
+        int[] sg = sums[2];
+        int[] sb = sums[3];
+        for (int x = 0; x < width; x++) {
+            sa[x] = a;
+            sr[x] = r;
+            sg[x] = g;
+            sb[x] = b;
+            if (x + 1 < width) {
+                int in = padded[row + x + side];
+                int out = padded[row + x];
+                a += (in >>> 24) - (out >>> 24);
+                r += ((in >> 16) & 0xFF) - ((out >> 16) & 0xFF);
+                g += ((in >> 8) & 0xFF) - ((out >> 8) & 0xFF);
+                b += (in & 0xFF) - (out & 0xFF);
+            }
         }
-        return out;
     }
 
     /**
      * <p>
-     * Converts a float array to int array.
+     * Apply a box (mean) filter to a band of rows from a padded array.
      * </p>
-     * 
-     * @param in The array to be converted.
-     * @return The converted array.
+     *
+     * <p>
+     * Each output pixel is the mean of the (2 * radius + 1) squared pixels around
+     * it, where the padded array has a border of radius pixels on every side.
+     * The horizontal sums of the rows in the window are added into a running
+     * total for each column; as the window moves down one row, the sums for the
+     * row entering are added and those for the row leaving are removed.
+     * Sums are exact integers, and the mean is rounded to the nearest value.
+     * </p>
+     *
+     * @param padded      The padded source pixels.
+     * @param paddedWidth The number of pixels per row of padded.
+     * @param radius      The radius of the box.
+     * @param output      The array to write output pixels to, width per row.
+     * @param width       The width of the output.
+     * @param y0          The first output row to compute.
+     * @param y1          One past the last output row to compute.
      */
-    private static int[] floatsToInts(float[] in) {
-        int[] out = new int[in.length];
-        for (int i = 0; i < in.length; i++) {
-            out[i] = (int) Math.round(in[i]);
+    static void boxRows(int[] padded, int paddedWidth, int radius, int[] output, int width, int y0, int y1) {
+        int side = 2 * radius + 1;
+        int area = side * side;
+        int half = area / 2;
+        int[][] columns = new int[4][width];
+        int[][] entering = new int[4][width];
+        int[][] leaving = new int[4][width];
+
+        for (int k = y0; k < y0 + side; k++) {
+            boxRow(padded, k * paddedWidth, width, radius, entering);
+            for (int c = 0; c < 4; c++) {
+                for (int x = 0; x < width; x++) {
+                    columns[c][x] += entering[c][x];
+                }
+            }
         }
-        return out;
+
+        for (int y = y0; y < y1; y++) {
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                output[out + x] = ((columns[0][x] + half) / area << 24)
+                        | ((columns[1][x] + half) / area << 16)
+                        | ((columns[2][x] + half) / area << 8)
+                        | ((columns[3][x] + half) / area);
+            }
+            if (y + 1 < y1) {
+                boxRow(padded, (y + side) * paddedWidth, width, radius, entering);
+                boxRow(padded, y * paddedWidth, width, radius, leaving);
+                for (int c = 0; c < 4; c++) {
+                    int[] column = columns[c];
+                    int[] in = entering[c];
+                    int[] gone = leaving[c];
+                    for (int x = 0; x < width; x++) {
+                        column[x] += in[x] - gone[x];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Clip a colour channel to the range 0-255.
+     * </p>
+     *
+     * @param c The channel value.
+     * @return The clipped value.
+     */
+    private static int clip(int c) {
+        return c < 0 ? 0 : (c > 255 ? 255 : c);
     }
 
     /**
      * <p>
      * Applies a convolution filter to an image.
      * </p>
-     * 
+     *
      * <p>
      * The input image is used as the source for the convolution and the result of
      * the convolution
      * is put in the output image. If pixels are sampled that are outside of the
      * bounds of the image then the nearest
      * pixels are used instead.
+     * All four channels, including alpha, are convolved.
      * </p>
-     * 
+     *
      * @param input       The source image of the convolution.
      * @param kernel2     The kernel to be used in the convolution.
      * @param applyOffset If true, an offset is applied to the convolution so that
-     * @return The output image.
+     *                    negative results are now shifted to zero.
+     * @return The output image, with the same colour model as the input.
      */
     public static BufferedImage filter(BufferedImage input, Kernel kernel2, Boolean applyOffset) {
-        Convolve.applyOffset = applyOffset;
-        BufferedImage output = new BufferedImage(input.getColorModel(), input.copyData(null),
-                input.isAlphaPremultiplied(), null);
-        // applyOffset = false;
-        for (int x = 0; x < input.getWidth(); x++) {
-            for (int y = 0; y < input.getHeight(); y++) {
-                float[] oColors = { 0.0f, 0.0f, 0.0f, 0.0f };
-                for (int kx = 0; kx < kernel2.getWidth(); kx++) {
-                    for (int ky = 0; ky < kernel2.getHeight(); ky++) {
-                        int sampleX = x - kernel2.getXOrigin() + kx;
-                        int sampleY = y - kernel2.getYOrigin() + ky;
-                        if (sampleX < 0) {
-                            sampleX = 0;
-                        }
-                        if (sampleY < 0) {
-                            sampleY = 0;
-                        }
-                        if (sampleX >= input.getWidth()) {
-                            sampleX = input.getWidth() - 1;
-                        }
-                        if (sampleY >= input.getHeight()) {
-                            sampleY = input.getHeight() - 1;
-                        }
-                        float colors[] = intsToFloats(extractColors(input.getRGB(sampleX, sampleY)));
-                        // Add kernel products to origin.
-                        float kData[] = kernel2.getKernelData(null);
-                        for (int i = 0; i < 4; i++) {
-                            // For each color (a, r, g ,b)
-                            oColors[i] += colors[i] * kData[ky * kernel2.getWidth() + kx];
-                        }
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int left = kernel2.getXOrigin();
+        int top = kernel2.getYOrigin();
+        int right = kernel2.getWidth() - 1 - left;
+        int bottom = kernel2.getHeight() - 1 - top;
 
-                    }
-                }
-                // Restore the modified origin colors to the original origin colors.
+        int[] padded = pad(input, left, top, right, bottom, true);
+        int paddedWidth = left + width + right;
+        Taps taps = new Taps(kernel2, paddedWidth);
+        int[] pixels = new int[width * height];
+        TileScheduler.forEachBand(height, 1, (y0, y1) -> convolveRows(padded, paddedWidth, taps, pixels, width,
+                y0, y1, true, applyOffset));
 
-                output.setRGB(x, y, combineColors(floatsToInts(oColors)));
-            }
-        }
+        BufferedImage output = Pixels.createCompatible(input, width, height);
+        Pixels.write(output, pixels);
         return output;
     }
 
@@ -202,16 +544,12 @@ public class Convolve {
      * Applies a convolution filter to an image that does not alter colors. This is
      * more efficient than the other and more accurate as well.
      * </p>
-     * 
+     *
      * <p>
-     * The convolution is performed by iterating over each pixel in the image and
-     * computing the weighted sum of pixel values using the kernel.
-     * The inner loops iterate over the kernel and access the corresponding pixel
-     * values in the input image.
-     * The resulting weighted sums are then used to calculate the new pixel values
-     * for the output image.
+     * Samples outside the image count as black, and the alpha channel is ignored.
+     * The result is always an opaque TYPE_INT_RGB image.
      * </p>
-     * 
+     *
      * @param image  The buffered image source image of the convolution.
      * @param kernel The kernel to be used in the convolution.
      * @return The output image.
@@ -219,50 +557,130 @@ public class Convolve {
     public static BufferedImage convolve(BufferedImage image, Kernel kernel) {
         int width = image.getWidth();
         int height = image.getHeight();
+        int left = kernel.getWidth() / 2;
+        int top = kernel.getHeight() / 2;
+        int right = kernel.getWidth() - 1 - left;
+        int bottom = kernel.getHeight() - 1 - top;
+
+        int[] padded = pad(image, left, top, right, bottom, false);
+        int paddedWidth = left + width + right;
+        Taps taps = new Taps(kernel, paddedWidth);
+        int[] pixels = new int[width * height];
+        TileScheduler.forEachBand(height, 1, (y0, y1) -> convolveRows(padded, paddedWidth, taps, pixels, width,
+                y0, y1, false, false));
 
         BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Pixels.write(output, pixels);
+        return output;
+    }
+
+    /**
+     * <p>
+     * Applies a separable convolution filter to an image.
+     * </p>
+     *
+     * <p>
+     * This is the same as {@link #filter(BufferedImage, Kernel, Boolean)} without
+     * an offset, using the kernel whose weights are the products of the row and
+     * column kernels, but the cost per pixel grows with the kernel width rather
+     * than its area.
+     * Pixels sampled outside the image use the nearest pixel instead.
+     * </p>
+     *
+     * @param input  The source image of the convolution.
+     * @param row    The horizontal kernel, one pixel high.
+     * @param column The vertical kernel, one pixel wide.
+     * @return The output image, with the same colour model as the input.
+     */
+    public static BufferedImage filter(BufferedImage input, Kernel row, Kernel column) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int left = row.getXOrigin();
+        int top = column.getYOrigin();
+        int right = row.getWidth() - 1 - left;
+        int bottom = column.getHeight() - 1 - top;
 
-        int kernelWidth = kernel.getWidth();
-        int kernelHeight = kernel.getHeight();
-        int kernelRadiusX = kernelWidth / 2;
-        int kernelRadiusY = kernelHeight / 2;
+        int[] padded = pad(input, left, top, right, bottom, true);
+        int paddedWidth = left + width + right;
+        float[] rowWeights = row.getKernelData(null);
+        float[] columnWeights = column.getKernelData(null);
+        int[] pixels = new int[width * height];
+        TileScheduler.forEachBand(height, columnWeights.length, (y0, y1) -> separableRows(padded, paddedWidth,
+                rowWeights, columnWeights, pixels, width, y0, y1, true));
 
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                float redSum = 0.0f;
-                float greenSum = 0.0f;
-                float blueSum = 0.0f;
-
-                for (int i = 0; i < kernelWidth; i++) {
-                    for (int j = 0; j < kernelHeight; j++) {
-                        int pixelX = x + i - kernelRadiusX;
-                        int pixelY = y + j - kernelRadiusY;
-
-                        if (pixelX >= 0 && pixelX < width && pixelY >= 0 && pixelY < height) {
-                            Color color = new Color(image.getRGB(pixelX, pixelY));
-                            float kernelValue = kernel.getKernelData(null)[j * kernelWidth + i];
-
-                            redSum += kernelValue * color.getRed();
-                            greenSum += kernelValue * color.getGreen();
-                            blueSum += kernelValue * color.getBlue();
-                        }
-                    }
-                }
+        BufferedImage output = Pixels.createCompatible(input, width, height);
+        Pixels.write(output, pixels);
+        return output;
+    }
 
-                int red = Math.round(redSum);
-                int green = Math.round(greenSum);
-                int blue = Math.round(blueSum);
+    /**
+     * <p>
+     * Applies a separable convolution filter to an image that does not alter
+     * colors.
+     * </p>
+     *
+     * <p>
+     * This is the same as {@link #convolve(BufferedImage, Kernel)} using the
+     * kernel whose weights are the products of the row and column kernels, but
+     * the cost per pixel grows with the kernel width rather than its area.
+     * Samples outside the image count as black, and the result is always an
+     * opaque TYPE_INT_RGB image.
+     * </p>
+     *
+     * @param image  The buffered image source image of the convolution.
+     * @param row    The horizontal kernel, one pixel high.
+     * @param column The vertical kernel, one pixel wide.
+     * @return The output image.
+     */
+    public static BufferedImage convolve(BufferedImage image, Kernel row, Kernel column) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int left = row.getWidth() / 2;
+        int top = column.getHeight() / 2;
+        int right = row.getWidth() - 1 - left;
+        int bottom = column.getHeight() - 1 - top;
 
-                red = Math.min(Math.max(red, 0), 255);
-                green = Math.min(Math.max(green, 0), 255);
-                blue = Math.min(Math.max(blue, 0), 255);
+        int[] padded = pad(image, left, top, right, bottom, false);
+        int paddedWidth = left + width + right;
+        float[] rowWeights = row.getKernelData(null);
+        float[] columnWeights = column.getKernelData(null);
+        int[] pixels = new int[width * height];
+        TileScheduler.forEachBand(height, columnWeights.length, (y0, y1) -> separableRows(padded, paddedWidth,
+                rowWeights, columnWeights, pixels, width, y0, y1, false));
 
-                int rgb = new Color(red, green, blue).getRGB();
-                output.setRGB(x, y, rgb);
-            }
-        }
+        BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Pixels.write(output, pixels);
+        return output;
+    }
+
+    /**
+     * <p>
+     * Applies a box (mean) filter to an image.
+     * </p>
+     *
+     * <p>
+     * This gives the same result as {@link #filter(BufferedImage, Kernel, Boolean)}
+     * with a (2 * radius + 1) square kernel of equal weights, to within rounding,
+     * but takes the same time per pixel for any radius.
+     * Pixels sampled outside the image use the nearest pixel instead.
+     * </p>
+     *
+     * @param input  The source image of the filter.
+     * @param radius The radius of the box.
+     * @return The output image, with the same colour model as the input.
+     */
+    public static BufferedImage boxFilter(BufferedImage input, int radius) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int[] padded = pad(input, radius, radius, radius, radius, true);
+        int paddedWidth = width + 2 * radius;
+        int[] pixels = new int[width * height];
+        TileScheduler.forEachBand(height, 2 * radius + 1, (y0, y1) -> boxRows(padded, paddedWidth, radius,
+                pixels, width, y0, y1));
 
+        BufferedImage output = Pixels.createCompatible(input, width, height);
+        Pixels.write(output, pixels);
         return output;
     }
 
-}
\ No newline at end of file
+}
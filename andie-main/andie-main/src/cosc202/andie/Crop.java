@@ -1,6 +1,5 @@
 package cosc202.andie;
 
-import java.awt.image.BufferedImage;
 import java.awt.Rectangle;
 
 /**
@@ -9,20 +8,29 @@ import java.awt.Rectangle;
  * </p>
  *
  * <p>
- * This class implements {@link ImageOperation} and defines the behavior of
+ * This class implements {@link GeometricOperation} and defines the behavior of
  * cropping a BufferedImage.
  * </p>
+ *
+ * <p>
+ * The cropped image is a view of the selected area of the input, sharing its
+ * pixels, so cropping even a very large image takes no time or memory.
+ * Operations that would draw on the view copy it first; see
+ * {@link Pixels#unshared}.
+ * </p>
  * 
  *
  * @author Hayden Trow
  */
-public class Crop implements ImageOperation {
+public class Crop implements GeometricOperation, java.io.Serializable {
 
     /**
      * The selected area to be cropped from the image.
      */
     private Rectangle selection;
 
+    private static final long serialVersionUID = -4827678515472242733L;
+
     /**
      * Constructs a new CropOperation with the specified selection.
      *
@@ -33,24 +41,26 @@ public class Crop implements ImageOperation {
     }
 
     /**
-     * Applies the crop operation to the specified image.
-     * It returns a new image that is a cropped version of the input image.
+     * Returns the area this operation crops to.
      *
-     * @param input The image to be cropped.
-     * @return The cropped image.
+     * @return A copy of the selected area.
      */
-    @Override
-    public BufferedImage apply(BufferedImage input) {
-        int type = input.getType();
-        BufferedImage croppedImage = new BufferedImage(selection.width, selection.height, type);
-
-        for (int x = 0; x < selection.width; x++) {
-            for (int y = 0; y < selection.height; y++) {
-                int rgb = input.getRGB(selection.x + x, selection.y + y);
-                croppedImage.setRGB(x, y, rgb);
-            }
-        }
+    public Rectangle getSelection() {
+        return new Rectangle(selection);
+    }
 
-        return croppedImage;
+    /**
+     * Returns the remap that keeps the selected area of an image.
+     * Any part of the selection outside the image is left out.
+     *
+     * @param width  The width of the image to be cropped.
+     * @param height The height of the image to be cropped.
+     * @return The remap.
+     * @throws IllegalArgumentException If the selection is entirely outside
+     *                                  the image.
+     */
+    @Override
+    public Remap getRemap(int width, int height) {
+        return Remap.crop(width, height, selection);
     }
 }
\ No newline at end of file
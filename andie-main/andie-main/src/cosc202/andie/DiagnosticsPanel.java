@@ -0,0 +1,171 @@
+package cosc202.andie;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * <p>
+ * A panel showing how long each kind of operation has taken.
+ * </p>
+ *
+ * <p>
+ * The table has a row for each kind of {@link ImageOperation} applied so far,
+ * from {@link OperationStats}: how many times it ran, its mean and longest
+ * time, the CPU time and memory it used, including the tiles run in other
+ * threads, and its speed in megapixels per second.
+ * Below it is a summary of the undo checkpoints.
+ * The panel updates itself every second while it is showing.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see OperationStats
+ * @version 1.0
+ */
+public class DiagnosticsPanel extends JPanel {
+
+    private static final long serialVersionUID = -112848707302990512L;
+
+    /** How often the panel updates, in milliseconds. */
+    private static final int UPDATE_INTERVAL = 1000;
+
+    /** The rows of the table. */
+    private final SummaryModel model = new SummaryModel();
+
+    /** The summary of the undo checkpoints. */
+    private final JLabel checkpoints = new JLabel(" ");
+
+    /** The image whose checkpoints are shown. */
+    private final EditableImage image;
+
+    /**
+     * <p>
+     * Create a diagnostics panel.
+     * </p>
+     *
+     * @param image The image whose checkpoints are shown.
+     */
+    public DiagnosticsPanel(EditableImage image) {
+        super(new BorderLayout(8, 8));
+        this.image = image;
+        setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JButton reset = new JButton(Andie.bundle.getString("diagnostics_reset"));
+        reset.addActionListener(e -> {
+            OperationStats.get().reset();
+            update();
+        });
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.add(checkpoints, BorderLayout.CENTER);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        buttons.add(reset);
+        bottom.add(buttons, BorderLayout.EAST);
+        add(bottom, BorderLayout.SOUTH);
+
+        Timer timer = new Timer(UPDATE_INTERVAL, e -> update());
+        addHierarchyListener(e -> {
+            if (isShowing()) {
+                update();
+                timer.start();
+            } else {
+                timer.stop();
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Show the latest measurements.
+     * </p>
+     */
+    private void update() {
+        model.setRows(OperationStats.get().getSummaries());
+        checkpoints.setText(Andie.bundle.getString("diagnostics_checkpoints") + " "
+                + image.getCheckpoints());
+    }
+
+    /**
+     * <p>
+     * The table of operation totals.
+     * </p>
+     */
+    private static class SummaryModel extends AbstractTableModel {
+
+        private static final long serialVersionUID = -7328862851996906463L;
+
+        /** The keys of the column names in the message bundle. */
+        private static final String[] COLUMNS = { "diagnostics_operation", "diagnostics_runs", "diagnostics_mean",
+                "diagnostics_max", "diagnostics_cpu", "diagnostics_allocated", "diagnostics_rate" };
+
+        /** The totals shown, one per row. */
+        private List<OperationStats.Summary> rows = new ArrayList<OperationStats.Summary>();
+
+        void setRows(List<OperationStats.Summary> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return Andie.bundle.getString(COLUMNS[column]);
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+                case 0:
+                    return String.class;
+                case 1:
+                    return Long.class;
+                default:
+                    return Double.class;
+            }
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            OperationStats.Summary summary = rows.get(row);
+            switch (column) {
+                case 0:
+                    return summary.getName();
+                case 1:
+                    return summary.getCount();
+                case 2:
+                    return round(summary.getMeanMillis());
+                case 3:
+                    return round(summary.getMaxMillis());
+                case 4:
+                    return round(summary.getTotalCpuMillis());
+                case 5:
+                    return round(summary.getTotalAllocatedBytes() / (1024.0 * 1024.0));
+                default:
+                    return round(summary.getMegapixelsPerSecond());
+            }
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 10) / 10.0;
+        }
+    }
+}
@@ -3,11 +3,12 @@ package cosc202.andie;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 
-public class Draw implements ImageOperation, java.io.Serializable {
-    private ImagePanel imagePanel;
+public class Draw implements ImageOperation {
     private String shape;
     private String color;
-    private double scale;
+    private Rectangle selection; // Selection rectangle, in image coordinates.
+    private Point startPoint; // Start cursor position, in image coordinates.
+    private Point endPoint; // Final cursor position, in image coordinates.
 
     public Draw() {
     }
@@ -23,12 +24,60 @@ public class Draw implements ImageOperation, java.io.Serializable {
      */
 
     public Draw(ImagePanel imagePanel, String shape, String color) {
-        this.imagePanel = imagePanel;
+        double scale = imagePanel.getScale();
+        Rectangle selection = imagePanel.getSelection();
+        Point startPoint = imagePanel.getStartPoint();
+        Point endPoint = imagePanel.getEndPoint();
+        this.shape = shape;
+        this.color = color;
+        this.selection = new Rectangle((int) (selection.x / scale), (int) (selection.y / scale),
+                (int) (selection.width / scale), (int) (selection.height / scale));
+        this.startPoint = new Point((int) (startPoint.x / scale), (int) (startPoint.y / scale));
+        this.endPoint = new Point((int) (endPoint.x / scale), (int) (endPoint.y / scale));
+    }
+
+    /**
+     * <p>
+     * Constructor for a Draw operation whose geometry is already known, as when
+     * it is read from an operations file.
+     * 
+     * @param shape      string representation of the shape being drawn
+     * @param color      string representation of the color of the shape being drawn
+     * @param selection  the bounds of the shape, in image coordinates
+     * @param startPoint the start of a line, in image coordinates
+     * @param endPoint   the end of a line, in image coordinates
+     *                   <p>
+     */
+    public Draw(String shape, String color, Rectangle selection, Point startPoint, Point endPoint) {
         this.shape = shape;
         this.color = color;
-        this.scale = this.imagePanel.getScale();
+        this.selection = new Rectangle(selection);
+        this.startPoint = new Point(startPoint);
+        this.endPoint = new Point(endPoint);
     }
 
+    /**
+     * <p>
+     * Writes and reads Draw operations in operations files.
+     * </p>
+     */
+    static final OpsFormat.Codec<Draw> CODEC = new OpsFormat.Codec<Draw>() {
+        public void write(Draw op, OpsFormat.Output out) {
+            out.writeString(op.shape);
+            out.writeString(op.color);
+            out.writeRectangle(op.selection);
+            out.writeInt(op.startPoint.x);
+            out.writeInt(op.startPoint.y);
+            out.writeInt(op.endPoint.x);
+            out.writeInt(op.endPoint.y);
+        }
+
+        public Draw read(OpsFormat.Input in) throws java.io.IOException {
+            return new Draw(in.readString(), in.readString(), in.readRectangle(),
+                    new Point(in.readInt(), in.readInt()), new Point(in.readInt(), in.readInt()));
+        }
+    };
+
     /**
      * <p>
      * Draws a shape whos color and geometry is determined by the values of the
@@ -39,6 +88,7 @@ public class Draw implements ImageOperation, java.io.Serializable {
      */
     @Override
     public BufferedImage apply(BufferedImage input) {
+        input = Pixels.unshared(input);
         Graphics2D g2d = input.createGraphics();
         switch (color) {
             case "Red":
@@ -66,17 +116,14 @@ public class Draw implements ImageOperation, java.io.Serializable {
                 break;
         }
 
-        Rectangle selection = imagePanel.getSelection();
-        int x = (int) (selection.x / scale); // Scaled x coordinate of left corner of selection rectangle.
-        int y = (int) (selection.y / scale); // Sclaed y coordinate of top right corner of selection rectangle.
-        int w = (int) (selection.width / scale); // Scaled width of selection rectangle
-        int h = (int) (selection.height / scale); // Scaled height of selection rectangle
-        Point startPoint = imagePanel.getStartPoint();
-        int ox = (int) (startPoint.x / scale); // Scaled x coordinate of start cursor position
-        int oy = (int) (startPoint.y / scale); // Scaled y coordinate of start cursor position
-        Point endpoint = imagePanel.getEndPoint();
-        int fx = (int) (endpoint.x / scale); // Scaled x coordinate of final cursor position
-        int fy = (int) (endpoint.y / scale); // Scaled y coordinate of final cursor position
+        int x = selection.x; // x coordinate of left corner of selection rectangle.
+        int y = selection.y; // y coordinate of top left corner of selection rectangle.
+        int w = selection.width; // Width of selection rectangle
+        int h = selection.height; // Height of selection rectangle
+        int ox = startPoint.x; // x coordinate of start cursor position
+        int oy = startPoint.y; // y coordinate of start cursor position
+        int fx = endPoint.x; // x coordinate of final cursor position
+        int fy = endPoint.y; // y coordinate of final cursor position
 
         switch (shape) {
             case "Rectangle":
@@ -196,9 +196,14 @@ public class EditActions {
      */
     public void actionPerformed(ActionEvent e) {
       if (ImagePanel.image.hasImage()) {
-        target.getImage().undo();
-        target.repaint();
-        target.getParent().revalidate();
+        OperationRunner.submit(
+          target,
+          image -> {
+            if (!image.undo()) {
+              Andie.createErrorMessage(Andie.bundle.getString("undo_error"));
+            }
+          }
+        );
       } else {
         try {
           Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -251,9 +256,14 @@ public class EditActions {
      */
     public void actionPerformed(ActionEvent e) {
       if (ImagePanel.image.hasImage()) {
-        target.getImage().redo();
-        target.repaint();
-        target.getParent().revalidate();
+        OperationRunner.submit(
+          target,
+          image -> {
+            if (!image.redo()) {
+              Andie.createErrorMessage(Andie.bundle.getString("redo_error"));
+            }
+          }
+        );
       } else {
         try {
           Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -304,7 +314,7 @@ public class EditActions {
     /**
      * Executes the crop action. If a valid selection exists on the target
      * ImagePanel, it crops the image to the selected area. If no valid selection
-     * exists, it shows
+     * exists, or the selection lies entirely outside the image, it shows
      * an error message.
      *
      *
@@ -316,11 +326,18 @@ public class EditActions {
         ImagePanel target = getTarget();
         if (target != null) {
           Rectangle selection = target.getSelection();
+          Rectangle bounds = new Rectangle(
+            ImagePanel.image.getWidth(),
+            ImagePanel.image.getHeight()
+          );
           if (
-            selection != null && selection.width > 0 && selection.height > 0
+            selection != null &&
+            selection.width > 0 &&
+            selection.height > 0 &&
+            selection.intersects(bounds)
           ) {
             Crop cropOp = new Crop(selection);
-            target.getImage().apply(cropOp);
+            OperationRunner.apply(target, cropOp);
             target.setSelection(new Rectangle());
             target.repaint();
           } else {
@@ -395,9 +412,8 @@ public class EditActions {
             selection != null && selection.width > 0 && selection.height > 0
           ) {
             Draw drawOp = new Draw(target, shape, color);
-            target.getImage().apply(drawOp);
+            OperationRunner.apply(target, drawOp);
             target.setSelection(new Rectangle());
-            target.repaint();
           } else {
             try {
               Andie.createErrorMessage(
@@ -1,15 +1,12 @@
 package cosc202.andie;
 
-import java.awt.event.ActionListener;
 import java.awt.image.*;
 import java.io.*;
+import java.lang.ref.SoftReference;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import javax.imageio.*;
-import javax.swing.JFrame;
-import javax.swing.JMenu;
-import javax.swing.JMenuBar;
-import javax.swing.JMenuItem;
-import javax.swing.JOptionPane;
+import javax.imageio.stream.ImageInputStream;
 
 /**
  * <p>
@@ -36,6 +33,13 @@ import javax.swing.JOptionPane;
  * </p>
  *
  * <p>
+ * It is part of the engine, so it never shows anything to the user: failures
+ * are returned or thrown for the user interface to report.
+ * Operations from outside the engine must be
+ * {@link OpsFormat#register registered} before images with them are opened.
+ * </p>
+ *
+ * <p>
  * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
  * 4.0</a>
  * </p>
@@ -45,17 +49,44 @@ import javax.swing.JOptionPane;
  */
 public class EditableImage {
 
+  /** The longest side of the copy shown while a large image is being read. */
+  private static final int PREVIEW_SIZE = 2048;
+
+  /**
+   * Images with more pixels than this are shown subsampled while they are
+   * read; smaller ones are shown only by their thumbnail, if they have one.
+   */
+  private static final long QUICK_PIXELS = 16L << 20;
+
   /** The original image. This should never be altered by ANDIE. */
   private BufferedImage original;
   /**
    * The current image, the result of applying {@link ops} to {@link original}.
    */
-  private BufferedImage current;
+  private volatile BufferedImage current;
+  /**
+   * Counts changes to {@link current}, including operations like drawing that
+   * change it in place.
+   */
+  private volatile long version;
+  /**
+   * A low resolution copy of the image being opened, shown until
+   * {@link finishOpen} has read the full image, or null.
+   */
+  private volatile BufferedImage subsampled;
+  /** The full width of the image being opened. */
+  private volatile int openingWidth;
+  /** The full height of the image being opened. */
+  private volatile int openingHeight;
+  /** Counts images opened, so the full read of a file opened since is dropped. */
+  private long opened;
 
   /** The sequence of operations currently applied to the image. */
   private Stack<ImageOperation> ops;
   /** A memory of 'undone' operations to support 'redo'. */
-  private Stack<ImageOperation> redoOps;
+  private Stack<Redo> redoOps;
+  /** Copies of the image part way through {@link ops}, to speed up undo. */
+  private CheckpointCache checkpoints;
   /** The file where the original image is stored/ */
   private String imageFilename;
   /** The file where the operation sequence is stored. */
@@ -69,6 +100,28 @@ public class EditableImage {
    */
   public static boolean isRecording = false;
 
+  /**
+   * <p>
+   * An undone operation, along with the image it produced.
+   * </p>
+   *
+   * <p>
+   * The image is only softly referenced, so it is thrown away if memory runs
+   * low, and redo then has to apply the operation again.
+   * </p>
+   */
+  private static class Redo {
+    /** The operation that was undone. */
+    final ImageOperation op;
+    /** The image after the operation, if it has not been thrown away. */
+    final SoftReference<BufferedImage> result;
+
+    Redo(ImageOperation op, BufferedImage result) {
+      this.op = op;
+      this.result = new SoftReference<BufferedImage>(result);
+    }
+  }
+
   /**
    * <p>
    * Create a new EditableImage.
@@ -83,7 +136,8 @@ public class EditableImage {
     original = null;
     current = null;
     ops = new Stack<ImageOperation>();
-    redoOps = new Stack<ImageOperation>();
+    redoOps = new Stack<Redo>();
+    checkpoints = new CheckpointCache();
     recordedActions = new Stack<ImageOperation>();
     imageFilename = null;
     opsFilename = null;
@@ -97,7 +151,37 @@ public class EditableImage {
    * @return True if there is an image, false otherwise.
    */
   public boolean hasImage() {
-    return current != null;
+    return current != null || subsampled != null;
+  }
+
+  /**
+   * <p>
+   * Get the width of the current image.
+   * </p>
+   *
+   * <p>
+   * While an image is being opened this is the width it will have once it
+   * has been read, not the width of the {@link getSubsampled subsampled}
+   * copy.
+   * </p>
+   *
+   * @return The width in pixels.
+   */
+  public int getWidth() {
+    BufferedImage image = current;
+    return image != null ? image.getWidth() : openingWidth;
+  }
+
+  /**
+   * <p>
+   * Get the height of the current image.
+   * </p>
+   *
+   * @return The height in pixels, counted as for {@link getWidth}.
+   */
+  public int getHeight() {
+    BufferedImage image = current;
+    return image != null ? image.getHeight() : openingHeight;
   }
 
   /**
@@ -139,13 +223,22 @@ public class EditableImage {
    * <a href="https://creativecommons.org/licenses/by-sa/2.5/">CC BY-SA 2.5</a>
    * </p>
    *
+   * <p>
+   * A {@link MappedImage} is copied into a new mapped image instead, so that
+   * copying a huge image does not need room for it on the heap.
+   * </p>
+   *
    * @param bi The BufferedImage to copy.
    * @return A deep copy of the input.
    */
   private static BufferedImage deepCopy(BufferedImage bi) {
+    if (MappedImage.isMapped(bi)) {
+      return MappedImage.copy(bi);
+    }
     ColorModel cm = bi.getColorModel();
     boolean isAlphaPremultiplied = cm.isAlphaPremultiplied();
-    WritableRaster raster = bi.copyData(null);
+    WritableRaster raster = bi.getRaster().createCompatibleWritableRaster();
+    raster.setRect(bi.getRaster());
     return new BufferedImage(cm, raster, isAlphaPremultiplied, null);
   }
 
@@ -156,6 +249,7 @@ public class EditableImage {
    *
    * <p>
    * Opens an image from the specified file.
+   * An image too big to keep on the heap is kept in a {@link MappedImage}.
    * Also tries to open a set of operations from the file with <code>.ops</code>
    * added.
    * So if you open <code>some/path/to/image.png</code>, this method will also try
@@ -163,77 +257,257 @@ public class EditableImage {
    * read the operations from <code>some/path/to/image.png.ops</code>.
    * </p>
    *
+   * <p>
+   * This is {@link startOpen} followed by {@link finishOpen}, so it returns
+   * once the whole image has been read.
+   * </p>
+   *
    * @param filePath The file to open the image from.
    * @throws Exception If something goes wrong.
    */
   public void open(String filePath) throws Exception {
+    startOpen(filePath);
+    finishOpen();
+  }
+
+  /**
+   * <p>
+   * Start opening an image from a file, reading only enough of it to show.
+   * </p>
+   *
+   * <p>
+   * Reading a large image in full can take seconds.
+   * Instead, this reads only every n-th pixel of every n-th row, with
+   * {@link ImageReadParam#setSourceSubsampling}, to make a copy no more than
+   * {@link PREVIEW_SIZE} pixels across, and leaves the rest to
+   * {@link finishOpen}.
+   * Until then {@link getSubsampled} gives the copy, {@link getWidth} and
+   * {@link getHeight} give the full size, and anything that needs the full
+   * image, such as applying an operation or saving, waits for it.
+   * </p>
+   *
+   * <p>
+   * An image small enough to read quickly is not read here at all, since this
+   * is called on the event dispatch thread and even a quick read would hold
+   * it up.
+   * Until finishOpen has read it, the copy is the thumbnail stored in the
+   * file, or a single clear pixel if there is none.
+   * </p>
+   *
+   * @param filePath The file to open the image from.
+   * @throws IOException If the file cannot be read.
+   */
+  public synchronized void startOpen(String filePath) throws IOException {
+    opened++;
     imageFilename = filePath;
     opsFilename = imageFilename + ".ops";
+    original = null;
+    current = null;
+    subsampled = null;
+    ops.clear();
+    redoOps.clear();
+    checkpoints.clear();
+    version++;
+    notifyAll();
+
     File imageFile = new File(imageFilename);
-    original = ImageIO.read(imageFile);
-    current = deepCopy(original);
+    try (ImageInputStream in = ImageIO.createImageInputStream(imageFile)) {
+      if (in == null) {
+        throw new IOException("Cannot open " + imageFile);
+      }
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+      if (!readers.hasNext()) {
+        throw new IOException("Cannot read " + imageFile);
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(in, true, true);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        openingWidth = width;
+        openingHeight = height;
+        if (
+          (long) width * height <= QUICK_PIXELS &&
+          !MappedImage.shouldMap(width, height)
+        ) {
+          subsampled = thumbnail(reader);
+        } else {
+          int step =
+            (Math.max(width, height) + PREVIEW_SIZE - 1) / PREVIEW_SIZE;
+          ImageReadParam param = reader.getDefaultReadParam();
+          param.setSourceSubsampling(step, step, 0, 0);
+          subsampled = reader.read(0, param);
+        }
+        version++;
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Get the thumbnail stored in an image file, to show while it is read.
+   * </p>
+   *
+   * @param reader The reader for the file, with its input set.
+   * @return The first thumbnail of the first image, or a clear pixel if it
+   *         has none.
+   */
+  private static BufferedImage thumbnail(ImageReader reader) {
+    try {
+      if (reader.readerSupportsThumbnails() && reader.hasThumbnails(0)) {
+        return reader.readThumbnail(0, 0);
+      }
+    } catch (IOException ex) {
+      // A broken thumbnail only means there is nothing to show yet.
+    }
+    return new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+  }
+
+  /**
+   * <p>
+   * Finish opening the image started by {@link startOpen}, reading it in full.
+   * </p>
+   *
+   * <p>
+   * This decodes the whole file and applies its operations, so it is meant to
+   * be run in the background, ahead of any operations queued while it runs.
+   * The image is not locked while it is read, so the subsampled copy can still
+   * be drawn.
+   * If another image has been opened in the meantime, the one read here is
+   * dropped.
+   * If the read fails or is {@link Progress cancelled}, the image is closed.
+   * </p>
+   *
+   * @throws IOException           If the file cannot be read.
+   * @throws CancellationException If the read was cancelled.
+   */
+  public void finishOpen() throws IOException {
+    long ticket;
+    File imageFile;
+    synchronized (this) {
+      if (subsampled == null) {
+        return;
+      }
+      ticket = opened;
+      imageFile = new File(imageFilename);
+    }
+    BufferedImage full;
+    try {
+      full = MappedImage.read(imageFile);
+      if (full == null) {
+        throw new IOException("Cannot read " + imageFile);
+      }
+    } catch (IOException | RuntimeException ex) {
+      synchronized (this) {
+        if (ticket != opened) {
+          return;
+        }
+        subsampled = null;
+        version++;
+        notifyAll();
+      }
+      throw ex;
+    }
+    synchronized (this) {
+      if (ticket == opened) {
+        finish(full);
+      }
+    }
+  }
 
+  /**
+   * Make a fully read image the original, and apply its operations file.
+   *
+   * @param image The image read from {@link imageFilename}.
+   */
+  private void finish(BufferedImage image) {
+    original = image;
     try {
-      ops.clear();
-      FileInputStream fileIn = new FileInputStream(this.opsFilename);
-      ObjectInputStream objIn = new ObjectInputStream(fileIn);
-
-      // Silence the Java compiler warning about type casting.
-      // Understanding the cause of the warning is way beyond
-      // the scope of COSC202, but if you're interested, it has
-      // to do with "type erasure" in Java: the compiler cannot
-      // produce code that fails at this point in all cases in
-      // which there is actually a type mismatch for one of the
-      // elements within the Stack, i.e., a non-ImageOperation.
-      @SuppressWarnings("unchecked")
-      Stack<ImageOperation> opsFromFile = (Stack<ImageOperation>) objIn.readObject();
-      ops = opsFromFile;
-      redoOps.clear();
-      objIn.close();
-      fileIn.close();
+      try (InputStream fileIn = new FileInputStream(this.opsFilename)) {
+        ops = OpsFormat.read(fileIn);
+      }
     } catch (Exception ex) {
       // Could be no file or something else. Carry on for now.
     }
     this.refresh();
+    subsampled = null;
+    notifyAll();
   }
 
-  public void saveMacro(String filename) {
+  /**
+   * <p>
+   * Wait until an image being opened has been read in full.
+   * </p>
+   *
+   * <p>
+   * This must be called holding the lock on this image, which is let go while
+   * waiting so {@link finishOpen} can finish.
+   * That can take as long as reading the file, so this must never be called
+   * on the event dispatch thread.
+   * The editor runs the methods that call it in the background.
+   * </p>
+   */
+  private void awaitImage() {
+    while (current == null && subsampled != null) {
+      try {
+        wait();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  public synchronized void saveMacro(String filename) {
     try {
       imageFilename = filename;
       opsFilename = imageFilename + ".ops";
 
-      FileOutputStream fileOut = new FileOutputStream(this.opsFilename);
-      ObjectOutputStream objOut = new ObjectOutputStream(fileOut);
-      objOut.writeObject(this.recordedActions);
-      objOut.close();
-      fileOut.close();
+      try (OutputStream fileOut = new FileOutputStream(this.opsFilename)) {
+        OpsFormat.write(recordedActions, fileOut);
+      }
     } catch (Exception ex) {
       ex.printStackTrace();
     }
   }
 
-  public void loadMacro(String filePath) throws Exception {
-    imageFilename = filePath;
-    opsFilename = imageFilename;
-
-    FileInputStream fileIn = new FileInputStream(this.opsFilename);
-    ObjectInputStream objIn = new ObjectInputStream(fileIn);
-
-    @SuppressWarnings("unchecked")
-    Stack<ImageOperation> macro = (Stack<ImageOperation>) objIn.readObject();
+  /**
+   * <p>
+   * Apply the operations in a macro file to this image.
+   * </p>
+   *
+   * <p>
+   * The macro is applied as a whole: if it is cancelled part way through, the
+   * image is left as it was before it started.
+   * </p>
+   *
+   * @param filePath The macro file.
+   * @throws Exception If the file cannot be read.
+   */
+  public synchronized void loadMacro(String filePath) throws Exception {
+    Stack<ImageOperation> macro;
+    try (InputStream fileIn = new FileInputStream(filePath)) {
+      macro = OpsFormat.read(fileIn);
+    }
 
     // for (ImageOperation op : macro) {
     // op.apply(current);
     // }
 
+    awaitImage();
+    List<ImageOperation> applied = new ArrayList<ImageOperation>();
+    BufferedImage result = current;
+    long start = System.currentTimeMillis();
     while (!macro.isEmpty()) {
-      apply(macro.pop());
+      ImageOperation op = macro.pop();
+      result = OperationStats.apply(op, result);
+      applied.add(op);
     }
-
-    objIn.close();
-    fileIn.close();
-
-    this.refresh();
+    commit(applied, result, System.currentTimeMillis() - start);
+    imageFilename = filePath;
+    opsFilename = imageFilename;
   }
 
   /**
@@ -252,7 +526,8 @@ public class EditableImage {
    *
    * @throws Exception If something goes wrong.
    */
-  public void save() throws Exception {
+  public synchronized void save() throws Exception {
+    awaitImage();
     if (this.opsFilename == null) {
       this.opsFilename = this.imageFilename + ".ops";
     }
@@ -262,11 +537,9 @@ public class EditableImage {
       .toLowerCase();
     ImageIO.write(current, extension, new File(imageFilename)); // Changed original to current
     // Write operations file
-    FileOutputStream fileOut = new FileOutputStream(this.opsFilename);
-    ObjectOutputStream objOut = new ObjectOutputStream(fileOut);
-    objOut.writeObject(this.ops);
-    objOut.close();
-    fileOut.close();
+    try (OutputStream fileOut = new FileOutputStream(this.opsFilename)) {
+      OpsFormat.write(this.ops, fileOut);
+    }
   }
 
   /**
@@ -275,7 +548,7 @@ public class EditableImage {
    * @param imageFilename The file location to save the image to.
    * @throws Exception If something goes wrong.
    */
-  public void saveAs(String imageFilename) throws Exception {
+  public synchronized void saveAs(String imageFilename) throws Exception {
     this.imageFilename = imageFilename;
     this.opsFilename = imageFilename + ".ops";
     save();
@@ -288,14 +561,67 @@ public class EditableImage {
    *
    * @param op The operation to apply.
    */
-  public void apply(ImageOperation op) {
-    current = op.apply(current);
-    ops.add(op);
-    // System.out.println(recordedActions.toString());
+  public synchronized void apply(ImageOperation op) {
+    awaitImage();
+    long start = System.currentTimeMillis();
+    BufferedImage result = OperationStats.apply(op, current);
+    commit(Collections.singletonList(op), result, System.currentTimeMillis() - start);
+  }
+
+  /**
+   * <p>
+   * Make the result of applying some operations the current image.
+   * </p>
+   *
+   * <p>
+   * Nothing here can be cancelled, so the operations are either not applied
+   * at all, if they were cancelled before getting here, or applied in full.
+   * </p>
+   *
+   * @param applied The operations, in the order they were applied.
+   * @param result  The image after applying them to {@link current}.
+   * @param millis  How long applying them took, in milliseconds.
+   */
+  private void commit(List<ImageOperation> applied, BufferedImage result, long millis) {
+    // Images kept for redo were made from the old operations, so they no
+    // longer match once a new operation is applied.
+    for (Redo redo : redoOps) {
+      redo.result.clear();
+    }
+    current = result;
+    version++;
+    checkpoints.discardFrom(ops.size() + 1);
+    ops.addAll(applied);
+    keepCheckpoint(ops.size(), result, millis);
     if (isRecording) {
-      // recordedActions.push(op);
-      recordedActions.add(op);
-      System.out.println(recordedActions.toString());
+      recordedActions.addAll(applied);
+    }
+  }
+
+  /**
+   * <p>
+   * Offer the image after an operation that has been applied as a checkpoint.
+   * </p>
+   *
+   * <p>
+   * Storing a checkpoint splits the work into bands, which would stop if the
+   * job's {@link Progress} were cancelled.
+   * The operation is already applied by then, so the checkpoint is stored
+   * without the job's Progress rather than let a late cancel make the
+   * operation look cancelled.
+   * </p>
+   *
+   * @param depth  The number of operations applied to get the image.
+   * @param image  The image after those operations.
+   * @param millis How long the last operation took, in milliseconds.
+   */
+  private void keepCheckpoint(int depth, BufferedImage image, long millis) {
+    Progress progress = Progress.current();
+    Progress.setCurrent(null);
+    try {
+      checkpoints.offer(depth, image, millis);
+    } finally {
+      Progress.setCurrent(progress);
     }
   }
 
@@ -303,50 +629,80 @@ public class EditableImage {
    * <p>
    * Undo the last {@link ImageOperation} applied to the image.
    * </p>
+   *
+   * <p>
+   * The operations before it are replayed first, and nothing changes until
+   * they have been, so cancelling an undo leaves the image as it was.
+   * </p>
+   *
+   * @return False if there was nothing to undo.
    */
-  public void undo() {
-    if (!ops.isEmpty()) {
-      redoOps.push(ops.pop());
-      refresh();
-    } else {
-      try {
-        Andie.createErrorMessage(Andie.bundle.getString("undo_error"));
-      } catch (Exception ex) {
-        ex.printStackTrace();
-        System.exit(1);
-      }
+  public synchronized boolean undo() {
+    awaitImage();
+    if (ops.isEmpty()) {
+      return false;
     }
+    BufferedImage result = replay(ops.size() - 1);
+    redoOps.push(new Redo(ops.pop(), current));
+    current = result;
+    version++;
+    return true;
   }
 
-  // /**
-  // * <p>
-  // * Reapply the most recently {@link undo}ne {@link ImageOperation} to the
-  // image.
-  // * </p>
-  // */
-  // public void redo() {
-  // apply(redoOps.pop());
-  // }
-  public void redo() {
-    if (!redoOps.isEmpty() || !ops.isEmpty()) {
-      if (!redoOps.isEmpty()) {
-        apply(redoOps.pop());
-      } else {
-        try {
-          Andie.createErrorMessage(Andie.bundle.getString("redo_error"));
-        } catch (Exception ex) {
-          ex.printStackTrace();
-          System.exit(1);
-        }
-      }
-    } else {
-      try {
-        Andie.createErrorMessage(Andie.bundle.getString("redo_error"));
-      } catch (Exception ex) {
-        ex.printStackTrace();
-        System.exit(1);
-      }
+  /**
+   * <p>
+   * Reapply the most recently {@link undo}ne {@link ImageOperation} to the
+   * image.
+   * </p>
+   *
+   * <p>
+   * The image the operation produced before it was undone is reused if it is
+   * still in memory, so the operation does not have to be applied again.
+   * If it does, cancelling leaves the operation still undone.
+   * </p>
+   *
+   * @return False if there was nothing to redo.
+   */
+  public synchronized boolean redo() {
+    awaitImage();
+    if (redoOps.isEmpty()) {
+      return false;
+    }
+    Redo redo = redoOps.peek();
+    BufferedImage result = redo.result.get();
+    long millis = -1;
+    if (result == null) {
+      long start = System.currentTimeMillis();
+      result = OperationStats.apply(redo.op, current);
+      millis = System.currentTimeMillis() - start;
+    }
+    redoOps.pop();
+    current = result;
+    version++;
+    ops.add(redo.op);
+    if (millis >= 0) {
+      keepCheckpoint(ops.size(), result, millis);
+    }
+    if (isRecording) {
+      recordedActions.add(redo.op);
     }
+    return true;
+  }
+
+  /**
+   * <p>
+   * Get the cache of checkpoints used to speed up undo.
+   * </p>
+   *
+   * <p>
+   * This is mostly useful for reporting how much memory the undo history uses
+   * and how often it avoids a full replay.
+   * </p>
+   *
+   * @return The checkpoint cache.
+   */
+  public CheckpointCache getCheckpoints() {
+    return checkpoints;
   }
 
   /**
@@ -355,12 +711,47 @@ public class EditableImage {
    * </p>
    *
    * @return The result of applying all of the current operations to the
-   *         {@link original} image.
+   *         {@link original} image, or null while it is still being opened.
    */
   public BufferedImage getCurrentImage() {
     return current;
   }
 
+  /**
+   * <p>
+   * Get the low resolution copy of an image that is still being opened.
+   * </p>
+   *
+   * <p>
+   * The copy covers the whole image, so it is drawn stretched to
+   * {@link getWidth} by {@link getHeight}.
+   * </p>
+   *
+   * @return The copy, or null once the image has been read in full.
+   * @see #startOpen(String)
+   */
+  public BufferedImage getSubsampled() {
+    return subsampled;
+  }
+
+  /**
+   * <p>
+   * Get a number that changes whenever the current image does.
+   * </p>
+   *
+   * <p>
+   * Some operations draw on the current image rather than making a new one, so
+   * comparing images is not enough to tell whether it has changed.
+   * Views that keep copies of the image, such as scaled-down versions for
+   * display, can compare this instead.
+   * </p>
+   *
+   * @return The number of times the current image has changed.
+   */
+  public long getVersion() {
+    return version;
+  }
+
   /**
    * <p>
    * Reapply the current list of operations to the original.
@@ -370,16 +761,41 @@ public class EditableImage {
    * While the latest version of the image is stored in {@link current}, this
    * method makes a fresh copy of the original and applies the operations to it in
    * sequence.
-   * This is useful when undoing changes to the image, or in any other case where
-   * {@link current}
-   * cannot be easily incrementally updated.
+   * This is useful in any case where {@link current} cannot be easily
+   * incrementally updated.
+   * {@link current} is only replaced once the replay has finished.
    * </p>
    */
   private void refresh() {
-    current = deepCopy(original);
-    for (ImageOperation op : ops) {
-      current = op.apply(current);
-    }
+    BufferedImage result = replay(ops.size());
+    current = result;
+    version++;
+  }
+
+  /**
+   * <p>
+   * Work out the image after the first few operations, without changing this
+   * image.
+   * </p>
+   *
+   * <p>
+   * Replaying starts from the deepest {@link CheckpointCache checkpoint} that
+   * is still valid, rather than the original, so undoing only replays the last
+   * few operations.
+   * The rest are applied by {@link OperationReplay}, which fuses runs of
+   * colour adjustments and of geometric operations, and the images it makes
+   * along the way are offered as checkpoints.
+   * That is safe even if the replay is cancelled, since they only depend on
+   * operations that are not changing.
+   * </p>
+   *
+   * @param depth The number of operations to apply.
+   * @return A new image, the result of applying them to {@link original}.
+   */
+  private BufferedImage replay(int depth) {
+    int from = checkpoints.floorDepth(depth);
+    BufferedImage image = from > 0 ? checkpoints.restore(from) : deepCopy(original);
+    return OperationReplay.replay(ops, from, depth, image, checkpoints::offer);
   }
 
   /**
@@ -391,30 +807,34 @@ public class EditableImage {
    *
    * @param filepath The filepath where the image should be exported.
    * @throws IOException If an error occurs while exporting the image.
+   * @throws IllegalArgumentException If the filepath is empty or no image
+   *                                  format has the extension.
    */
-  public void export(String filepath, String extension) throws IOException {
+  public synchronized void export(String filepath, String extension) throws IOException {
     if (filepath == null || "".equals(filepath)) {
-      throw new IllegalArgumentException(
-        Andie.bundle.getString("filepath_error")
-      );
+      throw new IllegalArgumentException("No file to export to");
     }
 
     // Check if the extension is valid
     if (!ImageIO.getImageWritersBySuffix(extension).hasNext()) {
-      throw new IllegalArgumentException(
-        Andie.bundle.getString("format_error")
-      );
+      throw new IllegalArgumentException("No image format for ." + extension);
     }
 
     // Write the image to the specified filepath with the specified format
+    awaitImage();
     File outputFile = new File(filepath);
     ImageIO.write(current, extension, outputFile);
   }
 
-  public void setImage(BufferedImage newImage) {
+  public synchronized void setImage(BufferedImage newImage) {
+    opened++;
+    subsampled = null;
+    notifyAll();
     original = deepCopy(newImage);
     current = deepCopy(newImage);
+    version++;
     ops.clear();
     redoOps.clear();
+    checkpoints.clear();
   }
 }
@@ -14,7 +14,16 @@ import java.awt.image.*;
  * 
  * @author Shyamalima Shreya Das
  */
-public class EmbossFilter2 implements ImageOperation, java.io.Serializable {
+public class EmbossFilter2 implements TiledImageOperation, java.io.Serializable {
+
+    /**
+     * The kernel the filter convolves with.
+     */
+    private static final Kernel KERNEL = new Kernel(3, 3, new float[] { 0, 0, 0,
+            +1.0f, 0, -1.0f,
+            0, 0, 0 });
+
+    private static final long serialVersionUID = 485146534238204735L;
 
     /**
      * <p>
@@ -38,18 +47,30 @@ public class EmbossFilter2 implements ImageOperation, java.io.Serializable {
      */
 
     public BufferedImage apply(BufferedImage input) {
-        float[] array = { 0, 0, 0,
-                +1.0f, 0, -1.0f,
-                0, 0, 0 };
-
-        Kernel kernel = new Kernel(3, 3, array);
-        System.out.println("Before convolve");
-
-        BufferedImage output = Convolve.filter(input, kernel, true);
+        return TileScheduler.apply(this, input);
+    }
 
-        System.out.println("After convolve");
+    /**
+     * <p>
+     * Get the halo the 3x3 kernel needs.
+     * </p>
+     *
+     * @return 1, the radius of the kernel.
+     */
+    public int getHalo() {
+        return 1;
+    }
 
-        return output;
+    /**
+     * <p>
+     * Convolve a band of rows with the kernel.
+     * </p>
+     *
+     * @see TiledImageOperation#applyTile(int[], int, int[], int, int, int)
+     */
+    public void applyTile(int[] source, int sourceWidth, int[] output, int width, int y0, int y1) {
+        Convolve.convolveRows(source, sourceWidth, Convolve.taps(KERNEL, sourceWidth), output, width, y0, y1,
+                true, true);
     }
 
 }
@@ -2,7 +2,9 @@ package cosc202.andie;
 
 import java.awt.event.*;
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
@@ -175,6 +177,15 @@ public class FileActions {
      * It prompts the user to select a file and opens it as an image.
      * </p>
      *
+     * <p>
+     * Only the file's header is read here, and a large image is shown
+     * subsampled straight away.
+     * Every image is decoded in full by the {@link OperationRunner}, so
+     * operations chosen meanwhile are queued behind the read and applied to
+     * the full image.
+     * If the read fails or is cancelled, those operations are dropped.
+     * </p>
+     *
      * @param e The event triggering this callback.
      */
     public void actionPerformed(ActionEvent e) {
@@ -190,7 +201,22 @@ public class FileActions {
             imageFilepath.lastIndexOf(".") + 1
           );
           validateFileType(fileExtension);
-          target.getImage().open(imageFilepath);
+          // Operations still queued were meant for the old image.
+          OperationRunner.cancelAll();
+          target.getImage().startOpen(imageFilepath);
+          OperationRunner.submit(
+            target,
+            image -> {
+              try {
+                image.finishOpen();
+              } catch (CancellationException ex) {
+                OperationRunner.cancelAll();
+              } catch (IOException ex) {
+                OperationRunner.cancelAll();
+                Andie.createErrorMessage(ex.getMessage());
+              }
+            }
+          );
         } catch (Exception ex) {
           JOptionPane.showMessageDialog(
             target,
@@ -247,11 +273,17 @@ public class FileActions {
      */
     public void actionPerformed(ActionEvent e) {
       if (ImagePanel.image.hasImage()) {
-        try {
-          target.getImage().save();
-        } catch (Exception ex) {
-          System.exit(1);
-        }
+        OperationRunner.submit(
+          target,
+          image -> {
+            try {
+              image.save();
+            } catch (Exception ex) {
+              ex.printStackTrace();
+              Andie.createErrorMessage(ex.getMessage());
+            }
+          }
+        );
       } else {
         try {
           Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -317,7 +349,17 @@ public class FileActions {
             String imageFilepath = fileChooser
               .getSelectedFile()
               .getCanonicalPath();
-            target.getImage().saveAs(imageFilepath);
+            OperationRunner.submit(
+              target,
+              image -> {
+                try {
+                  image.saveAs(imageFilepath);
+                } catch (Exception ex) {
+                  ex.printStackTrace();
+                  Andie.createErrorMessage(ex.getMessage());
+                }
+              }
+            );
           } catch (Exception ex) {
             System.exit(1);
           }
@@ -422,7 +464,19 @@ public class FileActions {
           exportFilename += ".png";
         }
 
-        ImageAction.getTarget().getImage().export(exportFilename, extension);
+        String path = exportFilename;
+        String format = extension;
+        OperationRunner.submit(
+          ImageAction.getTarget(),
+          image -> {
+            try {
+              image.export(path, format);
+            } catch (Exception ex) {
+              ex.printStackTrace();
+              Andie.createErrorMessage(Andie.bundle.getString("export_error"));
+            }
+          }
+        );
       }
     }
   }
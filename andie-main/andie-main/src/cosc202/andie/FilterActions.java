@@ -160,9 +160,7 @@ public class FilterActions {
                 }
 
                 // Create and apply the mean filter
-                target.getImage().apply(new MeanFilter(radius));
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new MeanFilter(radius));
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -241,9 +239,7 @@ public class FilterActions {
                 }
                 // Create and apply the sharpen filter
 
-                target.getImage().apply(new SharpenFilter());
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new SharpenFilter());
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -286,9 +282,16 @@ public class FilterActions {
                 radiusModel.setMinorTickSpacing(1);
                 radiusModel.setPaintTicks(true);
                 radiusModel.setPaintLabels(true);
+
+                // Preview the filter on the visible part of the image as the slider moves.
+                Preview preview = new Preview(target,
+                        (value, scale) -> new MedianFilter(Preview.scaleRadius(value, scale)));
+                radiusModel.addChangeListener(ev -> preview.show(radiusModel.getValue()));
+                preview.show(radiusModel.getValue());
                 int option = JOptionPane.showOptionDialog(null, radiusModel,
                         Andie.bundle.getString("median_filter_menu_title"),
                         JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, null, null);
+                preview.close();
                 // Check the return value from the dialog box.
                 if (option == JOptionPane.CANCEL_OPTION) {
                     return;
@@ -296,30 +299,8 @@ public class FilterActions {
                     radius = radiusModel.getValue();
                 }
 
-                JDialog frame = new JDialog();
-
-                frame.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
-
-                JLabel label = new JLabel("Loading...");
-
-                frame.add(label);
-
-                frame.pack();
-                frame.setLocationRelativeTo(null);
-                // Set the frame visible
-                frame.setVisible(true);
-
-                int actualRadius = radius;
-
-                SwingUtilities.invokeLater(() -> {
-                    // Create and apply the filter
-                    target.getImage().apply(new MedianFilter(actualRadius));
-                    target.repaint();
-                    target.getParent().revalidate();
-
-                    frame.setVisible(false);
-                    frame.dispose();
-                });
+                // Create and apply the filter
+                OperationRunner.apply(target, new MedianFilter(radius));
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -387,6 +368,12 @@ public class FilterActions {
                 radiusModel.setPaintTicks(true);
                 radiusModel.setPaintLabels(true);
 
+                // Preview the blur on the visible part of the image as the slider moves.
+                Preview preview = new Preview(target,
+                        (value, scale) -> new GaussianFilter(Preview.scaleRadius(value, scale)));
+                radiusModel.addChangeListener(ev -> preview.show(radiusModel.getValue()));
+                preview.show(radiusModel.getValue());
+
                 int option = JOptionPane.showOptionDialog(
                         null,
                         radiusModel,
@@ -396,6 +383,7 @@ public class FilterActions {
                         null,
                         null,
                         null);
+                preview.close();
 
                 // Check the return value from the dialog box.
                 if (option == JOptionPane.CANCEL_OPTION) {
@@ -403,30 +391,8 @@ public class FilterActions {
                 } else if (option == JOptionPane.OK_OPTION) {
                     radius = radiusModel.getValue();
                 }
-                JDialog frame = new JDialog();
-
-                frame.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
-
-                JLabel label = new JLabel("Loading...");
-
-                frame.add(label);
-
-                frame.pack();
-                frame.setLocationRelativeTo(null);
-                // Set the frame visible
-                frame.setVisible(true);
-
-                int actualRadius = radius;
-
-                SwingUtilities.invokeLater(() -> {
-                    // Create and apply the filter
-                    target.getImage().apply(new GaussianFilter(actualRadius));
-                    target.repaint();
-                    target.getParent().revalidate();
-
-                    frame.setVisible(false);
-                    frame.dispose();
-                });
+                // Create and apply the filter
+                OperationRunner.apply(target, new GaussianFilter(radius));
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -482,9 +448,7 @@ public class FilterActions {
         @Override
         public void actionPerformed(ActionEvent e) {
             if (ImagePanel.image.hasImage()) {
-                target.getImage().apply(new EmbossFilter1());
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new EmbossFilter1());
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -540,9 +504,7 @@ public class FilterActions {
         @Override
         public void actionPerformed(ActionEvent e) {
             if (ImagePanel.image.hasImage()) {
-                target.getImage().apply(new EmbossFilter2());
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new EmbossFilter2());
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -598,9 +560,7 @@ public class FilterActions {
         @Override
         public void actionPerformed(ActionEvent e) {
             if (ImagePanel.image.hasImage()) {
-                target.getImage().apply(new EmbossFilter3());
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new EmbossFilter3());
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -656,9 +616,7 @@ public class FilterActions {
         @Override
         public void actionPerformed(ActionEvent e) {
             if (ImagePanel.image.hasImage()) {
-                target.getImage().apply(new EmbossFilter4());
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new EmbossFilter4());
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -714,9 +672,7 @@ public class FilterActions {
         @Override
         public void actionPerformed(ActionEvent e) {
             if (ImagePanel.image.hasImage()) {
-                target.getImage().apply(new EmbossFilter5());
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new EmbossFilter5());
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -772,9 +728,7 @@ public class FilterActions {
         @Override
         public void actionPerformed(ActionEvent e) {
             if (ImagePanel.image.hasImage()) {
-                target.getImage().apply(new EmbossFilter6());
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new EmbossFilter6());
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -830,9 +784,7 @@ public class FilterActions {
         @Override
         public void actionPerformed(ActionEvent e) {
             if (ImagePanel.image.hasImage()) {
-                target.getImage().apply(new EmbossFilter7());
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new EmbossFilter7());
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -888,9 +840,7 @@ public class FilterActions {
         @Override
         public void actionPerformed(ActionEvent e) {
             if (ImagePanel.image.hasImage()) {
-                target.getImage().apply(new EmbossFilter8());
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new EmbossFilter8());
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -946,9 +896,7 @@ public class FilterActions {
         @Override
         public void actionPerformed(ActionEvent e) {
             if (ImagePanel.image.hasImage()) {
-                target.getImage().apply(new SobelHorizontal());
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new SobelHorizontal());
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -1004,9 +952,7 @@ public class FilterActions {
         @Override
         public void actionPerformed(ActionEvent e) {
             if (ImagePanel.image.hasImage()) {
-                target.getImage().apply(new SobelVertical());
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new SobelVertical());
             } else {
                 try {
                     Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -1074,9 +1020,7 @@ public class FilterActions {
                     int negative = negativeSlider.getValue();
 
                     // Create and apply the filter
-                    target.getImage().apply(new NegativeFilter(negative));
-                    target.repaint();
-                    target.getParent().revalidate();
+                    OperationRunner.apply(target, new NegativeFilter(negative));
                 }
             } else {
                 try {
@@ -1,8 +1,5 @@
 package cosc202.andie;
 
-import java.awt.image.*;
-import java.awt.geom.AffineTransform;
-
 /**
  * <p>
  * ImageOperation to flip an image on its vertical axis.
@@ -20,7 +17,9 @@ import java.awt.geom.AffineTransform;
  * @author Josh Lawson
  * @version 1.1
  */
-public class FlipVertical implements ImageOperation, java.io.Serializable {
+public class FlipVertical implements GeometricOperation, java.io.Serializable {
+
+    private static final long serialVersionUID = 4533931835062109332L;
 
     /**
      * <p>
@@ -33,20 +32,15 @@ public class FlipVertical implements ImageOperation, java.io.Serializable {
 
     /**
      * <p>
-     * Apply flip vertical transformation to an image.
+     * Get the remap that flips an image on its vertical axis.
      * </p>
      * 
-     * @param input The image to be flipped
-     * @return The resulting flipped image.
+     * @param width  The width of the image to be flipped.
+     * @param height The height of the image to be flipped.
+     * @return The remap.
      */
-    public BufferedImage apply(BufferedImage input) {
-
-        AffineTransform at = AffineTransform.getScaleInstance(1, -1);
-        at.translate(0, -input.getHeight(null));
-        AffineTransformOp op = new AffineTransformOp(at, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-        input = op.filter(input, null);
-
-        return input;
+    public Remap getRemap(int width, int height) {
+        return Remap.flipVertical(width, height);
     }
 
 }
\ No newline at end of file
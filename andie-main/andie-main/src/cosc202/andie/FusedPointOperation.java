@@ -0,0 +1,198 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * A run of point operations done in a single pass over the image.
+ * </p>
+ *
+ * <p>
+ * Applying several colour adjustments one after another makes a new image for
+ * each of them and reads and writes every pixel each time.
+ * This operation instead runs each pixel through the whole run before moving to
+ * the next, so the image is read once and written once.
+ * Operations in a row that provide lookup tables are combined into a single
+ * table, so a long run of brightness and contrast changes costs no more than
+ * one of them.
+ * </p>
+ *
+ * <p>
+ * The result is the same as applying the operations one at a time, as long as
+ * each image in between can hold the pixels exactly; see {@link #canFuse}.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see PointOperation
+ * @version 1.0
+ */
+public class FusedPointOperation implements TiledImageOperation {
+
+    /** The operations in the run, in the order they are applied. */
+    private final List<PointOperation> operations;
+
+    /** The combined lookup table for each step, or null if the step is a function. */
+    private final int[][] tables;
+
+    /** The operation for each step that is not a lookup table. */
+    private final PointOperation[] functions;
+
+    /**
+     * <p>
+     * Create a fused operation from a run of point operations.
+     * </p>
+     *
+     * @param operations The operations to apply, in order.
+     */
+    public FusedPointOperation(List<PointOperation> operations) {
+        this.operations = new ArrayList<PointOperation>(operations);
+        List<int[]> tableSteps = new ArrayList<int[]>();
+        List<PointOperation> functionSteps = new ArrayList<PointOperation>();
+        for (PointOperation op : this.operations) {
+            int[] table = op.getLookupTable();
+            int last = tableSteps.size() - 1;
+            if (table != null && last >= 0 && tableSteps.get(last) != null) {
+                // Look up the previous table's result in this one.
+                int[] previous = tableSteps.get(last);
+                int[] combined = new int[256];
+                for (int i = 0; i < 256; i++) {
+                    combined[i] = table[previous[i]];
+                }
+                tableSteps.set(last, combined);
+            } else {
+                tableSteps.add(table);
+                functionSteps.add(table == null ? op : null);
+            }
+        }
+        tables = tableSteps.toArray(new int[0][]);
+        functions = functionSteps.toArray(new PointOperation[0]);
+    }
+
+    /**
+     * <p>
+     * Check whether a run of point operations can be fused when applied to an
+     * image.
+     * </p>
+     *
+     * <p>
+     * Fusing skips the images that would be made between operations, so it is
+     * only exact if those images would hold every pixel without loss.
+     * This is true for images with 8 bits per channel that are not
+     * premultiplied, including mapped images, since the point operations keep
+     * the same kind of image or make an RGB one.
+     * </p>
+     *
+     * @param image The image the run would be applied to.
+     * @return True if the fused result is the same as applying the operations in
+     *         turn.
+     */
+    public static boolean canFuse(BufferedImage image) {
+        if (MappedImage.isMapped(image)) {
+            return true;
+        }
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_BGR:
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * <p>
+     * Apply a run of point operations to an image, fusing them if possible.
+     * </p>
+     *
+     * @param operations The operations to apply, in order.
+     * @param input      The image to apply them to.
+     * @return The resulting image.
+     */
+    public static BufferedImage applyAll(List<PointOperation> operations, BufferedImage input) {
+        if (operations.size() > 1 && canFuse(input)) {
+            return OperationStats.apply(new FusedPointOperation(operations), input);
+        }
+        BufferedImage output = input;
+        for (PointOperation op : operations) {
+            output = OperationStats.apply(op, output);
+        }
+        return output;
+    }
+
+    /**
+     * <p>
+     * Apply the whole run of operations to an image in one pass.
+     * </p>
+     *
+     * @param input The image to apply the operations to.
+     * @return The resulting image.
+     */
+    public BufferedImage apply(BufferedImage input) {
+        return TileScheduler.apply(this, input);
+    }
+
+    /**
+     * <p>
+     * Point operations do not look at neighbouring pixels.
+     * </p>
+     *
+     * @return 0.
+     */
+    public int getHalo() {
+        return 0;
+    }
+
+    /**
+     * <p>
+     * Create the image the last operation in the run would have made.
+     * </p>
+     *
+     * <p>
+     * The kind of image each operation makes can depend on the kind it was
+     * given, so each operation is asked in turn using a one pixel image.
+     * </p>
+     *
+     * @param input The image the run is being applied to.
+     * @return A new image to hold the result.
+     */
+    public BufferedImage createOutput(BufferedImage input) {
+        BufferedImage probe = Pixels.createCompatible(input, 1, 1);
+        for (PointOperation op : operations) {
+            probe = op.createOutput(probe);
+        }
+        return Pixels.createCompatible(probe, input.getWidth(), input.getHeight());
+    }
+
+    /**
+     * <p>
+     * Run each pixel in a band of rows through every step.
+     * </p>
+     *
+     * @see TiledImageOperation#applyTile(int[], int, int[], int, int, int)
+     */
+    public void applyTile(int[] source, int sourceWidth, int[] output, int width, int y0, int y1) {
+        int steps = tables.length;
+        for (int i = y0 * width, end = y1 * width; i < end; i++) {
+            int p = source[i];
+            for (int s = 0; s < steps; s++) {
+                int[] table = tables[s];
+                if (table != null) {
+                    p = 0xFF000000 | (table[(p >> 16) & 0xFF] << 16) | (table[(p >> 8) & 0xFF] << 8)
+                            | table[p & 0xFF];
+                } else {
+                    p = functions[s].filterPixel(p);
+                }
+            }
+            output[i] = p;
+        }
+    }
+}
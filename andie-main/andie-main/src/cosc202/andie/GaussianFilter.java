@@ -34,7 +34,9 @@ import java.awt.image.*;
  * @author Shyamalima Das
  * @version 1.0
  */
-public class GaussianFilter implements ImageOperation, java.io.Serializable {
+public class GaussianFilter implements TiledImageOperation, java.io.Serializable {
+
+    private static final long serialVersionUID = -2767266311303341392L;
 
     /**
      * The size of filter to apply.
@@ -83,45 +85,95 @@ public class GaussianFilter implements ImageOperation, java.io.Serializable {
      * As with many filters, the Gaussian filter is implemented via convolution.
      * The size of the convolution kernel is specified by the {@link radius}
      * Larger radii lead to stronger blurring.
+     * The Gaussian kernel is separable, so it is applied as a horizontal pass and
+     * then a vertical pass, and the cost grows with the radius rather than its
+     * square.
      * </p>
      * 
      * @param input The image to apply the Sharpen filter to.
      * @return The resulting (blurred)) image.
      */
     public BufferedImage apply(BufferedImage input) {
+        return TileScheduler.apply(this, input);
+    }
 
+    /**
+     * <p>
+     * Build the 1D Gaussian kernel that is applied across and then down.
+     * </p>
+     *
+     * <p>
+     * A 2D Gaussian is the product of a 1D Gaussian across and a 1D Gaussian
+     * down, so only the 1D weights are needed.
+     * </p>
+     *
+     * @return The 2 * radius + 1 weights of the kernel, which sum to 1.
+     */
+    private float[] weights() {
         int sideLength = 2 * radius + 1; // the size of the sides of the kernel
-        int size = sideLength * sideLength; // the size of the kernel
-        float[] array = new float[size]; // the array of values for the kernel
+        float[] array = new float[sideLength]; // the array of values for the kernel
         float variance = ((float) radius / 3); // the variance of the kernel, which is a third of the variance
         float variancesq = 2 * variance * variance; // the variance squared for the exponential part of the formula
         float sum = 0;
         int index = 0;
-        for (int y = -radius; y <= radius; y++) { // starts from negative radius to start on the left side of the image
-            for (int x = -radius; x <= radius; x++) {
-                float value = (float) (Math.exp(-(x * x + y * y) / variancesq)); // the exponential part of the equation
-                value /= (Math.PI * variancesq); // the rest of the equation
-                array[index] = value; // the value is added to the array
-                sum += value; // sum is the sum of all the values in the array
-                index++; // index is indexed
-            }
+        for (int x = -radius; x <= radius; x++) { // starts from negative radius to start on the left side
+            float value = (float) (Math.exp(-(x * x) / variancesq)); // the exponential part of the equation
+            array[index] = value; // the value is added to the array
+            sum += value; // sum is the sum of all the values in the array
+            index++; // index is indexed
         }
 
         for (int z = 0; z < array.length; z++) {
             array[z] /= sum; // the array is divided by the sum to get the average
         }
-        Kernel kernel = new Kernel(sideLength, sideLength, array);
+        return array;
+    }
+
+    /**
+     * <p>
+     * Get the halo the kernel needs, which is its radius.
+     * </p>
+     *
+     * @return The radius of the filter.
+     */
+    public int getHalo() {
+        return radius;
+    }
 
-        System.out.println("Before convolve");
-        LoadingWindow loadingWindow = new LoadingWindow();
-        loadingWindow.start();
-        System.out.println("Before loading Window");
-        BufferedImage output = Convolve.convolve(input, kernel);
-        System.out.println("After loading Window");
-        loadingWindow.stop();
-        System.out.println("After convolve");
+    /**
+     * <p>
+     * Pixels outside the image count as black, so the edges of a blurred image
+     * darken.
+     * </p>
+     *
+     * @return False, so the border is filled with zeros.
+     */
+    public boolean extendsEdges() {
+        return false;
+    }
 
-        return output;
+    /**
+     * <p>
+     * Create an opaque RGB image to hold the result.
+     * </p>
+     *
+     * @param input The image the filter is being applied to.
+     * @return A new TYPE_INT_RGB image the same size as the input.
+     */
+    public BufferedImage createOutput(BufferedImage input) {
+        return Pixels.create(input, input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * <p>
+     * Blur a band of rows, across and then down.
+     * </p>
+     *
+     * @see TiledImageOperation#applyTile(int[], int, int[], int, int, int)
+     */
+    public void applyTile(int[] source, int sourceWidth, int[] output, int width, int y0, int y1) {
+        float[] array = weights();
+        Convolve.separableRows(source, sourceWidth, array, array, output, width, y0, y1, false);
     }
 
 }
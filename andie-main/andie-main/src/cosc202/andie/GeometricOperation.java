@@ -0,0 +1,81 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * <p>
+ * Interface for operations that move pixels around without changing them.
+ * </p>
+ *
+ * <p>
+ * Flips, right-angle rotations, crops and resizes each copy every output pixel
+ * from one input pixel, chosen by its row and column alone.
+ * Such an operation describes itself as a {@link Remap}, and several of them in
+ * a row can be combined into one remap that is applied in a single pass, which
+ * {@link ComposedTransform} does when the operations are replayed.
+ * Operations that undo each other, such as a rotation left then right, combine
+ * into no work at all.
+ * </p>
+ *
+ * <p>
+ * A resize that filters with a {@link Resampler.Kernel} blends pixels rather
+ * than moving them, so it has no remap; it is applied with
+ * {@link #apply(BufferedImage, Remap)} instead, reading its input through the
+ * remap of the operations before it.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see ComposedTransform
+ * @version 1.0
+ */
+public interface GeometricOperation extends ImageOperation {
+
+    /**
+     * <p>
+     * Describe where this operation takes each output pixel from.
+     * </p>
+     *
+     * @param width  The width of the image the operation is applied to.
+     * @param height The height of the image the operation is applied to.
+     * @return The remap for an image of that size, or null if the operation
+     *         blends pixels.
+     */
+    public Remap getRemap(int width, int height);
+
+    /**
+     * <p>
+     * Apply the operation to the image a remap would make from the input, in one
+     * pass where possible.
+     * </p>
+     *
+     * <p>
+     * By default the operation's remap is composed with the one before.
+     * Operations whose {@link #getRemap} can return null must override this.
+     * </p>
+     *
+     * @param input  The image the remap applies to.
+     * @param before The remap to apply first.
+     * @return The resulting image, which may be the input itself or a view of
+     *         it; see {@link Remap#apply}.
+     */
+    public default BufferedImage apply(BufferedImage input, Remap before) {
+        return before.then(getRemap(before.getWidth(), before.getHeight())).apply(input);
+    }
+
+    /**
+     * <p>
+     * Apply the operation on its own.
+     * </p>
+     *
+     * @param input The image to apply the operation to.
+     * @return The resulting image, which may be the input itself or a view of
+     *         it; see {@link Remap#apply}.
+     */
+    public default BufferedImage apply(BufferedImage input) {
+        return apply(input, Remap.identity(input.getWidth(), input.getHeight()));
+    }
+}
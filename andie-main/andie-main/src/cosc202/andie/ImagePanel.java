@@ -1,6 +1,7 @@
 package cosc202.andie;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -63,6 +64,44 @@ public class ImagePanel extends JPanel {
      */
     private double scale = 1.0;
 
+    /**
+     * A preview drawn over part of the image while a dialog is open, or null.
+     */
+    private BufferedImage preview;
+
+    /**
+     * The part of the image the preview covers, in image coordinates.
+     */
+    private Rectangle previewRegion;
+
+    /** The smallest zoom level, as a percentage. */
+    public static final double MIN_ZOOM = 1;
+
+    /** The largest zoom level, as a percentage. */
+    public static final double MAX_ZOOM = 3200;
+
+    /**
+     * Scaled-down copies of the current image, for drawing it zoomed out.
+     */
+    private MipmapPyramid pyramid;
+
+    /**
+     * The {@link EditableImage#getVersion() version} of the image the pyramid
+     * was made from.
+     */
+    private long pyramidVersion;
+
+    /**
+     * Copies of the pyramid's levels in the screen's own format, made as they
+     * are first drawn.
+     */
+    private BufferedImage[] displayLevels;
+
+    /**
+     * The screen the display copies were made for.
+     */
+    private GraphicsConfiguration displayConfig;
+
     /**
      * <p>
      * Create a new ImagePanel.
@@ -117,8 +156,8 @@ public class ImagePanel extends JPanel {
             private boolean isWithinImageBounds(Point point) {
                 int x = point.x;
                 int y = point.y;
-                int imageWidth = (int) (image.getCurrentImage().getWidth() * scale);
-                int imageHeight = (int) (image.getCurrentImage().getHeight() * scale);
+                int imageWidth = (int) (image.getWidth() * scale);
+                int imageHeight = (int) (image.getHeight() * scale);
 
                 return x >= 0 && x <= imageWidth && y >= 0 && y <= imageHeight;
             }
@@ -136,9 +175,9 @@ public class ImagePanel extends JPanel {
                         endPoint = e.getPoint();
 
                         // Ensure the endPoint is within the bounds of the image
-                        endPoint.x = (int) Math.min(image.getCurrentImage().getWidth() * scale,
+                        endPoint.x = (int) Math.min(image.getWidth() * scale,
                                 Math.max(0, endPoint.x));
-                        endPoint.y = (int) Math.min(image.getCurrentImage().getHeight() * scale,
+                        endPoint.y = (int) Math.min(image.getHeight() * scale,
                                 Math.max(0, endPoint.y));
 
                         selection.setBounds(
@@ -196,17 +235,18 @@ public class ImagePanel extends JPanel {
      * <p>
      * The percentage zoom is used for the external interface, where 100% is the
      * original size, 50% is half-size, etc.
-     * The zoom level is restricted to the range [50, 200].
+     * The zoom level is restricted to the range [{@link #MIN_ZOOM},
+     * {@link #MAX_ZOOM}].
      * </p>
      * 
      * @param zoomPercent The new zoom level as a percentage.
      */
     public void setZoom(double zoomPercent) {
-        if (zoomPercent < 50) {
-            zoomPercent = 50;
+        if (zoomPercent < MIN_ZOOM) {
+            zoomPercent = MIN_ZOOM;
         }
-        if (zoomPercent > 200) {
-            zoomPercent = 200;
+        if (zoomPercent > MAX_ZOOM) {
+            zoomPercent = MAX_ZOOM;
         }
         scale = zoomPercent / 100;
     }
@@ -226,8 +266,8 @@ public class ImagePanel extends JPanel {
     @Override
     public Dimension getPreferredSize() {
         if (image.hasImage()) {
-            return new Dimension((int) Math.round(image.getCurrentImage().getWidth() * scale),
-                    (int) Math.round(image.getCurrentImage().getHeight() * scale));
+            return new Dimension((int) Math.round(image.getWidth() * scale),
+                    (int) Math.round(image.getHeight() * scale));
         } else {
             return new Dimension(450, 450);
         }
@@ -237,6 +277,13 @@ public class ImagePanel extends JPanel {
      * The paintComponent method draws the current image and the selection rectangle
      * (if any).
      *
+     * <p>
+     * Only the part of the image inside the clip is drawn, from the level of the
+     * {@link MipmapPyramid} that suits the zoom, so the time a repaint takes
+     * depends on the size of the area being repainted rather than the size of
+     * the image.
+     * </p>
+     *
      * @param g The Graphics object to protect the original Graphics object.
      */
     @Override
@@ -244,8 +291,13 @@ public class ImagePanel extends JPanel {
         super.paintComponent(g);
         if (image.hasImage()) {
             Graphics2D g2 = (Graphics2D) g.create();
+            paintVisible(g2);
             g2.scale(scale, scale);
-            g2.drawImage(image.getCurrentImage(), null, 0, 0);
+            if (preview != null) {
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g2.drawImage(preview, previewRegion.x, previewRegion.y, previewRegion.width,
+                        previewRegion.height, null);
+            }
 
             /**
              * If a selection exists, it is drawn on the image.
@@ -261,6 +313,147 @@ public class ImagePanel extends JPanel {
         }
     }
 
+    /**
+     * <p>
+     * Draw the part of the current image inside the clip.
+     * </p>
+     *
+     * <p>
+     * The level drawn from is between one and two times the size shown, and it is
+     * smoothed when shrunk further.
+     * A {@link MappedImage} level is copied a clip at a time into an ordinary
+     * image first, since Java2D would read it one pixel at a time.
+     * </p>
+     *
+     * <p>
+     * While an image is still being opened, its
+     * {@link EditableImage#getSubsampled() subsampled} copy is drawn stretched
+     * to the full size instead, and smoothed when enlarged.
+     * </p>
+     *
+     * @param g The graphics to draw with, in panel coordinates.
+     */
+    private void paintVisible(Graphics2D g) {
+        MipmapPyramid pyramid = getPyramid();
+        if (pyramid == null) {
+            return;
+        }
+        BufferedImage base = pyramid.getLevel(0);
+        double scaleX = scale * image.getWidth() / base.getWidth();
+        double scaleY = scale * image.getHeight() / base.getHeight();
+        int level = Math.min(MipmapPyramid.levelFor(Math.max(scaleX, scaleY)), pyramid.getLevelCount() - 1);
+        BufferedImage source = forDisplay(level);
+        double levelScaleX = scaleX * (1 << level);
+        double levelScaleY = scaleY * (1 << level);
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(getSize());
+        }
+        int x0 = Math.max(0, (int) Math.floor(clip.x / levelScaleX));
+        int y0 = Math.max(0, (int) Math.floor(clip.y / levelScaleY));
+        int x1 = Math.min(source.getWidth(), (int) Math.ceil((clip.x + clip.width) / levelScaleX));
+        int y1 = Math.min(source.getHeight(), (int) Math.ceil((clip.y + clip.height) / levelScaleY));
+        if (x1 <= x0 || y1 <= y0) {
+            return;
+        }
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.scale(levelScaleX, levelScaleY);
+        if (levelScaleX < 1 || base != image.getCurrentImage()) {
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        if (MappedImage.isMapped(source)) {
+            BufferedImage visible = new BufferedImage(x1 - x0, y1 - y0, BufferedImage.TYPE_INT_ARGB);
+            int[] pixels = new int[(x1 - x0) * (y1 - y0)];
+            Pixels.read(source, x0, y0, x1 - x0, y1 - y0, pixels, 0, x1 - x0);
+            Pixels.write(visible, pixels);
+            g2.drawImage(visible, x0, y0, null);
+        } else {
+            g2.drawImage(source, x0, y0, x1, y1, x0, y0, x1, y1, null);
+        }
+        g2.dispose();
+    }
+
+    /**
+     * <p>
+     * Get the scaled-down copies of the image shown, for drawing or previewing
+     * it zoomed out.
+     * </p>
+     *
+     * <p>
+     * The pyramid is made again whenever the image's
+     * {@link EditableImage#getVersion() version} changes.
+     * While an image is still being opened it is made from the
+     * {@link EditableImage#getSubsampled() subsampled} copy.
+     * This should only be called on the event dispatch thread.
+     * </p>
+     *
+     * @return The pyramid, or null if there is nothing to show.
+     */
+    public MipmapPyramid getPyramid() {
+        if (pyramid == null || pyramidVersion != image.getVersion()) {
+            long version = image.getVersion();
+            BufferedImage shown = image.getCurrentImage();
+            if (shown == null) {
+                shown = image.getSubsampled();
+            }
+            if (shown == null) {
+                return null;
+            }
+            pyramidVersion = version;
+            pyramid = new MipmapPyramid(shown);
+            displayLevels = null;
+        }
+        return pyramid;
+    }
+
+    /**
+     * <p>
+     * Get a level of the pyramid in a form that is quick to draw on this screen.
+     * </p>
+     *
+     * <p>
+     * Operations leave the image in whatever format they make, often one the
+     * screen does not use, and reading its pixels as an array stops Java2D from
+     * caching it in video memory.
+     * So the first time a level is drawn it is copied into an image made by the
+     * screen's {@link GraphicsConfiguration#createCompatibleImage}, which is
+     * only ever drawn on, and later repaints, for scrolling or dragging out a
+     * selection, draw the copy with no conversion.
+     * The copies are thrown away when the image changes or the panel moves to
+     * another screen.
+     * Mapped levels are not copied, since they are too big to keep on the heap.
+     * </p>
+     *
+     * @param level The level of the pyramid.
+     * @return A compatible copy of the level, or the level itself if there is no
+     *         screen or it is mapped.
+     */
+    private BufferedImage forDisplay(int level) {
+        BufferedImage source = pyramid.getLevel(level);
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null || MappedImage.isMapped(source)) {
+            return source;
+        }
+        if (displayLevels == null || gc != displayConfig) {
+            displayLevels = new BufferedImage[pyramid.getLevelCount()];
+            displayConfig = gc;
+        }
+        if (displayLevels[level] == null) {
+            // Levels of an opaque image are opaque too, and opaque images are the
+            // quickest to draw.
+            int transparency = pyramid.getLevel(0).getColorModel().getTransparency();
+            BufferedImage copy = gc.createCompatibleImage(source.getWidth(), source.getHeight(), transparency);
+            Graphics2D g = copy.createGraphics();
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(source, 0, 0, null);
+            g.dispose();
+            displayLevels[level] = copy;
+        }
+        return displayLevels[level];
+    }
+
     /**
      * The getSelection method returns the current selection.
      *
@@ -300,6 +493,26 @@ public class ImagePanel extends JPanel {
         repaint();
     }
 
+    /**
+     * <p>
+     * Show a preview over part of the image.
+     * </p>
+     *
+     * <p>
+     * The preview is stretched to cover the region, so it can be smaller than
+     * the region it shows.
+     * This is only used for {@link Preview}s; it does not change the image.
+     * </p>
+     *
+     * @param preview The preview to show, or null to remove it.
+     * @param region  The part of the image the preview covers.
+     */
+    public void setPreview(BufferedImage preview, Rectangle region) {
+        this.preview = preview;
+        this.previewRegion = region;
+        repaint();
+    }
+
     /**
      * <p>
      * Get the current scale as a decimal multiplier.
@@ -2,43 +2,81 @@ package cosc202.andie;
 
 import javax.swing.*;
 import java.awt.*;
+import java.text.MessageFormat;
 
 /**
  * <p>
  * This class is used to display a loading window.
  * </p>
- * 
+ *
  * <p>
- * The loading window is used to display a loading window while the program is
- * loading.
+ * The loading window shows how far through the current operation ANDIE is, how
+ * many more operations are waiting, and a button to cancel the current one.
+ * It is not modal, so the rest of the program can still be used, and more
+ * operations queued, while it is showing.
  * </p>
- * 
+ *
+ * @see OperationRunner
  * @author Josh Lawson
- * 
+ *
  * @version 1.0
  */
 public class LoadingWindow extends JDialog {
 
+    /** The bar showing the progress of the current operation. */
+    private final JProgressBar progressBar;
+
+    /** The label showing how many operations are waiting. */
+    private final JLabel queuedLabel;
+
     /**
      * <p>
-     * Construct a LoadingWindow object.
+     * Construct a LoadingWindow object with no progress to show.
      * </p>
-     * 
+     *
      * <p>
-     * The LoadingWindow object is constructed with a JFrame object that it will use
-     * to display the loading window.
+     * The window is modal and its bar just moves back and forth, for waiting on
+     * things like database queries whose progress is not known.
      * </p>
-     * 
      */
     public LoadingWindow() {
         super((Frame) null, "Loading...", true);
-        JProgressBar progressBar = new JProgressBar();
+        progressBar = new JProgressBar();
         progressBar.setIndeterminate(true);
+        queuedLabel = new JLabel(" ");
         getContentPane().add(progressBar);
         setSize(300, 75);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
-        System.out.println("New loading window");
+    }
+
+    /**
+     * <p>
+     * Construct a LoadingWindow object for operations on the image.
+     * </p>
+     *
+     * <p>
+     * The LoadingWindow is shown over the main ANDIE window.
+     * </p>
+     *
+     * @param onCancel What to do when the cancel button is pressed.
+     */
+    public LoadingWindow(Runnable onCancel) {
+        super(Andie.frame, Andie.bundle.getString("loading_title"), false);
+        progressBar = new JProgressBar(0, 1000);
+        queuedLabel = new JLabel(" ");
+        JButton cancelButton = new JButton(Andie.bundle.getString("loading_cancel"));
+        cancelButton.addActionListener(e -> onCancel.run());
+
+        JPanel panel = new JPanel(new BorderLayout(8, 8));
+        panel.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        panel.add(progressBar, BorderLayout.NORTH);
+        panel.add(queuedLabel, BorderLayout.CENTER);
+        panel.add(cancelButton, BorderLayout.EAST);
+        getContentPane().add(panel);
+        setSize(320, 100);
+        setLocationRelativeTo(Andie.frame);
+        setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
     }
 
     /**
@@ -47,10 +85,7 @@ public class LoadingWindow extends JDialog {
      * </p>
      */
     public void start() {
-        SwingUtilities.invokeLater(() -> {
-            System.out.println("start is called");
-            setVisible(true);
-        });
+        SwingUtilities.invokeLater(() -> setVisible(true));
     }
 
     /**
@@ -59,9 +94,25 @@ public class LoadingWindow extends JDialog {
      * </p>
      */
     public void stop() {
-        SwingUtilities.invokeLater(() -> {
-            System.out.println("stop is called");
-            setVisible(false);
-        });
+        SwingUtilities.invokeLater(() -> setVisible(false));
+    }
+
+    /**
+     * <p>
+     * Show the progress of the current operation and the number waiting.
+     * </p>
+     *
+     * <p>
+     * This must be called on the event dispatch thread.
+     * </p>
+     *
+     * @param fraction How much of the current operation is done, from 0 to 1.
+     * @param queued   The number of operations waiting after the current one.
+     */
+    public void update(double fraction, int queued) {
+        progressBar.setValue((int) Math.round(fraction * 1000));
+        queuedLabel.setText(queued > 0
+                ? MessageFormat.format(Andie.bundle.getString("loading_queued"), queued)
+                : " ");
     }
 }
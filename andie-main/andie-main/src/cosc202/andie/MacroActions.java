@@ -3,6 +3,7 @@ package cosc202.andie;
 import java.awt.event.*;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
@@ -160,7 +161,17 @@ public class MacroActions {
             String imageFilepath = fileChooser
                 .getSelectedFile()
                 .getCanonicalPath();
-            target.getImage().loadMacro(imageFilepath);
+            OperationRunner.submit(
+                target,
+                image -> {
+                  try {
+                    image.loadMacro(imageFilepath);
+                  } catch (CancellationException ex) {
+                    throw ex;
+                  } catch (Exception ex) {
+                    Andie.createErrorMessage(ex.getMessage());
+                  }
+                });
           } catch (Exception ex) {
             JOptionPane.showMessageDialog(
                 target,
@@ -169,8 +180,6 @@ public class MacroActions {
                 JOptionPane.ERROR_MESSAGE);
           }
         }
-        target.repaint();
-        target.getParent().revalidate();
       } else {
         try {
           Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -288,7 +297,7 @@ public class MacroActions {
             String imageFilepath = fileChooser
                 .getSelectedFile()
                 .getCanonicalPath();
-            target.getImage().saveMacro(imageFilepath);
+            OperationRunner.submit(target, image -> image.saveMacro(imageFilepath));
           } catch (Exception ex) {
             System.exit(1);
           }
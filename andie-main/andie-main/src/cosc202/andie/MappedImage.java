@@ -0,0 +1,424 @@
+package cosc202.andie;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * <p>
+ * Images whose pixels are kept in a memory-mapped file rather than on the
+ * heap.
+ * </p>
+ *
+ * <p>
+ * A 30000 by 30000 image takes 3.6 GB as packed ints, more than the heap ANDIE
+ * normally runs with, and editing needs two or three such images at once.
+ * Images over a threshold are therefore stored in a temporary file, mapped into
+ * memory in tiles of whole rows.
+ * The operating system only keeps the pages that are being read or written in
+ * memory, and writes the rest back to the file, so the heap only ever holds a
+ * strip of rows at a time.
+ * </p>
+ *
+ * <p>
+ * A mapped image is an ordinary {@link BufferedImage}, laid out like
+ * TYPE_INT_ARGB or TYPE_INT_RGB, so any code can draw on it or read it.
+ * Code that goes through {@link Pixels} and {@link TileScheduler} reads and
+ * writes whole rows of the tiles directly; anything else works, but one pixel
+ * at a time.
+ * Images made from a mapped image by {@link Pixels#createCompatible} are mapped
+ * as well.
+ * </p>
+ *
+ * <p>
+ * The threshold can be set with the <code>andie.mapped.threshold</code> system
+ * property, in bytes of pixel data, and is an eighth of the maximum heap size
+ * by default.
+ * The temporary files go in <code>andie.mapped.dir</code>, or the system's
+ * temporary directory, and are deleted as soon as they are mapped, so they
+ * never outlive ANDIE.
+ * A mapped image can have at most {@link Integer#MAX_VALUE} pixels, the most a
+ * {@link DataBuffer} can index.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see Pixels
+ * @version 1.0
+ */
+public class MappedImage {
+
+    /** The most bytes mapped as one tile. */
+    private static final int TILE_BYTES = 64 << 20;
+
+    /** The size of image, in bytes of pixels, above which images are mapped. */
+    private static final long THRESHOLD = Long.getLong("andie.mapped.threshold",
+            Runtime.getRuntime().maxMemory() / 8);
+
+    private MappedImage() {
+    }
+
+    /**
+     * <p>
+     * The pixels of a mapped image, as packed ints in tiles of whole rows.
+     * </p>
+     */
+    static class Store extends DataBuffer {
+        /** The tiles, each holding rowsPerTile rows except perhaps the last. */
+        private final IntBuffer[] tiles;
+        /** The number of pixels in a row. */
+        private final int width;
+        /** The number of rows in each tile. */
+        private final int rowsPerTile;
+
+        Store(int width, int height) throws IOException {
+            super(TYPE_INT, width * height);
+            this.width = width;
+            this.rowsPerTile = Math.max(1, TILE_BYTES / (4 * width));
+            this.tiles = new IntBuffer[(height + rowsPerTile - 1) / rowsPerTile];
+            String dir = System.getProperty("andie.mapped.dir", System.getProperty("java.io.tmpdir"));
+            Path file = Files.createTempFile(Paths.get(dir), "andie", ".pixels");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE)) {
+                for (int t = 0; t < tiles.length; t++) {
+                    long rows = Math.min(rowsPerTile, height - (long) t * rowsPerTile);
+                    tiles[t] = channel.map(FileChannel.MapMode.READ_WRITE, 4L * width * rowsPerTile * t,
+                            4L * width * rows).order(ByteOrder.nativeOrder()).asIntBuffer();
+                }
+            }
+        }
+
+        /**
+         * @param y A row of the image.
+         * @return The tile holding the row.
+         */
+        IntBuffer tile(int y) {
+            return tiles[y / rowsPerTile];
+        }
+
+        /**
+         * @param y A row of the image.
+         * @return The index of the start of the row in its tile.
+         */
+        int offset(int y) {
+            return (y % rowsPerTile) * width;
+        }
+
+        @Override
+        public int getElem(int bank, int i) {
+            int y = i / width;
+            return tile(y).get(offset(y) + i % width);
+        }
+
+        @Override
+        public void setElem(int bank, int i, int value) {
+            int y = i / width;
+            tile(y).put(offset(y) + i % width, value);
+        }
+    }
+
+    /**
+     * <p>
+     * Check whether an image of some size is big enough to be mapped.
+     * </p>
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @return True if the image's pixels would take more than the threshold.
+     */
+    public static boolean shouldMap(long width, long height) {
+        return 4 * width * height > THRESHOLD && width * height <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * <p>
+     * Check whether an image is kept in a mapped file.
+     * </p>
+     *
+     * @param image The image to check.
+     * @return True if the image was made by this class.
+     */
+    public static boolean isMapped(BufferedImage image) {
+        return image.getRaster().getDataBuffer() instanceof Store;
+    }
+
+    /**
+     * <p>
+     * Get the pixels of a mapped image, so they can be read by row.
+     * </p>
+     *
+     * <p>
+     * An image made with getSubimage, such as a {@link Crop}, shares its
+     * parent's store; its pixel (x, y) is at (x - tx, y - ty) in the store,
+     * where tx and ty are the sample model translation of its raster.
+     * </p>
+     *
+     * @param image The image.
+     * @return The store, or null if the image is not mapped.
+     */
+    static Store storeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return buffer instanceof Store ? (Store) buffer : null;
+    }
+
+    /**
+     * <p>
+     * Create an empty mapped image.
+     * </p>
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param alpha  True for an image laid out like TYPE_INT_ARGB, false for
+     *               TYPE_INT_RGB.
+     * @return A new image, with every pixel zero.
+     * @throws UncheckedIOException If the file cannot be made.
+     */
+    public static BufferedImage create(int width, int height, boolean alpha) {
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Image is too large: " + width + " x " + height);
+        }
+        DirectColorModel cm = alpha
+                ? new DirectColorModel(32, 0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000)
+                : new DirectColorModel(24, 0x00FF0000, 0x0000FF00, 0x000000FF, 0);
+        Store store;
+        try {
+            store = new Store(width, height);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot map an image of " + width + " x " + height, ex);
+        }
+        SinglePixelPackedSampleModel sm = new SinglePixelPackedSampleModel(DataBuffer.TYPE_INT, width, height,
+                cm.getMasks());
+        return new BufferedImage(cm, Raster.createWritableRaster(sm, store, new Point()), false, null);
+    }
+
+    /**
+     * <p>
+     * Create an empty mapped image laid out like another image.
+     * </p>
+     *
+     * @param image  The image to copy the layout of.
+     * @param width  The width of the new image.
+     * @param height The height of the new image.
+     * @return A new mapped image, with alpha if the input has it.
+     */
+    public static BufferedImage createCompatible(BufferedImage image, int width, int height) {
+        return create(width, height, image.getColorModel().hasAlpha());
+    }
+
+    /**
+     * <p>
+     * Copy an image into a new mapped image.
+     * </p>
+     *
+     * @param image The image to copy.
+     * @return A mapped copy of the image.
+     */
+    public static BufferedImage copy(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage copy = createCompatible(image, width, height);
+        int rows = Math.max(1, Pixels.STRIP_PIXELS / width);
+        int[] strip = new int[rows * width];
+        for (int y = 0; y < height; y += rows) {
+            int h = Math.min(rows, height - y);
+            Pixels.read(image, 0, y, width, h, strip, 0, width);
+            Pixels.write(copy, 0, y, width, h, strip, 0, width);
+        }
+        return copy;
+    }
+
+    /**
+     * <p>
+     * Read an image from a file, into a mapped image if it is big enough.
+     * </p>
+     *
+     * <p>
+     * A big image with 8-bit red, green and blue samples, and perhaps alpha, is
+     * decoded straight into the mapped file, so it never has to fit on the heap.
+     * Other big images, such as grey or paletted ones, are decoded a strip of
+     * rows at a time; for some formats each strip decodes the rows above it
+     * again, so this is slower.
+     * Smaller images are read with {@link ImageReader#read(int)} as usual.
+     * </p>
+     *
+     * <p>
+     * If the calling thread has a {@link Progress}, the reading is counted in
+     * it, and cancelling it stops the reader part way through.
+     * </p>
+     *
+     * @param file The file to read.
+     * @return The image, or null if no reader understands the file.
+     * @throws IOException           If the file cannot be read.
+     * @throws CancellationException If the progress was cancelled.
+     */
+    public static BufferedImage read(File file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            if (in == null) {
+                throw new IOException("Cannot open " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            Progress progress = Progress.current();
+            try {
+                reader.setInput(in, false, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                ImageTypeSpecifier type = shouldMap(width, height) ? reader.getImageTypes(0).next() : null;
+                if (type == null || isPackable(type)) {
+                    if (progress != null) {
+                        reader.addIIOReadProgressListener(new ReadProgress(progress));
+                    }
+                    BufferedImage image;
+                    if (type == null) {
+                        image = reader.read(0);
+                    } else {
+                        ImageReadParam param = reader.getDefaultReadParam();
+                        param.setDestination(create(width, height, type.getColorModel().hasAlpha()));
+                        image = reader.read(0, param);
+                    }
+                    if (progress != null) {
+                        progress.checkCancelled();
+                    }
+                    return image;
+                }
+                BufferedImage image = create(width, height, type.getColorModel().hasAlpha());
+                ImageReadParam param = reader.getDefaultReadParam();
+                int rows = Math.max(1, Pixels.STRIP_PIXELS / width);
+                int[] strip = new int[rows * width];
+                if (progress != null) {
+                    progress.expect(height);
+                }
+                for (int y = 0; y < height; y += rows) {
+                    int h = Math.min(rows, height - y);
+                    param.setSourceRegion(new Rectangle(0, y, width, h));
+                    Pixels.read(reader.read(0, param), 0, 0, width, h, strip, 0, width);
+                    Pixels.write(image, 0, y, width, h, strip, 0, width);
+                    if (progress != null) {
+                        progress.advance(h);
+                        progress.checkCancelled();
+                    }
+                }
+                return image;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Counts a reader's percentage done in a {@link Progress}, and aborts the
+     * reader once the progress is cancelled.
+     * </p>
+     */
+    private static class ReadProgress implements IIOReadProgressListener {
+        /** The progress to count in. */
+        private final Progress progress;
+        /** The whole percentage counted so far. */
+        private long counted;
+
+        ReadProgress(Progress progress) {
+            this.progress = progress;
+            progress.expect(100);
+        }
+
+        @Override
+        public void imageProgress(ImageReader source, float percentageDone) {
+            long done = Math.min(100, (long) percentageDone);
+            progress.advance(done - counted);
+            counted = done;
+            if (progress.isCancelled()) {
+                source.abort();
+            }
+        }
+
+        @Override
+        public void imageComplete(ImageReader source) {
+            progress.advance(100 - counted);
+            counted = 100;
+        }
+
+        @Override
+        public void sequenceStarted(ImageReader source, int minIndex) {
+        }
+
+        @Override
+        public void sequenceComplete(ImageReader source) {
+        }
+
+        @Override
+        public void imageStarted(ImageReader source, int imageIndex) {
+        }
+
+        @Override
+        public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {
+        }
+
+        @Override
+        public void thumbnailProgress(ImageReader source, float percentageDone) {
+        }
+
+        @Override
+        public void thumbnailComplete(ImageReader source) {
+        }
+
+        @Override
+        public void readAborted(ImageReader source) {
+        }
+    }
+
+    /**
+     * <p>
+     * Check whether a reader can write its samples straight into a mapped
+     * image.
+     * </p>
+     *
+     * @param type The kind of image the reader makes.
+     * @return True if it has red, green and blue bands, and perhaps alpha, of 8
+     *         bits each.
+     */
+    private static boolean isPackable(ImageTypeSpecifier type) {
+        ColorModel cm = type.getColorModel();
+        if (cm instanceof IndexColorModel || cm.getColorSpace().getType() != ColorSpace.TYPE_RGB
+                || type.getNumBands() != (cm.hasAlpha() ? 4 : 3) || cm.isAlphaPremultiplied()) {
+            return false;
+        }
+        for (int bits : cm.getComponentSize()) {
+            if (bits != 8) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
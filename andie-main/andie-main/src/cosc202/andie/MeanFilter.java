@@ -1,7 +1,6 @@
 package cosc202.andie;
 
 import java.awt.image.*;
-import java.util.*;
 
 /**
  * <p>
@@ -23,7 +22,12 @@ import java.util.*;
  * @author Steven Mills
  * @version 1.0
  */
-public class MeanFilter implements ImageOperation, java.io.Serializable {
+public class MeanFilter implements TiledImageOperation, java.io.Serializable {
+
+    /**
+     * Fixed so that operations saved by earlier versions of ANDIE still load.
+     */
+    private static final long serialVersionUID = 7175990590422425474L;
 
     /**
      * The size of filter to apply. A radius of 1 is a 3x3 filter, a radius of 2 a
@@ -72,24 +76,37 @@ public class MeanFilter implements ImageOperation, java.io.Serializable {
      * As with many filters, the Mean filter is implemented via convolution.
      * The size of the convolution kernel is specified by the radius.
      * Larger radii lead to stronger blurring.
+     * The filter is done with running sums rather than a full kernel, so it
+     * takes the same time per pixel for any radius.
      * </p>
      * 
      * @param input The image to apply the Mean filter to.
      * @return The resulting (blurred)) image.
      */
     public BufferedImage apply(BufferedImage input) {
-        int size = (2 * radius + 1) * (2 * radius + 1);
-        float[] array = new float[size];
-        Arrays.fill(array, 1.0f / size);
-
-        Kernel kernel = new Kernel(2 * radius + 1, 2 * radius + 1, array);
-        System.out.println("Before convolve");
-
-        BufferedImage output = Convolve.filter(input, kernel, false);
+        return TileScheduler.apply(this, input);
+    }
 
-        System.out.println("After convolve");
+    /**
+     * <p>
+     * Get the halo the filter needs, which is its radius.
+     * </p>
+     *
+     * @return The radius of the filter.
+     */
+    public int getHalo() {
+        return radius;
+    }
 
-        return output;
+    /**
+     * <p>
+     * Average a band of rows with running sums.
+     * </p>
+     *
+     * @see TiledImageOperation#applyTile(int[], int, int[], int, int, int)
+     */
+    public void applyTile(int[] source, int sourceWidth, int[] output, int width, int y0, int y1) {
+        Convolve.boxRows(source, sourceWidth, radius, output, width, y0, y1);
     }
 
 }
@@ -1,15 +1,7 @@
 package cosc202.andie;
 
-import java.awt.Color;
-import java.awt.Graphics;
 import java.awt.image.*;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import javax.swing.JDialog;
-import javax.swing.JFrame;
-import javax.swing.JLabel;
-import javax.swing.JProgressBar;
 
 /**
  * <p>
@@ -34,7 +26,12 @@ import javax.swing.JProgressBar;
  * @version 1.0
  */
 
-public class MedianFilter implements ImageOperation, java.io.Serializable {
+public class MedianFilter implements TiledImageOperation, java.io.Serializable {
+
+    /**
+     * Fixed so that operations saved by earlier versions of ANDIE still load.
+     */
+    private static final long serialVersionUID = 2587057200518405706L;
 
     /**
      * The size of the filter to apply. A radius of 1 is a 3x3 filter, a radius of 2
@@ -80,6 +77,9 @@ public class MedianFilter implements ImageOperation, java.io.Serializable {
      * value of the pixels in its surrounding neighborhood, as specified by the
      * {@link radius}.
      * Larger Radii lead to a stronger effect.
+     * Pixels outside the image are treated as copies of the nearest edge pixel,
+     * and each pixel keeps its own alpha value.
+     * The input image is not changed.
      * </p>
      * 
      * @param input The image to apply the Median filter to.
@@ -87,45 +87,149 @@ public class MedianFilter implements ImageOperation, java.io.Serializable {
      */
 
     public BufferedImage apply(BufferedImage input) {
-        int imgHeight = input.getHeight();
-        int imgWidth = input.getWidth();
-        int size = (2 * radius + 1) * (2 * radius + 1);
-        int[] rMedian = new int[size];
-        int[] gMedian = new int[size];
-        int[] bMedian = new int[size];
-        int kIndex = 0;
-        Color nColor = new Color(0);
-        for (int y = 0; y < imgHeight; y++) {
-            for (int x = 0; x < imgWidth; x++) {
-
-                for (int kx = x - radius; kx <= x + radius; kx++) {
-                    for (int ky = y - radius; ky <= y + radius; ky++) {
-
-                        try {
-                            nColor = new Color(input.getRGB(kx, ky), true);
-                            rMedian[kIndex] = nColor.getRed();
-                            gMedian[kIndex] = nColor.getGreen();
-                            bMedian[kIndex] = nColor.getBlue();
-                            kIndex++;
-                        } catch (ArrayIndexOutOfBoundsException e) {
-                        }
-                    }
-                }
-                kIndex = 0;
-                Arrays.sort(rMedian);
-                Arrays.sort(gMedian);
-                Arrays.sort(bMedian);
+        return TileScheduler.apply(this, input);
+    }
 
-                Color fCol = new Color(rMedian[rMedian.length / 2], gMedian[gMedian.length /
-                        2],
-                        bMedian[bMedian.length / 2], nColor.getAlpha());
-                input.setRGB(x, y, fCol.getRGB());
+    /**
+     * <p>
+     * Get the halo the filter needs, which is its radius.
+     * </p>
+     *
+     * @return The radius of the filter.
+     */
+    public int getHalo() {
+        return radius;
+    }
 
+    /**
+     * <p>
+     * Find the medians for a band of rows.
+     * </p>
+     *
+     * @see TiledImageOperation#applyTile(int[], int, int[], int, int, int)
+     */
+    public void applyTile(int[] source, int sourceWidth, int[] output, int width, int y0, int y1) {
+        medianRows(source, sourceWidth, radius, output, width, y0, y1);
+    }
+
+    /**
+     * <p>
+     * Apply the median filter to a band of rows from a padded array.
+     * </p>
+     * 
+     * <p>
+     * This uses Huang's sliding histogram method.
+     * Each row starts with a histogram of every red, green and blue value in the
+     * window around its first pixel.
+     * As the window moves one pixel right, the column of pixels leaving it is
+     * removed from the histograms and the column entering it is added, so only
+     * 2 * (2 * radius + 1) values change per pixel instead of sorting the whole
+     * window.
+     * The median of each channel is tracked along with the number of values below
+     * it, and only moves by a few steps each time the window moves.
+     * </p>
+     * 
+     * @param padded      The source pixels with a border of radius on every side.
+     * @param paddedWidth The number of pixels per row of padded.
+     * @param radius      The radius of the filter.
+     * @param output      The array to write output pixels to, width per row.
+     * @param width       The width of the output.
+     * @param y0          The first output row to compute.
+     * @param y1          One past the last output row to compute.
+     */
+    private static void medianRows(int[] padded, int paddedWidth, int radius, int[] output, int width,
+            int y0, int y1) {
+        int side = 2 * radius + 1;
+        // The median is the value with this many values below it in the window.
+        int half = side * side / 2;
+        int[] red = new int[256];
+        int[] green = new int[256];
+        int[] blue = new int[256];
+
+        for (int y = y0; y < y1; y++) {
+            Arrays.fill(red, 0);
+            Arrays.fill(green, 0);
+            Arrays.fill(blue, 0);
+            for (int ky = 0; ky < side; ky++) {
+                int row = (y + ky) * paddedWidth;
+                for (int kx = 0; kx < side; kx++) {
+                    int p = padded[row + kx];
+                    red[(p >> 16) & 0xFF]++;
+                    green[(p >> 8) & 0xFF]++;
+                    blue[p & 0xFF]++;
+                }
+            }
+            int mr = 0;
+            int mg = 0;
+            int mb = 0;
+            int ltr = 0;
+            int ltg = 0;
+            int ltb = 0;
+            while (ltr + red[mr] <= half) {
+                ltr += red[mr++];
+            }
+            while (ltg + green[mg] <= half) {
+                ltg += green[mg++];
+            }
+            while (ltb + blue[mb] <= half) {
+                ltb += blue[mb++];
             }
 
-        }
-        return input;
+            int centre = (y + radius) * paddedWidth + radius;
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                int alpha = padded[centre + x] >>> 24;
+                output[out + x] = (alpha << 24) | (mr << 16) | (mg << 8) | mb;
+                if (x + 1 == width) {
+                    break;
+                }
 
+                // Slide the window one pixel to the right, keeping count of how
+                // many values are below each median.
+                for (int row = y * paddedWidth + x, end = row + side * paddedWidth; row < end; row += paddedWidth) {
+                    int leaving = padded[row];
+                    int entering = padded[row + side];
+                    int v = (leaving >> 16) & 0xFF;
+                    red[v]--;
+                    ltr -= v < mr ? 1 : 0;
+                    v = (entering >> 16) & 0xFF;
+                    red[v]++;
+                    ltr += v < mr ? 1 : 0;
+                    v = (leaving >> 8) & 0xFF;
+                    green[v]--;
+                    ltg -= v < mg ? 1 : 0;
+                    v = (entering >> 8) & 0xFF;
+                    green[v]++;
+                    ltg += v < mg ? 1 : 0;
+                    v = leaving & 0xFF;
+                    blue[v]--;
+                    ltb -= v < mb ? 1 : 0;
+                    v = entering & 0xFF;
+                    blue[v]++;
+                    ltb += v < mb ? 1 : 0;
+                }
+
+                // Move each median until it has the right number of values below it.
+                while (ltr > half) {
+                    ltr -= red[--mr];
+                }
+                while (ltr + red[mr] <= half) {
+                    ltr += red[mr++];
+                }
+                while (ltg > half) {
+                    ltg -= green[--mg];
+                }
+                while (ltg + green[mg] <= half) {
+                    ltg += green[mg++];
+                }
+                while (ltb > half) {
+                    ltb -= blue[--mb];
+                }
+                while (ltb + blue[mb] <= half) {
+                    ltb += blue[mb++];
+                }
+            }
+        }
     }
 
     /**
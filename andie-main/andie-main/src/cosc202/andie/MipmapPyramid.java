@@ -0,0 +1,102 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Copies of an image at half, quarter, eighth, ... size, for drawing it zoomed
+ * out.
+ * </p>
+ *
+ * <p>
+ * Level 0 is the image itself, and each level after it is half the width and
+ * height of the one before, each pixel the average of four.
+ * To draw the image at some scale, {@link ImagePanel} picks the smallest level
+ * that is still at least as big as the scale needs, so drawing reads at most
+ * about four image pixels for each screen pixel however far out it is zoomed.
+ * Averaging first also avoids the shimmering that skipping pixels gives.
+ * </p>
+ *
+ * <p>
+ * Levels are made the first time they are asked for, each from the one before
+ * by {@link Resampler#halve}.
+ * The levels of a {@link MappedImage} are mapped as well while they are big
+ * enough to need it.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see ImagePanel
+ * @version 1.0
+ */
+public class MipmapPyramid {
+
+    /** The levels made so far, starting with the image itself. */
+    private final List<BufferedImage> levels = new ArrayList<BufferedImage>();
+
+    /**
+     * <p>
+     * Create a pyramid for an image.
+     * </p>
+     *
+     * @param image The full size image, which must not change while the pyramid
+     *              is in use.
+     */
+    public MipmapPyramid(BufferedImage image) {
+        levels.add(image);
+    }
+
+    /**
+     * <p>
+     * Work out which level to draw from for a scale.
+     * </p>
+     *
+     * @param scale The scale the image is drawn at, 1.0 for full size.
+     * @return The deepest level whose size is no smaller than the scale needs,
+     *         which may be past the last level.
+     */
+    public static int levelFor(double scale) {
+        int level = 0;
+        while (scale <= 0.5) {
+            scale *= 2;
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * <p>
+     * Get the number of levels, down to the one that is a single pixel.
+     * </p>
+     *
+     * @return The number of levels, at least 1.
+     */
+    public int getLevelCount() {
+        BufferedImage image = levels.get(0);
+        int size = Math.max(image.getWidth(), image.getHeight());
+        return 33 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * <p>
+     * Get a level of the pyramid, making it if needed.
+     * </p>
+     *
+     * @param level The level, where 0 is the full size image; levels past the
+     *              last give the last level.
+     * @return The image at that level, (width / 2^level) by (height / 2^level)
+     *         rounded up.
+     */
+    public synchronized BufferedImage getLevel(int level) {
+        level = Math.min(level, getLevelCount() - 1);
+        while (levels.size() <= level) {
+            levels.add(Resampler.halve(levels.get(levels.size() - 1)));
+        }
+        return levels.get(level);
+    }
+}
@@ -1,6 +1,5 @@
 package cosc202.andie;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
 
 /**
@@ -24,7 +23,10 @@ import java.awt.image.BufferedImage;
  * @author Lucy Hadden
  * @version 1.0
  */
-public class NegativeFilter implements ImageOperation, java.io.Serializable {
+public class NegativeFilter implements PointOperation, java.io.Serializable {
+
+    private static final long serialVersionUID = 1103267991311926303L;
+
     /**
      * The level of negative to apply.
      */
@@ -65,37 +67,59 @@ public class NegativeFilter implements ImageOperation, java.io.Serializable {
      *         been applied
      */
     public BufferedImage apply(BufferedImage input) {
-        int width = input.getWidth();
-        int height = input.getHeight();
-
-        // Create a new BufferedImage object with the same dimensions as the input image
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
-        // Get the pixel data from the input image
-        int[] pixels = new int[width * height];
-        input.getRGB(0, 0, width, height, pixels, 0, width);
-
-        // Apply the negative operation to each pixel in the input image
-        for (int i = 0; i < pixels.length; i++) {
-            int pixel = pixels[i];
-            int r = negative - ((pixel >> 16) & 0xff); // Invert and adjust red component
-            int g = negative - ((pixel >> 8) & 0xff); // Invert and adjust green component
-            int b = negative - (pixel & 0xff); // Invert and adjust blue component
-
-            // Clip the color values to ensure they are within the valid range
-            r = Math.max(0, Math.min(255, r));
-            g = Math.max(0, Math.min(255, g));
-            b = Math.max(0, Math.min(255, b));
+        return TileScheduler.apply(this, input);
+    }
 
-            // Create the new pixel value with the inverted and adjusted color components
-            int newPixel = (pixel & 0xff000000) | (r << 16) | (g << 8) | b;
+    /**
+     * <p>
+     * Invert and adjust one colour channel.
+     * </p>
+     *
+     * @param c The channel value, from 0 to 255.
+     * @return The inverted value, clipped to 0 to 255.
+     */
+    private int invert(int c) {
+        // Clip the color values to ensure they are within the valid range
+        return Math.max(0, Math.min(255, negative - c));
+    }
 
-            // Set the new pixel value in the result image
-            result.setRGB(i % width, i / width, newPixel);
+    /**
+     * <p>
+     * Build a lookup table that maps each channel value to its negative.
+     * </p>
+     *
+     * @return The new value for each of the 256 channel values.
+     */
+    public int[] getLookupTable() {
+        int[] lookupTable = new int[256];
+        for (int i = 0; i < 256; i++) {
+            lookupTable[i] = invert(i);
         }
+        return lookupTable;
+    }
 
-        // Return the resulting BufferedImage object after the negative operation has
-        // been applied
-        return result;
+    /**
+     * <p>
+     * Apply the negative operation to one pixel.
+     * </p>
+     *
+     * @param argb The input pixel.
+     * @return The inverted pixel, which is opaque since the result has no alpha.
+     */
+    public int filterPixel(int argb) {
+        return 0xFF000000 | (invert((argb >> 16) & 0xff) << 16) | (invert((argb >> 8) & 0xff) << 8)
+                | invert(argb & 0xff);
+    }
+
+    /**
+     * <p>
+     * Create an opaque RGB image to hold the result.
+     * </p>
+     *
+     * @param input The image the filter is being applied to.
+     * @return A new TYPE_INT_RGB image the same size as the input.
+     */
+    public BufferedImage createOutput(BufferedImage input) {
+        return Pixels.create(input, input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
     }
 }
@@ -0,0 +1,59 @@
+package cosc202.andie;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * <p>
+ * A Java Flight Recorder event for one image operation.
+ * </p>
+ *
+ * <p>
+ * {@link OperationStats#apply} commits one of these for each operation when a
+ * recording is running, for example with
+ * {@code java -XX:StartFlightRecording=filename=andie.jfr,dumponexit=true ...}.
+ * The event's duration is the operation's wall time.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @version 1.0
+ */
+@Name("cosc202.andie.Operation")
+@Label("Image Operation")
+@Category("ANDIE")
+@Description("An ImageOperation applied to an image")
+@StackTrace(false)
+class OperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("CPU Time")
+    @Description("CPU time of the applying thread and of the tiles it handed to other threads")
+    @Timespan(Timespan.NANOSECONDS)
+    long cpuTime;
+
+    @Label("Allocated")
+    @Description("Memory allocated by the applying thread and by the tiles it handed to other threads")
+    @DataAmount
+    long allocated;
+
+    @Label("Megapixels per Second")
+    double megapixelsPerSecond;
+}
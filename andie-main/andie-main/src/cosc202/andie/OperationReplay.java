@@ -0,0 +1,125 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Applies a list of operations to an image, the way ANDIE replays them.
+ * </p>
+ *
+ * <p>
+ * Runs of {@link PointOperation}s next to each other in the list are applied
+ * together by {@link FusedPointOperation}, so a long series of colour
+ * adjustments only passes over the image once.
+ * Runs of {@link GeometricOperation}s are likewise composed by
+ * {@link ComposedTransform}, so rotating back and forth costs nothing.
+ * Every other operation is applied through {@link OperationStats}.
+ * </p>
+ *
+ * <p>
+ * {@link EditableImage} uses this to rebuild its image when undoing, and
+ * {@link BatchProcessor} to process each file, so both give the same result.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @version 1.0
+ */
+final class OperationReplay {
+
+    /**
+     * <p>
+     * Told about the images made part way through a replay, so they can be
+     * kept.
+     * </p>
+     */
+    interface Checkpoints {
+        /**
+         * @param depth  The number of operations in the list applied so far.
+         * @param image  The image after them.
+         * @param millis How long the last step took, in milliseconds.
+         */
+        void offer(int depth, BufferedImage image, long millis);
+    }
+
+    /** Keeps nothing. */
+    static final Checkpoints NONE = (depth, image, millis) -> {
+    };
+
+    private OperationReplay() {
+    }
+
+    /**
+     * <p>
+     * Apply some of a list of operations to an image.
+     * </p>
+     *
+     * <p>
+     * Checkpoints are offered after each operation applied on its own and
+     * after each run of geometric operations, but not inside runs, whose
+     * intermediate images are never made.
+     * </p>
+     *
+     * @param ops         The operations.
+     * @param from        The index of the first operation to apply.
+     * @param to          One past the index of the last operation to apply.
+     * @param image       The image to apply them to, which is the result of
+     *                    the first {@code from} operations.
+     * @param checkpoints Told about images part way through.
+     * @return The result of the first {@code to} operations.
+     */
+    static BufferedImage replay(List<? extends ImageOperation> ops, int from, int to, BufferedImage image,
+            Checkpoints checkpoints) {
+        List<PointOperation> run = new ArrayList<PointOperation>();
+        List<GeometricOperation> moves = new ArrayList<GeometricOperation>();
+        for (int i = from; i < to; i++) {
+            ImageOperation op = ops.get(i);
+            if (op instanceof GeometricOperation) {
+                image = FusedPointOperation.applyAll(run, image);
+                run.clear();
+                moves.add((GeometricOperation) op);
+                continue;
+            }
+            image = applyMoves(moves, image, i, checkpoints);
+            if (op instanceof PointOperation) {
+                run.add((PointOperation) op);
+                continue;
+            }
+            image = FusedPointOperation.applyAll(run, image);
+            run.clear();
+            long start = System.currentTimeMillis();
+            image = OperationStats.apply(op, image);
+            checkpoints.offer(i + 1, image, System.currentTimeMillis() - start);
+        }
+        image = applyMoves(moves, image, to, checkpoints);
+        return FusedPointOperation.applyAll(run, image);
+    }
+
+    /**
+     * <p>
+     * Apply a run of geometric operations as one, and offer the result.
+     * </p>
+     *
+     * @param moves       The run, which is emptied.
+     * @param image       The image to apply it to.
+     * @param depth       The number of operations done once the run is applied.
+     * @param checkpoints Told about the result.
+     * @return The image after the run.
+     */
+    private static BufferedImage applyMoves(List<GeometricOperation> moves, BufferedImage image, int depth,
+            Checkpoints checkpoints) {
+        if (moves.isEmpty()) {
+            return image;
+        }
+        long start = System.currentTimeMillis();
+        image = ComposedTransform.applyAll(moves, image);
+        moves.clear();
+        checkpoints.offer(depth, image, System.currentTimeMillis() - start);
+        return image;
+    }
+}
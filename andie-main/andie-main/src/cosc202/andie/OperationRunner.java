@@ -0,0 +1,223 @@
+package cosc202.andie;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * <p>
+ * Runs image operations in the background, so the user interface stays
+ * responsive.
+ * </p>
+ *
+ * <p>
+ * Applying an operation to a large image can take seconds.
+ * If that were done in an action's callback, on the Swing event dispatch
+ * thread, the window could not repaint or respond until it finished.
+ * Instead, actions hand their work to this class, which runs it on a single
+ * background thread.
+ * Jobs run one at a time in the order they were submitted, so the user can
+ * queue more operations, or undo and redo, while one is running.
+ * </p>
+ *
+ * <p>
+ * If a job takes more than a moment, a {@link LoadingWindow} shows its
+ * {@link Progress} and lets the user cancel it.
+ * A cancelled operation leaves the image as it was.
+ * When each job finishes, the image panel is repainted.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see Progress
+ * @version 1.0
+ */
+public class OperationRunner {
+
+    /** How long a job must run before the loading window is shown, in milliseconds. */
+    private static final int SHOW_DELAY = 300;
+
+    /** How often the loading window is updated, in milliseconds. */
+    private static final int UPDATE_INTERVAL = 100;
+
+    /** The thread jobs run on. */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ANDIE operations");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The number of jobs submitted that have not finished. */
+    private static final AtomicInteger pending = new AtomicInteger();
+
+    /** Increased by {@link #cancelAll()}, so jobs submitted before it are skipped. */
+    private static final AtomicInteger generation = new AtomicInteger();
+
+    /** The progress of the running job, if there is one. */
+    private static volatile Progress running;
+
+    /** The loading window, made when first needed. Only used on the event dispatch thread. */
+    private static LoadingWindow window;
+
+    /** The timer that updates the loading window. Only used on the event dispatch thread. */
+    private static Timer monitor;
+
+    /** When the loading window's timer started, in milliseconds. */
+    private static long busySince;
+
+    private OperationRunner() {
+    }
+
+    /**
+     * <p>
+     * Queue an operation to be applied to the image in a panel.
+     * </p>
+     *
+     * @param target The panel showing the image.
+     * @param op     The operation to apply.
+     * @return A future that completes when the operation has been applied or
+     *         cancelled.
+     */
+    public static Future<?> apply(ImagePanel target, ImageOperation op) {
+        return submit(target, image -> image.apply(op));
+    }
+
+    /**
+     * <p>
+     * Queue some work to be done on the image in a panel.
+     * </p>
+     *
+     * <p>
+     * The work runs on the background thread with its own {@link Progress}.
+     * If it is cancelled it is abandoned quietly, and if it fails an error
+     * message is shown.
+     * Either way the panel is repainted afterwards.
+     * </p>
+     *
+     * @param target The panel showing the image.
+     * @param job    The work to do with the panel's image.
+     * @return A future that completes when the work is done.
+     */
+    public static Future<?> submit(ImagePanel target, Consumer<EditableImage> job) {
+        int submitted = generation.get();
+        pending.incrementAndGet();
+        SwingUtilities.invokeLater(OperationRunner::startMonitor);
+        return EXECUTOR.submit(() -> {
+            Progress progress = new Progress();
+            running = progress;
+            Progress.setCurrent(progress);
+            try {
+                if (submitted == generation.get()) {
+                    job.accept(target.getImage());
+                }
+            } catch (CancellationException ex) {
+                // The image was left as it was; there is nothing else to do.
+            } catch (RuntimeException | OutOfMemoryError ex) {
+                ex.printStackTrace();
+                Andie.createErrorMessage(Andie.bundle.getString("operation_error"));
+            } finally {
+                Progress.setCurrent(null);
+                running = null;
+                pending.decrementAndGet();
+                SwingUtilities.invokeLater(() -> {
+                    target.repaint();
+                    if (target.getParent() != null) {
+                        target.getParent().revalidate();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Cancel the running job, if there is one.
+     * </p>
+     *
+     * <p>
+     * Jobs waiting in the queue still run.
+     * </p>
+     */
+    public static void cancel() {
+        Progress progress = running;
+        if (progress != null) {
+            progress.cancel();
+        }
+    }
+
+    /**
+     * <p>
+     * Cancel the running job and skip every job waiting in the queue.
+     * </p>
+     *
+     * <p>
+     * This is used before a different image is opened, since the queued
+     * operations were meant for the old one.
+     * </p>
+     */
+    public static void cancelAll() {
+        generation.incrementAndGet();
+        cancel();
+    }
+
+    /**
+     * <p>
+     * Check whether any jobs are running or waiting.
+     * </p>
+     *
+     * @return True if there is work still to do.
+     */
+    public static boolean isBusy() {
+        return pending.get() > 0;
+    }
+
+    /**
+     * <p>
+     * Start updating the loading window while there are jobs to do.
+     * </p>
+     */
+    private static void startMonitor() {
+        if (monitor == null) {
+            monitor = new Timer(UPDATE_INTERVAL, e -> updateMonitor());
+        }
+        if (!monitor.isRunning()) {
+            busySince = System.currentTimeMillis();
+            monitor.start();
+        }
+    }
+
+    /**
+     * <p>
+     * Show, update or hide the loading window.
+     * </p>
+     */
+    private static void updateMonitor() {
+        int jobs = pending.get();
+        if (jobs == 0) {
+            monitor.stop();
+            if (window != null) {
+                window.setVisible(false);
+            }
+            return;
+        }
+        if (System.currentTimeMillis() - busySince < SHOW_DELAY) {
+            return;
+        }
+        if (window == null) {
+            window = new LoadingWindow(OperationRunner::cancel);
+        }
+        Progress progress = running;
+        window.update(progress == null ? 0 : progress.getFraction(), jobs - 1);
+        if (!window.isVisible()) {
+            window.setVisible(true);
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * <p>
+ * Measures every {@link ImageOperation} ANDIE applies.
+ * </p>
+ *
+ * <p>
+ * Code that applies an operation to the image calls {@link #apply} rather than
+ * {@link ImageOperation#apply} directly.
+ * That records how long the operation took, the CPU time and memory it used,
+ * and how many megapixels per second it managed.
+ * The measurements can be read in three ways:
+ * </p>
+ * <ul>
+ * <li>the diagnostics window in the View menu;</li>
+ * <li>the {@code cosc202.andie:type=OperationStats} MBean, in JConsole or any
+ * other JMX client; and</li>
+ * <li>{@code cosc202.andie.Operation} events in a Java Flight Recorder
+ * recording.</li>
+ * </ul>
+ *
+ * <p>
+ * CPU time and memory are measured per thread rather than for the whole
+ * program, so operations running at the same time, as in batch mode, do not
+ * count each other's work.
+ * The applying thread is measured around the whole operation, and the
+ * {@link TileScheduler} measures each band it runs in its fork-join pool and
+ * adds it to the operation's {@link Usage}, carried to the pool the same way
+ * as the {@link Progress}.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see OperationStatsMXBean
+ * @version 1.0
+ */
+public class OperationStats implements OperationStatsMXBean {
+
+    /** How many of the most recent operations are kept. */
+    private static final int RECENT = 50;
+
+    /** The stats for the whole program. */
+    private static final OperationStats INSTANCE = new OperationStats();
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+                    new ObjectName("cosc202.andie:type=OperationStats"));
+        } catch (JMException | SecurityException ex) {
+            // Measuring still works without JMX.
+        }
+    }
+
+    /** Reads the CPU time and memory allocated by threads, if the JVM can. */
+    private static final com.sun.management.ThreadMXBean THREADS = ManagementFactory
+            .getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                    ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()
+                    : null;
+
+    /** The totals for each kind of operation, in the order first seen. */
+    private final Map<String, Summary> summaries = new LinkedHashMap<String, Summary>();
+
+    /** The most recent operations, newest last. */
+    private final ArrayDeque<Record> recent = new ArrayDeque<Record>();
+
+    private OperationStats() {
+    }
+
+    /**
+     * <p>
+     * Get the stats for the whole program.
+     * </p>
+     *
+     * @return The stats.
+     */
+    public static OperationStats get() {
+        return INSTANCE;
+    }
+
+    /**
+     * <p>
+     * Apply an operation to an image and measure it.
+     * </p>
+     *
+     * @param op    The operation to apply.
+     * @param input The image to apply it to.
+     * @return The result of the operation.
+     */
+    public static BufferedImage apply(ImageOperation op, BufferedImage input) {
+        OperationEvent event = new OperationEvent();
+        Usage outer = Usage.current();
+        Usage usage = new Usage();
+        long cpu = cpuTime();
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        event.begin();
+        BufferedImage output;
+        Usage.setCurrent(usage);
+        try {
+            output = op.apply(input);
+        } finally {
+            Usage.setCurrent(outer);
+            if (outer != null) {
+                outer.add(usage);
+            }
+        }
+        event.end();
+        Record record = new Record(nameOf(op), input.getWidth(), input.getHeight(), System.nanoTime() - start,
+                cpu < 0 ? -1 : cpuTime() - cpu + usage.cpuNanos.sum(),
+                allocated < 0 ? -1 : allocatedBytes() - allocated + usage.allocatedBytes.sum());
+        INSTANCE.add(record);
+        if (event.shouldCommit()) {
+            event.operation = record.getName();
+            event.width = record.getWidth();
+            event.height = record.getHeight();
+            event.cpuTime = record.getCpuNanos();
+            event.allocated = record.getAllocatedBytes();
+            event.megapixelsPerSecond = record.getMegapixelsPerSecond();
+            event.commit();
+        }
+        return output;
+    }
+
+    /**
+     * <p>
+     * Get the name an operation is recorded under.
+     * </p>
+     *
+     * @param op The operation.
+     * @return The name of its class.
+     */
+    private static String nameOf(ImageOperation op) {
+        return op.getClass().getSimpleName();
+    }
+
+    /**
+     * <p>
+     * The CPU time and memory used by the bands of an operation that other
+     * threads ran.
+     * </p>
+     *
+     * <p>
+     * {@link OperationStats#apply} makes one for each operation and sets it as
+     * the current usage of the applying thread while the operation runs.
+     * The {@link TileScheduler} passes it on to the bands it hands to its pool,
+     * which {@link #measure} themselves into it.
+     * An operation applied inside another adds its usage to the outer one when
+     * it finishes.
+     * </p>
+     */
+    static final class Usage {
+
+        /** The usage of the operation being applied on each thread, if any. */
+        private static final ThreadLocal<Usage> CURRENT = new ThreadLocal<Usage>();
+
+        /** The CPU time used by other threads, in nanoseconds. */
+        private final LongAdder cpuNanos = new LongAdder();
+
+        /** The memory allocated by other threads, in bytes. */
+        private final LongAdder allocatedBytes = new LongAdder();
+
+        /**
+         * @return The usage of the operation being applied on this thread, or
+         *         null if none is.
+         */
+        static Usage current() {
+            return CURRENT.get();
+        }
+
+        /**
+         * @param usage The usage to set for this thread, or null for none.
+         */
+        private static void setCurrent(Usage usage) {
+            if (usage == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(usage);
+            }
+        }
+
+        /**
+         * <p>
+         * Run some of the operation's work on the current thread and add the
+         * CPU time and memory it used.
+         * </p>
+         *
+         * @param work The work, which must not be running on the applying
+         *             thread, since that is already measured.
+         */
+        void measure(Runnable work) {
+            long cpu = cpuTime();
+            long allocated = allocatedBytes();
+            try {
+                work.run();
+            } finally {
+                if (cpu >= 0) {
+                    cpuNanos.add(cpuTime() - cpu);
+                }
+                if (allocated >= 0) {
+                    allocatedBytes.add(allocatedBytes() - allocated);
+                }
+            }
+        }
+
+        /**
+         * @param inner The usage of an operation applied inside this one.
+         */
+        private void add(Usage inner) {
+            cpuNanos.add(inner.cpuNanos.sum());
+            allocatedBytes.add(inner.allocatedBytes.sum());
+        }
+    }
+
+    /**
+     * @return The CPU time used by the current thread so far, in nanoseconds,
+     *         or -1 if it cannot be measured.
+     */
+    private static long cpuTime() {
+        if (THREADS == null || !THREADS.isCurrentThreadCpuTimeSupported() || !THREADS.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+        return THREADS.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * @return The memory allocated by the current thread so far, in bytes, or
+     *         -1 if it cannot be measured.
+     */
+    private static long allocatedBytes() {
+        if (THREADS == null || !THREADS.isThreadAllocatedMemorySupported()
+                || !THREADS.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * <p>
+     * Add a measurement to the totals and the recent list.
+     * </p>
+     *
+     * @param record The measurement.
+     */
+    private synchronized void add(Record record) {
+        summaries.computeIfAbsent(record.getName(), Summary::new).add(record);
+        recent.addLast(record);
+        if (recent.size() > RECENT) {
+            recent.removeFirst();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<Summary> getSummaries() {
+        List<Summary> copies = new ArrayList<Summary>();
+        for (Summary summary : summaries.values()) {
+            copies.add(summary.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<Record> getRecent() {
+        return Collections.unmodifiableList(new ArrayList<Record>(recent));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getOperationCount() {
+        long count = 0;
+        for (Summary summary : summaries.values()) {
+            count += summary.getCount();
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void reset() {
+        summaries.clear();
+        recent.clear();
+    }
+
+    /**
+     * <p>
+     * One measured application of an operation.
+     * </p>
+     */
+    public static class Record {
+        private final String name;
+        private final int width;
+        private final int height;
+        private final long wallNanos;
+        private final long cpuNanos;
+        private final long allocatedBytes;
+
+        Record(String name, int width, int height, long wallNanos, long cpuNanos, long allocatedBytes) {
+            this.name = name;
+            this.width = width;
+            this.height = height;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        /** @return The name of the operation's class. */
+        public String getName() {
+            return name;
+        }
+
+        /** @return The width of the image the operation was applied to. */
+        public int getWidth() {
+            return width;
+        }
+
+        /** @return The height of the image the operation was applied to. */
+        public int getHeight() {
+            return height;
+        }
+
+        /** @return How long the operation took, in nanoseconds. */
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /** @return The CPU time it used, in nanoseconds, or -1 if unknown. */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        /** @return The memory it allocated, in bytes, or -1 if unknown. */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /** @return The megapixels of input processed per second. */
+        public double getMegapixelsPerSecond() {
+            return wallNanos == 0 ? 0 : (double) width * height / 1e6 / (wallNanos / 1e9);
+        }
+    }
+
+    /**
+     * <p>
+     * The totals for every application of one kind of operation.
+     * </p>
+     */
+    public static class Summary {
+        private final String name;
+        private long count;
+        private long totalWallNanos;
+        private long maxWallNanos;
+        private long totalCpuNanos;
+        private long totalAllocatedBytes;
+        private long totalPixels;
+
+        Summary(String name) {
+            this.name = name;
+        }
+
+        private void add(Record record) {
+            count++;
+            totalWallNanos += record.getWallNanos();
+            maxWallNanos = Math.max(maxWallNanos, record.getWallNanos());
+            totalCpuNanos += Math.max(0, record.getCpuNanos());
+            totalAllocatedBytes += Math.max(0, record.getAllocatedBytes());
+            totalPixels += (long) record.getWidth() * record.getHeight();
+        }
+
+        private Summary copy() {
+            Summary copy = new Summary(name);
+            copy.count = count;
+            copy.totalWallNanos = totalWallNanos;
+            copy.maxWallNanos = maxWallNanos;
+            copy.totalCpuNanos = totalCpuNanos;
+            copy.totalAllocatedBytes = totalAllocatedBytes;
+            copy.totalPixels = totalPixels;
+            return copy;
+        }
+
+        /** @return The name of the operation's class. */
+        public String getName() {
+            return name;
+        }
+
+        /** @return How many times the operation has been applied. */
+        public long getCount() {
+            return count;
+        }
+
+        /** @return The mean time it took, in milliseconds. */
+        public double getMeanMillis() {
+            return count == 0 ? 0 : totalWallNanos / 1e6 / count;
+        }
+
+        /** @return The longest time it took, in milliseconds. */
+        public double getMaxMillis() {
+            return maxWallNanos / 1e6;
+        }
+
+        /** @return The total CPU time used, in milliseconds. */
+        public double getTotalCpuMillis() {
+            return totalCpuNanos / 1e6;
+        }
+
+        /** @return The total memory allocated, in bytes. */
+        public long getTotalAllocatedBytes() {
+            return totalAllocatedBytes;
+        }
+
+        /** @return The overall megapixels of input processed per second. */
+        public double getMegapixelsPerSecond() {
+            return totalWallNanos == 0 ? 0 : totalPixels / 1e6 / (totalWallNanos / 1e9);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package cosc202.andie;
+
+import java.util.List;
+
+/**
+ * <p>
+ * The measurements of image operations, as seen through JMX.
+ * </p>
+ *
+ * <p>
+ * {@link OperationStats} is registered as
+ * {@code cosc202.andie:type=OperationStats}, so these can be watched in
+ * JConsole while ANDIE runs.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see OperationStats
+ * @version 1.0
+ */
+public interface OperationStatsMXBean {
+
+    /**
+     * <p>
+     * Get the totals for each kind of operation.
+     * </p>
+     *
+     * @return A copy of the totals, in the order the operations were first used.
+     */
+    List<OperationStats.Summary> getSummaries();
+
+    /**
+     * <p>
+     * Get the most recent operations.
+     * </p>
+     *
+     * @return The measurements, newest last.
+     */
+    List<OperationStats.Record> getRecent();
+
+    /**
+     * <p>
+     * Get how many operations have been measured.
+     * </p>
+     *
+     * @return The number of operations since the last reset.
+     */
+    long getOperationCount();
+
+    /**
+     * <p>
+     * Forget all measurements.
+     * </p>
+     */
+    void reset();
+}
@@ -0,0 +1,660 @@
+package cosc202.andie;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+
+/**
+ * <p>
+ * Reads and writes lists of operations, as saved in <code>.ops</code> files.
+ * </p>
+ *
+ * <p>
+ * Each kind of operation has a short name and a {@link Codec} that writes its
+ * parameters explicitly, so a file only ever creates the operations listed
+ * here, and renaming or changing a class does not break old files.
+ * A file is laid out as:
+ * </p>
+ * <ul>
+ * <li>the magic bytes <code>AOPS</code> and a version number;</li>
+ * <li>a table of assets, such as sticker images, each stored once under the
+ * SHA-256 hash of its bytes, however many operations use it; and</li>
+ * <li>the operations in the order they were applied, each as its name, the
+ * length of its parameters and then the parameters.</li>
+ * </ul>
+ *
+ * <p>
+ * Numbers are written as variable-length integers, so most operations take a
+ * few bytes.
+ * Because each operation's parameters are prefixed by their length, a newer
+ * version of an operation can add parameters at the end and older readers will
+ * skip them.
+ * </p>
+ *
+ * <p>
+ * Files written with Java serialization by earlier versions of ANDIE can still
+ * be read, but only if they contain nothing except known operations.
+ * Operations that are not {@link Serializable}, such as drawing and
+ * stickers, were saved by those versions along with parts of the user
+ * interface, so files containing them are refused.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @version 1.0
+ */
+public class OpsFormat {
+
+    /** The first bytes of every file. */
+    private static final byte[] MAGIC = { 'A', 'O', 'P', 'S' };
+
+    /** The version of the format this class writes. */
+    private static final int VERSION = 1;
+
+    /** The first bytes of a Java serialization stream. */
+    private static final int JAVA_SERIALIZATION = 0xACED;
+
+    /**
+     * <p>
+     * Writes and reads the parameters of one kind of operation.
+     * </p>
+     *
+     * @param <T> The kind of operation.
+     */
+    public interface Codec<T extends ImageOperation> {
+
+        /**
+         * @param op  The operation to write.
+         * @param out Where to write its parameters.
+         * @throws IOException If it cannot be written.
+         */
+        void write(T op, Output out) throws IOException;
+
+        /**
+         * @param in Where to read the parameters from.
+         * @return A new operation with those parameters.
+         * @throws IOException If the parameters are not valid.
+         */
+        T read(Input in) throws IOException;
+    }
+
+    /** The codecs by operation name. */
+    private static final Map<String, Codec<?>> BY_NAME = new HashMap<String, Codec<?>>();
+
+    /** The operation names by class. */
+    private static final Map<Class<?>, String> NAMES = new HashMap<Class<?>, String>();
+
+    static {
+        register("brightness", BrightnessFilter.class, codec(op -> op.brightness, BrightnessFilter::new));
+        register("contrast", ContrastFilter.class, codec(op -> op.contrast, ContrastFilter::new));
+        register("negative", NegativeFilter.class, codec(op -> op.negative, NegativeFilter::new));
+        register("grey", ConvertToGrey.class, codec(ConvertToGrey::new));
+        register("gaussian", GaussianFilter.class, codec(op -> op.radius, GaussianFilter::new));
+        register("mean", MeanFilter.class, codec(op -> op.radius, MeanFilter::new));
+        register("median", MedianFilter.class, codec(op -> op.radius, MedianFilter::new));
+        register("sharpen", SharpenFilter.class, codec(op -> op.sharpen, SharpenFilter::new));
+        register("emboss1", EmbossFilter1.class, codec(EmbossFilter1::new));
+        register("emboss2", EmbossFilter2.class, codec(EmbossFilter2::new));
+        register("emboss3", EmbossFilter3.class, codec(EmbossFilter3::new));
+        register("emboss4", EmbossFilter4.class, codec(EmbossFilter4::new));
+        register("emboss5", EmbossFilter5.class, codec(EmbossFilter5::new));
+        register("emboss6", EmbossFilter6.class, codec(EmbossFilter6::new));
+        register("emboss7", EmbossFilter7.class, codec(EmbossFilter7::new));
+        register("emboss8", EmbossFilter8.class, codec(EmbossFilter8::new));
+        register("sobel-h", SobelHorizontal.class, codec(SobelHorizontal::new));
+        register("sobel-v", SobelVertical.class, codec(SobelVertical::new));
+        register("flip-h", FlipHorizontal.class, codec(FlipHorizontal::new));
+        register("flip-v", FlipVertical.class, codec(FlipVertical::new));
+        register("rotate", Rotate.class, codec(Rotate::getRotationAngle, Rotate::new));
+        register("resize", Resize.class, new Codec<Resize>() {
+            public void write(Resize op, Output out) throws IOException {
+                out.writeInt(op.size);
+                // Left off for the nearest pixel, as written before there was a
+                // choice of kernel.
+                if (op.getKernel() != Resampler.Kernel.NEAREST) {
+                    out.writeString(op.getKernel().name());
+                }
+            }
+
+            public Resize read(Input in) throws IOException {
+                int size = in.readInt();
+                if (!in.hasMore()) {
+                    return new Resize(size);
+                }
+                try {
+                    return new Resize(size, Resampler.Kernel.valueOf(in.readString()));
+                } catch (IllegalArgumentException ex) {
+                    throw new IOException("Unknown resize kernel", ex);
+                }
+            }
+        });
+        register("crop", Crop.class, new Codec<Crop>() {
+            public void write(Crop op, Output out) throws IOException {
+                out.writeRectangle(op.getSelection());
+            }
+
+            public Crop read(Input in) throws IOException {
+                return new Crop(in.readRectangle());
+            }
+        });
+    }
+
+    private OpsFormat() {
+    }
+
+    /**
+     * <p>
+     * Add a kind of operation that can be saved.
+     * </p>
+     *
+     * <p>
+     * Operations outside the image engine, like those that draw on the image,
+     * register themselves with this.
+     * The name is what is written to files, so it must never change.
+     * </p>
+     *
+     * @param <T>   The kind of operation.
+     * @param name  The name written to files.
+     * @param type  The class of the operation.
+     * @param codec How to write and read its parameters.
+     */
+    public static synchronized <T extends ImageOperation> void register(String name, Class<T> type, Codec<T> codec) {
+        BY_NAME.put(name, codec);
+        NAMES.put(type, name);
+    }
+
+    /**
+     * <p>
+     * Write a list of operations.
+     * </p>
+     *
+     * @param ops The operations, in the order they were applied.
+     * @param out Where to write them. It is not closed.
+     * @throws IOException If an operation has no codec or cannot be written.
+     */
+    public static void write(List<? extends ImageOperation> ops, OutputStream out) throws IOException {
+        Output body = new Output();
+        body.writeVarint(ops.size());
+        for (ImageOperation op : ops) {
+            String name;
+            Codec<ImageOperation> codec;
+            synchronized (OpsFormat.class) {
+                name = NAMES.get(op.getClass());
+                codec = codecFor(name);
+            }
+            if (codec == null) {
+                throw new IOException("Cannot save " + op.getClass().getName());
+            }
+            Output params = new Output(body.assets);
+            codec.write(op, params);
+            body.writeString(name);
+            body.writeBytes(params.toByteArray());
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(MAGIC);
+        data.writeByte(VERSION);
+        Output assets = new Output();
+        assets.writeVarint(body.assets.size());
+        for (Map.Entry<Key, byte[]> asset : body.assets.entrySet()) {
+            assets.bytes.write(asset.getKey().hash);
+            assets.writeBytes(asset.getValue());
+        }
+        assets.bytes.writeTo(data);
+        body.bytes.writeTo(data);
+        data.flush();
+    }
+
+    /**
+     * <p>
+     * Write a list of operations to a byte array.
+     * </p>
+     *
+     * @param ops The operations, in the order they were applied.
+     * @return The encoded operations.
+     * @throws IOException If an operation has no codec or cannot be written.
+     */
+    public static byte[] toByteArray(List<? extends ImageOperation> ops) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(ops, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * <p>
+     * Read a list of operations.
+     * </p>
+     *
+     * <p>
+     * Files in the old Java serialization format are read too.
+     * </p>
+     *
+     * @param in Where to read them from. It is read to the end but not closed.
+     * @return The operations, in the order they were applied.
+     * @throws IOException If the data is not a list of known operations.
+     */
+    public static Stack<ImageOperation> read(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(MAGIC.length);
+        byte[] start = buffered.readNBytes(MAGIC.length);
+        if (start.length >= 2 && ((start[0] & 0xff) << 8 | (start[1] & 0xff)) == JAVA_SERIALIZATION) {
+            buffered.reset();
+            return readLegacy(buffered);
+        }
+        if (!Arrays.equals(start, MAGIC)) {
+            throw new IOException("Not an operations file");
+        }
+        int version = buffered.read();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Operations file version " + version + " is not supported");
+        }
+
+        Input data = new Input(buffered.readAllBytes(), new HashMap<Key, byte[]>());
+        int assetCount = data.readCount();
+        for (int i = 0; i < assetCount; i++) {
+            byte[] hash = data.readRaw(32);
+            data.assets.put(new Key(hash), data.readBytes());
+        }
+        int count = data.readCount();
+        Stack<ImageOperation> ops = new Stack<ImageOperation>();
+        for (int i = 0; i < count; i++) {
+            String name = data.readString();
+            Input params = new Input(data.readBytes(), data.assets);
+            Codec<ImageOperation> codec;
+            synchronized (OpsFormat.class) {
+                codec = codecFor(name);
+            }
+            if (codec == null) {
+                throw new IOException("Unknown operation " + name);
+            }
+            ops.add(codec.read(params));
+        }
+        return ops;
+    }
+
+    /**
+     * <p>
+     * Read a list of operations from a byte array.
+     * </p>
+     *
+     * @param bytes The encoded operations.
+     * @return The operations, in the order they were applied.
+     * @throws IOException If the data is not a list of known operations.
+     */
+    public static Stack<ImageOperation> fromByteArray(byte[] bytes) throws IOException {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * <p>
+     * Read a file saved with Java serialization.
+     * </p>
+     *
+     * <p>
+     * Only the serializable operations that have codecs, and the few library
+     * classes they are made of, are allowed to be created; anything else stops
+     * the read.
+     * An operation that has a codec but is not serializable gets an error
+     * naming it, rather than a generic one.
+     * </p>
+     *
+     * @param in Where to read from.
+     * @return The operations, in the order they were applied.
+     * @throws IOException If the data is not a list of known operations.
+     */
+    private static Stack<ImageOperation> readLegacy(InputStream in) throws IOException {
+        Set<Class<?>> allowed = new HashSet<Class<?>>(
+                Arrays.asList(Stack.class, java.util.Vector.class, Object[].class, Rectangle.class, Point.class));
+        Map<Class<?>, String> unreadable = new HashMap<Class<?>, String>();
+        synchronized (OpsFormat.class) {
+            for (Map.Entry<Class<?>, String> entry : NAMES.entrySet()) {
+                Class<?> type = entry.getKey();
+                if (!Serializable.class.isAssignableFrom(type)) {
+                    unreadable.put(type, entry.getValue());
+                    continue;
+                }
+                // The operation's serializable superclasses are read too.
+                for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                    allowed.add(c);
+                }
+            }
+        }
+        String[] refused = new String[1];
+        ObjectInputStream objIn = new ObjectInputStream(in);
+        objIn.setObjectInputFilter(info -> {
+            Class<?> type = info.serialClass();
+            if (type == null || type.isPrimitive() || allowed.contains(type)) {
+                return ObjectInputFilter.Status.UNDECIDED;
+            }
+            if (refused[0] == null) {
+                refused[0] = unreadable.get(type);
+            }
+            return ObjectInputFilter.Status.REJECTED;
+        });
+        try {
+            Stack<ImageOperation> ops = new Stack<ImageOperation>();
+            for (Object op : (Stack<?>) objIn.readObject()) {
+                ops.add((ImageOperation) op);
+            }
+            return ops;
+        } catch (InvalidClassException ex) {
+            if (refused[0] != null) {
+                throw new IOException(refused[0] + " operations saved by older versions of ANDIE cannot be read", ex);
+            }
+            throw ex;
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            throw new IOException("Not an operations file", ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Codec<ImageOperation> codecFor(String name) {
+        return name == null ? null : (Codec<ImageOperation>) BY_NAME.get(name);
+    }
+
+    /**
+     * <p>
+     * Make a codec for an operation with no parameters.
+     * </p>
+     */
+    private static <T extends ImageOperation> Codec<T> codec(java.util.function.Supplier<T> create) {
+        return new Codec<T>() {
+            public void write(T op, Output out) {
+            }
+
+            public T read(Input in) {
+                return create.get();
+            }
+        };
+    }
+
+    /**
+     * <p>
+     * Make a codec for an operation with one whole number parameter.
+     * </p>
+     */
+    private static <T extends ImageOperation> Codec<T> codec(java.util.function.ToIntFunction<T> get,
+            java.util.function.IntFunction<T> create) {
+        return new Codec<T>() {
+            public void write(T op, Output out) {
+                out.writeInt(get.applyAsInt(op));
+            }
+
+            public T read(Input in) throws IOException {
+                return create.apply(in.readInt());
+            }
+        };
+    }
+
+    /**
+     * <p>
+     * The SHA-256 hash of an asset, for looking it up.
+     * </p>
+     */
+    private static class Key {
+        final byte[] hash;
+
+        Key(byte[] hash) {
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && Arrays.equals(hash, ((Key) other).hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(hash);
+        }
+    }
+
+    /**
+     * <p>
+     * Where a codec writes an operation's parameters.
+     * </p>
+     */
+    public static class Output {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final Map<Key, byte[]> assets;
+
+        private Output() {
+            this(new LinkedHashMap<Key, byte[]>());
+        }
+
+        private Output(Map<Key, byte[]> assets) {
+            this.assets = assets;
+        }
+
+        private byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                bytes.write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes.write((int) value);
+        }
+
+        /**
+         * @param value A whole number; small ones, positive or negative, take
+         *              one byte.
+         */
+        public void writeInt(int value) {
+            writeVarint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        /**
+         * @param value A number with a fractional part.
+         */
+        public void writeDouble(double value) {
+            long bits = Double.doubleToLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                bytes.write((int) (bits >>> (8 * i)));
+            }
+        }
+
+        /**
+         * @param value Some text.
+         */
+        public void writeString(String value) {
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @param value A rectangle.
+         */
+        public void writeRectangle(Rectangle value) {
+            writeInt(value.x);
+            writeInt(value.y);
+            writeInt(value.width);
+            writeInt(value.height);
+        }
+
+        /**
+         * <p>
+         * Write a large piece of data, such as an image, that may be shared.
+         * </p>
+         *
+         * <p>
+         * The data is stored once in the file's asset table, and only its hash
+         * is written here.
+         * </p>
+         *
+         * @param value The data.
+         */
+        public void writeAsset(byte[] value) {
+            byte[] hash = sha256(value);
+            assets.putIfAbsent(new Key(hash), value);
+            bytes.write(hash, 0, hash.length);
+        }
+
+        private void writeBytes(byte[] value) {
+            writeVarint(value.length);
+            bytes.write(value, 0, value.length);
+        }
+    }
+
+    /**
+     * <p>
+     * Where a codec reads an operation's parameters from.
+     * </p>
+     */
+    public static class Input {
+        private final DataInputStream data;
+        private final Map<Key, byte[]> assets;
+
+        private Input(byte[] bytes, Map<Key, byte[]> assets) {
+            this.data = new DataInputStream(new ByteArrayInputStream(bytes));
+            this.assets = assets;
+        }
+
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = data.read();
+                if (b < 0) {
+                    throw new EOFException("Operations file is truncated");
+                }
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Operations file is corrupt");
+        }
+
+        private int readCount() throws IOException {
+            long count = readVarint();
+            if (count > data.available()) {
+                throw new IOException("Operations file is corrupt");
+            }
+            return (int) count;
+        }
+
+        private byte[] readRaw(int length) throws IOException {
+            byte[] value = new byte[length];
+            data.readFully(value);
+            return value;
+        }
+
+        private byte[] readBytes() throws IOException {
+            long length = readVarint();
+            if (length > data.available()) {
+                throw new EOFException("Operations file is truncated");
+            }
+            return readRaw((int) length);
+        }
+
+        /**
+         * <p>
+         * Check whether there are more parameters to read.
+         * </p>
+         *
+         * <p>
+         * A codec can add parameters after its original ones and read them
+         * only if they are there, so older files still load.
+         * </p>
+         *
+         * @return True if any of the operation's parameters are left.
+         * @throws IOException If the parameters cannot be read.
+         */
+        public boolean hasMore() throws IOException {
+            return data.available() > 0;
+        }
+
+        /**
+         * @return A whole number written by {@link Output#writeInt}.
+         * @throws IOException If there is none.
+         */
+        public int readInt() throws IOException {
+            long zigzag = readVarint();
+            return (int) (zigzag >>> 1) ^ -(int) (zigzag & 1);
+        }
+
+        /**
+         * @return A number written by {@link Output#writeDouble}.
+         * @throws IOException If there is none.
+         */
+        public double readDouble() throws IOException {
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                int b = data.read();
+                if (b < 0) {
+                    throw new EOFException("Operations file is truncated");
+                }
+                bits |= (long) b << (8 * i);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        /**
+         * @return Text written by {@link Output#writeString}.
+         * @throws IOException If there is none.
+         */
+        public String readString() throws IOException {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return A rectangle written by {@link Output#writeRectangle}.
+         * @throws IOException If there is none.
+         */
+        public Rectangle readRectangle() throws IOException {
+            return new Rectangle(readInt(), readInt(), readInt(), readInt());
+        }
+
+        /**
+         * @return Data written by {@link Output#writeAsset}, shared with every
+         *         other operation that wrote the same data.
+         * @throws IOException If there is none, or it is not in the file.
+         */
+        public byte[] readAsset() throws IOException {
+            byte[] asset = assets.get(new Key(readRaw(32)));
+            if (asset == null) {
+                throw new IOException("Operations file is missing an asset");
+            }
+            return asset;
+        }
+    }
+
+    /**
+     * @param bytes Some data.
+     * @return Its SHA-256 hash.
+     */
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is always available", ex);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package cosc202.andie;
+
+import java.awt.image.*;
+
+/**
+ * <p>
+ * Bulk access to the packed ARGB pixels of a BufferedImage.
+ * </p>
+ *
+ * <p>
+ * Reading and writing one pixel at a time with getRGB and setRGB is slow,
+ * because every call goes through the image's colour model.
+ * For the common TYPE_INT_ARGB and TYPE_INT_RGB images the pixels are already
+ * stored as packed ints in a {@link DataBufferInt}, so this class copies rows
+ * straight to and from that array.
+ * Any other image type falls back to the bulk getRGB and setRGB methods, which
+ * give exactly the same values as the per-pixel versions.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @version 1.0
+ */
+public class Pixels {
+
+    /**
+     * The number of pixels to work on at once when streaming through an image
+     * too big to hold in one array.
+     */
+    static final int STRIP_PIXELS = 1 << 22;
+
+    private Pixels() {
+    }
+
+    /**
+     * <p>
+     * Get the backing array of an image if it holds packed ARGB or RGB ints.
+     * </p>
+     *
+     * @param image The image to look at.
+     * @return The backing array, or null if the image is stored some other way.
+     */
+    private static int[] packedData(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_RGB) {
+            return null;
+        }
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferInt)
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+                || raster.getDataBuffer().getNumBanks() != 1) {
+            return null;
+        }
+        return ((DataBufferInt) raster.getDataBuffer()).getData();
+    }
+
+    /**
+     * <p>
+     * Get the distance between rows in the backing array of a packed image.
+     * </p>
+     *
+     * @param raster The raster of the image.
+     * @return The scanline stride of the raster.
+     */
+    private static int stride(WritableRaster raster) {
+        return ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+    }
+
+    /**
+     * <p>
+     * Get the index of pixel (0, 0) in the backing array of a packed image.
+     * </p>
+     *
+     * <p>
+     * This is not always zero, since images made with getSubimage share the
+     * array of their parent.
+     * </p>
+     *
+     * @param raster The raster of the image.
+     * @return The index of the top left pixel.
+     */
+    private static int base(WritableRaster raster) {
+        return raster.getDataBuffer().getOffset()
+                - raster.getSampleModelTranslateY() * stride(raster)
+                - raster.getSampleModelTranslateX();
+    }
+
+    /**
+     * <p>
+     * Check whether an image can be read and written without going through
+     * getRGB and setRGB.
+     * </p>
+     *
+     * @param image The image to check.
+     * @return True if the pixels are stored as packed ints.
+     */
+    public static boolean isPacked(BufferedImage image) {
+        return packedData(image) != null;
+    }
+
+    /**
+     * <p>
+     * Read a block of pixels as packed ARGB values.
+     * </p>
+     *
+     * <p>
+     * This gives the same values as
+     * {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+     * </p>
+     *
+     * @param image The image to read from.
+     * @param x     The left edge of the block.
+     * @param y     The top edge of the block.
+     * @param w     The width of the block.
+     * @param h     The height of the block.
+     * @param dst   The array to write the pixels into.
+     * @param off   The index in dst of the first pixel.
+     * @param scan  The distance between rows in dst.
+     */
+    public static void read(BufferedImage image, int x, int y, int w, int h, int[] dst, int off, int scan) {
+        int[] data = packedData(image);
+        if (data == null) {
+            MappedImage.Store store = MappedImage.storeOf(image);
+            if (store != null) {
+                WritableRaster raster = image.getRaster();
+                readMapped(store, image.getColorModel().hasAlpha(), x - raster.getSampleModelTranslateX(),
+                        y - raster.getSampleModelTranslateY(), w, h, dst, off, scan);
+            } else {
+                image.getRGB(x, y, w, h, dst, off, scan);
+            }
+            return;
+        }
+        WritableRaster raster = image.getRaster();
+        int stride = stride(raster);
+        int base = base(raster);
+        boolean opaque = image.getType() == BufferedImage.TYPE_INT_RGB;
+        for (int row = 0; row < h; row++) {
+            int s = base + (y + row) * stride + x;
+            int d = off + row * scan;
+            if (opaque) {
+                for (int i = 0; i < w; i++) {
+                    dst[d + i] = data[s + i] | 0xFF000000;
+                }
+            } else {
+                System.arraycopy(data, s, dst, d, w);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Read a block of pixels from the tiles of a mapped image.
+     * </p>
+     *
+     * @see #read(BufferedImage, int, int, int, int, int[], int, int)
+     */
+    private static void readMapped(MappedImage.Store store, boolean alpha, int x, int y, int w, int h, int[] dst,
+            int off, int scan) {
+        for (int row = 0; row < h; row++) {
+            int d = off + row * scan;
+            store.tile(y + row).get(store.offset(y + row) + x, dst, d, w);
+            if (!alpha) {
+                for (int i = d; i < d + w; i++) {
+                    dst[i] |= 0xFF000000;
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Read every pixel of an image as packed ARGB values.
+     * </p>
+     *
+     * @param image The image to read from.
+     * @return A new array of width * height pixels in row order.
+     */
+    public static int[] read(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int[] pixels = new int[w * h];
+        read(image, 0, 0, w, h, pixels, 0, w);
+        return pixels;
+    }
+
+    /**
+     * <p>
+     * Write a block of packed ARGB values into an image.
+     * </p>
+     *
+     * <p>
+     * This gives the same result as
+     * {@link BufferedImage#setRGB(int, int, int, int, int[], int, int)}.
+     * </p>
+     *
+     * @param image The image to write to.
+     * @param x     The left edge of the block.
+     * @param y     The top edge of the block.
+     * @param w     The width of the block.
+     * @param h     The height of the block.
+     * @param src   The array to read the pixels from.
+     * @param off   The index in src of the first pixel.
+     * @param scan  The distance between rows in src.
+     */
+    public static void write(BufferedImage image, int x, int y, int w, int h, int[] src, int off, int scan) {
+        int[] data = packedData(image);
+        if (data == null) {
+            MappedImage.Store store = MappedImage.storeOf(image);
+            if (store != null) {
+                WritableRaster raster = image.getRaster();
+                writeMapped(store, image.getColorModel().hasAlpha(), x - raster.getSampleModelTranslateX(),
+                        y - raster.getSampleModelTranslateY(), w, h, src, off, scan);
+            } else {
+                image.setRGB(x, y, w, h, src, off, scan);
+            }
+            return;
+        }
+        WritableRaster raster = image.getRaster();
+        int stride = stride(raster);
+        int base = base(raster);
+        boolean opaque = image.getType() == BufferedImage.TYPE_INT_RGB;
+        for (int row = 0; row < h; row++) {
+            int d = base + (y + row) * stride + x;
+            int s = off + row * scan;
+            if (opaque) {
+                for (int i = 0; i < w; i++) {
+                    data[d + i] = src[s + i] & 0x00FFFFFF;
+                }
+            } else {
+                System.arraycopy(src, s, data, d, w);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Write a block of pixels into the tiles of a mapped image.
+     * </p>
+     *
+     * @see #write(BufferedImage, int, int, int, int, int[], int, int)
+     */
+    private static void writeMapped(MappedImage.Store store, boolean alpha, int x, int y, int w, int h, int[] src,
+            int off, int scan) {
+        int[] opaque = alpha ? null : new int[w];
+        for (int row = 0; row < h; row++) {
+            int s = off + row * scan;
+            if (alpha) {
+                store.tile(y + row).put(store.offset(y + row) + x, src, s, w);
+            } else {
+                for (int i = 0; i < w; i++) {
+                    opaque[i] = src[s + i] & 0x00FFFFFF;
+                }
+                store.tile(y + row).put(store.offset(y + row) + x, opaque, 0, w);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Write every pixel of an image from packed ARGB values.
+     * </p>
+     *
+     * @param image  The image to write to.
+     * @param pixels The width * height pixels in row order.
+     */
+    public static void write(BufferedImage image, int[] pixels) {
+        int w = image.getWidth();
+        write(image, 0, 0, w, image.getHeight(), pixels, 0, w);
+    }
+
+    /**
+     * <p>
+     * Create an empty image that stores pixels the same way as another.
+     * </p>
+     *
+     * <p>
+     * If the image is a {@link MappedImage}, so is the new one.
+     * </p>
+     *
+     * @param image  The image to copy the layout of.
+     * @param width  The width of the new image.
+     * @param height The height of the new image.
+     * @return A new image with the same colour model as the input.
+     */
+    public static BufferedImage createCompatible(BufferedImage image, int width, int height) {
+        if (MappedImage.isMapped(image)) {
+            return MappedImage.createCompatible(image, width, height);
+        }
+        ColorModel cm = image.getColorModel();
+        return new BufferedImage(cm, image.getRaster().createCompatibleWritableRaster(width, height),
+                cm.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * <p>
+     * Get an image that can be changed in place without changing any other.
+     * </p>
+     *
+     * <p>
+     * A {@link Crop} gives a view of part of its input rather than a copy, so
+     * cropping costs nothing.
+     * Drawing on such a view would draw on the image it was cropped from too,
+     * so operations that draw on their input call this first, and the view is
+     * only copied when it is actually written to.
+     * </p>
+     *
+     * @param image The image to be changed.
+     * @return The image itself if it owns its pixels, or else a copy of it.
+     */
+    public static BufferedImage unshared(BufferedImage image) {
+        if (image.getRaster().getParent() == null) {
+            return image;
+        }
+        if (MappedImage.isMapped(image)) {
+            return MappedImage.copy(image);
+        }
+        // copyData would keep the view's offset into its parent, which a
+        // BufferedImage does not allow, so copy into a fresh raster instead.
+        WritableRaster copy = image.getRaster().createCompatibleWritableRaster();
+        copy.setRect(image.getRaster());
+        ColorModel cm = image.getColorModel();
+        return new BufferedImage(cm, copy, cm.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * <p>
+     * Create an empty image of a given type, stored in the same way as another.
+     * </p>
+     *
+     * <p>
+     * This is <code>new BufferedImage(width, height, type)</code>, except that
+     * an operation on a {@link MappedImage} makes a mapped image too, with
+     * alpha if the type has it.
+     * </p>
+     *
+     * @param image  The image the new one is made from.
+     * @param width  The width of the new image.
+     * @param height The height of the new image.
+     * @param type   The type of the new image, one of the BufferedImage.TYPE_
+     *               constants, or the type of the input.
+     * @return A new image.
+     */
+    public static BufferedImage create(BufferedImage image, int width, int height, int type) {
+        if (MappedImage.isMapped(image)) {
+            // A mapped image is TYPE_CUSTOM, so asking for the input's own type
+            // means keeping its alpha.
+            boolean alpha = type == BufferedImage.TYPE_CUSTOM ? image.getColorModel().hasAlpha()
+                    : new BufferedImage(1, 1, type).getColorModel().hasAlpha();
+            return MappedImage.create(width, height, alpha);
+        }
+        return new BufferedImage(width, height, type);
+    }
+}
@@ -0,0 +1,98 @@
+package cosc202.andie;
+
+/**
+ * <p>
+ * Interface for operations that change each pixel on its own.
+ * </p>
+ *
+ * <p>
+ * Colour adjustments such as brightness, contrast and greyscale work out each
+ * output pixel from the input pixel in the same place and nothing else.
+ * Because of this, several of them in a row can be done in a single pass over
+ * the image by running each pixel through all of them in turn, which
+ * {@link FusedPointOperation} does when the operations are replayed.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see FusedPointOperation
+ * @version 1.0
+ */
+public interface PointOperation extends TiledImageOperation {
+
+    /**
+     * <p>
+     * Work out the new value of one pixel.
+     * </p>
+     *
+     * <p>
+     * The result must be the pixel as it would be read back from the image made
+     * by {@link #createOutput}, so an operation whose output has no alpha
+     * channel returns a fully opaque pixel.
+     * </p>
+     *
+     * @param argb The input pixel, as a packed ARGB value.
+     * @return The output pixel, as a packed ARGB value.
+     */
+    public int filterPixel(int argb);
+
+    /**
+     * <p>
+     * Get a table giving the new value of each red, green or blue value, if the
+     * operation can be done that way.
+     * </p>
+     *
+     * <p>
+     * An operation that returns a table must treat the red, green and blue
+     * channels alike and each on its own, and make every pixel fully opaque, so
+     * that {@link #filterPixel} gives the same result as looking each channel up
+     * in the table.
+     * Tables from operations in a row can then be combined into one.
+     * </p>
+     *
+     * @return The new value for each of the 256 channel values, or null if the
+     *         operation mixes the channels.
+     */
+    public default int[] getLookupTable() {
+        return null;
+    }
+
+    /**
+     * <p>
+     * A point operation does not look at any neighbouring pixels.
+     * </p>
+     *
+     * @return 0.
+     */
+    public default int getHalo() {
+        return 0;
+    }
+
+    /**
+     * <p>
+     * Run each pixel in a band of rows through {@link #filterPixel}, or through
+     * the lookup table if there is one.
+     * </p>
+     *
+     * @see TiledImageOperation#applyTile(int[], int, int[], int, int, int)
+     */
+    public default void applyTile(int[] source, int sourceWidth, int[] output, int width, int y0, int y1) {
+        int[] table = getLookupTable();
+        int start = y0 * width;
+        int end = y1 * width;
+        if (table == null) {
+            for (int i = start; i < end; i++) {
+                output[i] = filterPixel(source[i]);
+            }
+        } else {
+            for (int i = start; i < end; i++) {
+                int p = source[i];
+                output[i] = 0xFF000000 | (table[(p >> 16) & 0xFF] << 16) | (table[(p >> 8) & 0xFF] << 8)
+                        | table[p & 0xFF];
+            }
+        }
+    }
+}
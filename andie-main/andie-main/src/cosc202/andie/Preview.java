@@ -0,0 +1,288 @@
+package cosc202.andie;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+
+/**
+ * <p>
+ * A live preview of an operation while its settings are being chosen.
+ * </p>
+ *
+ * <p>
+ * Dialogs with a slider make a Preview when they open and call {@link #show}
+ * each time the slider moves.
+ * Rather than filtering the whole image, the operation is applied to a proxy:
+ * a copy of just the part of the image that is visible in the
+ * {@link ImagePanel}, shrunk to the size it is drawn on screen.
+ * That is usually far fewer pixels than the image, so the preview keeps up with
+ * the slider, and the full-size operation is only applied when the dialog is
+ * confirmed.
+ * </p>
+ *
+ * <p>
+ * Previews are made on their own background thread.
+ * If the slider moves again before a preview is finished, that preview is
+ * cancelled and only the newest one is shown.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see ImagePanel#setPreview(BufferedImage, Rectangle)
+ * @version 1.0
+ */
+public class Preview {
+
+    /**
+     * <p>
+     * Makes the operation to preview from a dialog's setting.
+     * </p>
+     */
+    public interface Factory {
+
+        /**
+         * <p>
+         * Make the operation for a setting.
+         * </p>
+         *
+         * <p>
+         * Operations measured in pixels, like a filter radius, should be scaled so
+         * the preview looks like the full-size result, for example with
+         * {@link Preview#scaleRadius}.
+         * </p>
+         *
+         * @param value The value of the dialog's slider.
+         * @param scale The size of the proxy relative to the image, up to 1.
+         * @return The operation to preview.
+         */
+        ImageOperation create(int value, double scale);
+    }
+
+    /** The thread previews are made on. */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ANDIE preview");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The image the cached proxy was made from. */
+    private static WeakReference<BufferedImage> cachedSource = new WeakReference<BufferedImage>(null);
+
+    /** The version of the image the cached proxy was made from. */
+    private static long cachedVersion;
+
+    /** The part of the image the cached proxy covers. */
+    private static Rectangle cachedRegion;
+
+    /** The scale the cached proxy was made at. */
+    private static double cachedScale;
+
+    /** The most recent proxy, kept for the next dialog on the same view. */
+    private static SoftReference<BufferedImage> cachedProxy = new SoftReference<BufferedImage>(null);
+
+    /** The panel the preview is shown on. */
+    private final ImagePanel target;
+
+    /** Makes the operation for each setting. */
+    private final Factory factory;
+
+    /** The part of the image being previewed, in image coordinates. */
+    private final Rectangle region;
+
+    /** The size of the proxy relative to the image. */
+    private final double scale;
+
+    /** The shrunk copy of the region the operation is applied to. */
+    private final BufferedImage proxy;
+
+    /** Increased by each call to show or close, so older previews are dropped. */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /** The progress of the preview being made, so it can be cancelled. */
+    private volatile Progress running;
+
+    /**
+     * <p>
+     * Start previewing operations on the image in a panel.
+     * </p>
+     *
+     * @param target  The panel showing the image.
+     * @param factory Makes the operation for each setting.
+     */
+    public Preview(ImagePanel target, Factory factory) {
+        this.target = target;
+        this.factory = factory;
+        EditableImage editable = target.getImage();
+        long version = editable.getVersion();
+        MipmapPyramid pyramid = target.getPyramid();
+        Rectangle bounds = new Rectangle(editable.getWidth(), editable.getHeight());
+        // While the image is being opened the pyramid is made from a subsampled
+        // copy, so the proxy can be no sharper than that.
+        double resolution = Math.min(1.0, (double) pyramid.getLevel(0).getWidth() / bounds.width);
+        double zoom = target.getScale();
+        Rectangle visible = target.getVisibleRect();
+        Rectangle view = visible.isEmpty() ? bounds
+                : new Rectangle((int) Math.floor(visible.x / zoom), (int) Math.floor(visible.y / zoom),
+                        (int) Math.ceil(visible.width / zoom) + 1, (int) Math.ceil(visible.height / zoom) + 1);
+        this.region = view.intersection(bounds);
+        this.scale = Math.min(resolution, zoom);
+
+        // Copy from the smallest level that is still at least the proxy's size.
+        int level = Math.min(MipmapPyramid.levelFor(scale / resolution), pyramid.getLevelCount() - 1);
+        BufferedImage image = pyramid.getLevel(level);
+        double levelScale = (double) image.getWidth() / bounds.width;
+        Rectangle source = new Rectangle((int) Math.floor(region.x * levelScale),
+                (int) Math.floor(region.y * levelScale), (int) Math.ceil(region.width * levelScale),
+                (int) Math.ceil(region.height * levelScale))
+                .intersection(new Rectangle(image.getWidth(), image.getHeight()));
+        this.proxy = source.isEmpty() ? null
+                : proxy(image, version, source, Math.min(1.0, scale / levelScale));
+    }
+
+    /**
+     * <p>
+     * Show a preview of the operation for a setting.
+     * </p>
+     *
+     * <p>
+     * This returns straight away; the panel is updated when the preview is
+     * ready.
+     * </p>
+     *
+     * @param value The value of the dialog's slider.
+     */
+    public void show(int value) {
+        if (proxy == null) {
+            return;
+        }
+        int submitted = generation.incrementAndGet();
+        cancelRunning();
+        EXECUTOR.submit(() -> {
+            if (submitted != generation.get()) {
+                return;
+            }
+            Progress progress = new Progress();
+            running = progress;
+            Progress.setCurrent(progress);
+            try {
+                BufferedImage result = factory.create(value, scale).apply(proxy);
+                SwingUtilities.invokeLater(() -> {
+                    if (submitted == generation.get()) {
+                        target.setPreview(result, region);
+                    }
+                });
+            } catch (CancellationException ex) {
+                // A newer preview has been asked for.
+            } catch (RuntimeException | OutOfMemoryError ex) {
+                ex.printStackTrace();
+            } finally {
+                Progress.setCurrent(null);
+                running = null;
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Stop previewing and remove the preview from the panel.
+     * </p>
+     *
+     * <p>
+     * This should be called when the dialog closes, whether or not it was
+     * confirmed.
+     * </p>
+     */
+    public void close() {
+        generation.incrementAndGet();
+        cancelRunning();
+        target.setPreview(null, null);
+    }
+
+    /**
+     * <p>
+     * Cancel the preview being made, if there is one.
+     * </p>
+     */
+    private void cancelRunning() {
+        Progress progress = running;
+        if (progress != null) {
+            progress.cancel();
+        }
+    }
+
+    /**
+     * <p>
+     * Scale a radius to the size of a proxy.
+     * </p>
+     *
+     * @param radius The radius in image pixels.
+     * @param scale  The size of the proxy relative to the image.
+     * @return The radius in proxy pixels, at least 1.
+     */
+    public static int scaleRadius(int radius, double scale) {
+        return Math.max(1, (int) Math.round(radius * scale));
+    }
+
+    /**
+     * <p>
+     * Get a shrunk copy of part of an image.
+     * </p>
+     *
+     * <p>
+     * Opening one dialog after another on the same view reuses the same proxy,
+     * as long as the image's {@link EditableImage#getVersion() version} has
+     * not changed; drawing changes the image in place, so comparing images is
+     * not enough.
+     * The proxy is always {@code TYPE_INT_ARGB}, which every operation handles
+     * quickly.
+     * </p>
+     *
+     * <p>
+     * The region is drawn straight into the proxy with bilinear interpolation,
+     * so only the proxy is allocated.
+     * That is only smooth for reductions of up to half, so a bigger reduction
+     * should copy from a level of a {@link MipmapPyramid} instead.
+     * </p>
+     *
+     * @param image   The image to copy from.
+     * @param version The version of the image.
+     * @param region  The part of the image to copy.
+     * @param scale   How much to shrink it by, from 0 to 1.
+     * @return The proxy, which must not be changed.
+     */
+    public static synchronized BufferedImage proxy(BufferedImage image, long version, Rectangle region,
+            double scale) {
+        BufferedImage cached = cachedProxy.get();
+        if (cached != null && cachedSource.get() == image && version == cachedVersion
+                && region.equals(cachedRegion) && scale == cachedScale) {
+            return cached;
+        }
+
+        int width = Math.max(1, (int) Math.ceil(region.width * scale));
+        int height = Math.max(1, (int) Math.ceil(region.height * scale));
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = result.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, region.x, region.y, region.x + region.width,
+                region.y + region.height, null);
+        g.dispose();
+
+        cachedSource = new WeakReference<BufferedImage>(image);
+        cachedVersion = version;
+        cachedRegion = new Rectangle(region);
+        cachedScale = scale;
+        cachedProxy = new SoftReference<BufferedImage>(result);
+        return result;
+    }
+}
@@ -0,0 +1,147 @@
+package cosc202.andie;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * The progress of an operation running in the background, and a way to cancel
+ * it.
+ * </p>
+ *
+ * <p>
+ * The {@link OperationRunner} makes a Progress for each job and sets it as the
+ * current progress of the thread running the job.
+ * Operations do not usually need to use it directly: the
+ * {@link TileScheduler} counts the rows of each band as they finish and checks
+ * for cancellation before starting each band.
+ * Operations that do long work of their own can call {@link #advance} and
+ * {@link #checkCancelled} on {@link #current()}.
+ * </p>
+ *
+ * <p>
+ * Cancelling is cooperative: the operation stops with a
+ * {@link CancellationException} the next time it checks, and the image is left
+ * as it was before the operation started.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see OperationRunner
+ * @version 1.0
+ */
+public class Progress {
+
+    /** The progress of the job on each thread, if there is one. */
+    private static final ThreadLocal<Progress> CURRENT = new ThreadLocal<Progress>();
+
+    /** The units of work finished so far. */
+    private final AtomicLong done = new AtomicLong();
+
+    /** The units of work started so far. */
+    private final AtomicLong total = new AtomicLong();
+
+    /** Whether the job has been asked to stop. */
+    private volatile boolean cancelled;
+
+    /**
+     * <p>
+     * Get the progress of the job running on this thread.
+     * </p>
+     *
+     * @return The progress, or null if no job is being tracked.
+     */
+    public static Progress current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * <p>
+     * Set the progress of the job running on this thread.
+     * </p>
+     *
+     * @param progress The progress to track, or null to stop tracking.
+     */
+    static void setCurrent(Progress progress) {
+        if (progress == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(progress);
+        }
+    }
+
+    /**
+     * <p>
+     * Add work that is about to be done.
+     * </p>
+     *
+     * @param units The amount of work, such as a number of rows.
+     */
+    public void expect(long units) {
+        total.addAndGet(units);
+    }
+
+    /**
+     * <p>
+     * Record work that has been done.
+     * </p>
+     *
+     * @param units The amount of work, such as a number of rows.
+     */
+    public void advance(long units) {
+        done.addAndGet(units);
+    }
+
+    /**
+     * <p>
+     * Get how much of the work started so far has been done.
+     * </p>
+     *
+     * <p>
+     * An operation may have several passes, and each adds to the total when it
+     * starts, so the fraction can go down as well as up.
+     * </p>
+     *
+     * @return A fraction from 0 to 1.
+     */
+    public double getFraction() {
+        long t = total.get();
+        return t == 0 ? 0 : Math.min(1.0, (double) done.get() / t);
+    }
+
+    /**
+     * <p>
+     * Ask the job to stop as soon as it can.
+     * </p>
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * <p>
+     * Check whether the job has been asked to stop.
+     * </p>
+     *
+     * @return True if the job has been cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * <p>
+     * Stop the job if it has been cancelled.
+     * </p>
+     *
+     * @throws CancellationException If the job has been cancelled.
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+}
@@ -0,0 +1,659 @@
+package cosc202.andie;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A mapping from the pixels of an output image to the pixels of an input image
+ * that they are copied from.
+ * </p>
+ *
+ * <p>
+ * Flips, right-angle rotations, crops and nearest-neighbour resizes all keep
+ * the rows and columns of an image lined up with the axes.
+ * Each output column therefore comes from a single input column (or, if the
+ * image is turned on its side, a single input row), and likewise for output
+ * rows, so the whole mapping is two tables of indices, one for each axis.
+ * Mappings made this way compose exactly: following one remap with another
+ * gives a remap that copies every pixel from the same place as applying the
+ * two in turn would, so a chain of these operations only needs one pass over
+ * the output pixels, and a chain that undoes itself, such as two opposite
+ * flips, needs none.
+ * A chain that comes down to keeping a rectangle of the image, such as a crop,
+ * needs none either: the result is a view of that part of the input, sharing
+ * its pixels.
+ * </p>
+ *
+ * <p>
+ * Images whose pixels are held in an int or byte array, such as TYPE_INT_ARGB,
+ * TYPE_3BYTE_BGR or TYPE_BYTE_GRAY, are remapped by copying the raw samples
+ * from one array to the other, so the pixels keep their type and are never
+ * converted through a colour model.
+ * A quarter turn reads rows and writes columns, so it is copied in square
+ * blocks small enough that both stay in the cache.
+ * Other images, including {@link MappedImage}s, go through {@link Pixels}.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see GeometricOperation
+ * @see ComposedTransform
+ * @version 1.0
+ */
+public final class Remap {
+
+    /** The number of output rows worked on together when the axes are swapped. */
+    private static final int CHUNK = 64;
+
+    /** The side of the square blocks a swapped remap copies raw samples in. */
+    private static final int BLOCK = 64;
+
+    /** The size of the input image. */
+    private final int inWidth;
+    private final int inHeight;
+
+    /**
+     * For each output column, the input column it comes from, or the input row
+     * if swapped.
+     */
+    private final int[] across;
+
+    /**
+     * For each output row, the input row it comes from, or the input column if
+     * swapped.
+     */
+    private final int[] down;
+
+    /** True if output columns come from input rows and output rows from input columns. */
+    private final boolean swapped;
+
+    /** True if the output is an opaque TYPE_INT_RGB image rather than like the input. */
+    private final boolean opaque;
+
+    private Remap(int inWidth, int inHeight, int[] across, int[] down, boolean swapped, boolean opaque) {
+        this.inWidth = inWidth;
+        this.inHeight = inHeight;
+        this.across = across;
+        this.down = down;
+        this.swapped = swapped;
+        this.opaque = opaque;
+    }
+
+    /**
+     * @param n A length.
+     * @return The indices 0 to n - 1.
+     */
+    private static int[] ascending(int n) {
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    /**
+     * @param n A length.
+     * @return The indices n - 1 down to 0.
+     */
+    private static int[] descending(int n) {
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = n - 1 - i;
+        }
+        return indices;
+    }
+
+    /**
+     * <p>
+     * The remap that leaves an image as it is.
+     * </p>
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @return The identity remap.
+     */
+    public static Remap identity(int width, int height) {
+        return new Remap(width, height, ascending(width), ascending(height), false, false);
+    }
+
+    /**
+     * <p>
+     * The remap that mirrors an image left to right.
+     * </p>
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @return The remap.
+     */
+    public static Remap flipHorizontal(int width, int height) {
+        return new Remap(width, height, descending(width), ascending(height), false, false);
+    }
+
+    /**
+     * <p>
+     * The remap that mirrors an image top to bottom.
+     * </p>
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @return The remap.
+     */
+    public static Remap flipVertical(int width, int height) {
+        return new Remap(width, height, ascending(width), descending(height), false, false);
+    }
+
+    /**
+     * <p>
+     * The remap that turns an image clockwise by a number of right angles.
+     * </p>
+     *
+     * @param width        The width of the image.
+     * @param height       The height of the image.
+     * @param quarterTurns The number of quarter turns clockwise; negative numbers
+     *                     turn anticlockwise.
+     * @return The remap.
+     */
+    public static Remap rotate(int width, int height, int quarterTurns) {
+        switch (Math.floorMod(quarterTurns, 4)) {
+            case 1:
+                // Output (x, y) comes from input (y, height - 1 - x).
+                return new Remap(width, height, descending(height), ascending(width), true, false);
+            case 2:
+                return new Remap(width, height, descending(width), descending(height), false, false);
+            case 3:
+                // Output (x, y) comes from input (width - 1 - y, x).
+                return new Remap(width, height, ascending(height), descending(width), true, false);
+            default:
+                return identity(width, height);
+        }
+    }
+
+    /**
+     * <p>
+     * The remap that keeps only part of an image.
+     * </p>
+     *
+     * @param width     The width of the image.
+     * @param height    The height of the image.
+     * @param selection The part to keep; anything outside the image is left out.
+     * @return The remap.
+     * @throws IllegalArgumentException If none of the selection is inside the
+     *                                  image.
+     */
+    public static Remap crop(int width, int height, Rectangle selection) {
+        Rectangle kept = selection.intersection(new Rectangle(width, height));
+        if (kept.isEmpty()) {
+            throw new IllegalArgumentException("Crop selection " + selection.x + "," + selection.y + " "
+                    + selection.width + " x " + selection.height + " is outside the " + width + " x " + height
+                    + " image");
+        }
+        int[] across = new int[Math.max(0, kept.width)];
+        int[] down = new int[Math.max(0, kept.height)];
+        for (int x = 0; x < across.length; x++) {
+            across[x] = kept.x + x;
+        }
+        for (int y = 0; y < down.length; y++) {
+            down[y] = kept.y + y;
+        }
+        return new Remap(width, height, across, down, false, false);
+    }
+
+    /**
+     * <p>
+     * The remap that resizes an image by picking the nearest pixel.
+     * </p>
+     *
+     * <p>
+     * Each output pixel is copied from the input pixel under its centre.
+     * The result is an opaque TYPE_INT_RGB image.
+     * </p>
+     *
+     * @param width        The width of the image.
+     * @param height       The height of the image.
+     * @param targetWidth  The width of the result.
+     * @param targetHeight The height of the result.
+     * @return The remap.
+     */
+    public static Remap scale(int width, int height, int targetWidth, int targetHeight) {
+        return new Remap(width, height, nearest(width, targetWidth), nearest(height, targetHeight), false, true);
+    }
+
+    /**
+     * @param from The number of input pixels along an axis.
+     * @param to   The number of output pixels along the axis.
+     * @return For each output pixel, the input pixel under its centre.
+     */
+    private static int[] nearest(int from, int to) {
+        int[] indices = new int[Math.max(0, to)];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = (int) Math.min(from - 1, ((2L * i + 1) * from) / (2L * to));
+        }
+        return indices;
+    }
+
+    /**
+     * @return The width of the output.
+     */
+    public int getWidth() {
+        return across.length;
+    }
+
+    /**
+     * @return The height of the output.
+     */
+    public int getHeight() {
+        return down.length;
+    }
+
+    /**
+     * @return For each output column, the input column it comes from, or the
+     *         input row if swapped. The array must not be changed.
+     */
+    int[] columns() {
+        return across;
+    }
+
+    /**
+     * @return For each output row, the input row it comes from, or the input
+     *         column if swapped. The array must not be changed.
+     */
+    int[] rows() {
+        return down;
+    }
+
+    /**
+     * @return True if output columns come from input rows.
+     */
+    boolean isSwapped() {
+        return swapped;
+    }
+
+    /**
+     * <p>
+     * Follow this remap with another.
+     * </p>
+     *
+     * @param next A remap whose input is the output of this one.
+     * @return A remap from the input of this one straight to the output of the
+     *         next.
+     */
+    public Remap then(Remap next) {
+        if (next.inWidth != getWidth() || next.inHeight != getHeight()) {
+            throw new IllegalArgumentException("Remaps do not fit together");
+        }
+        // The next remap's tables index this one's output; follow them through
+        // this one's tables, crossing over if the next one swaps the axes.
+        int[] first = next.swapped ? down : across;
+        int[] second = next.swapped ? across : down;
+        int[] composedAcross = new int[next.across.length];
+        int[] composedDown = new int[next.down.length];
+        for (int x = 0; x < composedAcross.length; x++) {
+            composedAcross[x] = first[next.across[x]];
+        }
+        for (int y = 0; y < composedDown.length; y++) {
+            composedDown[y] = second[next.down[y]];
+        }
+        return new Remap(inWidth, inHeight, composedAcross, composedDown, swapped ^ next.swapped,
+                opaque || next.opaque);
+    }
+
+    /**
+     * <p>
+     * Check whether this remap leaves every pixel where it is.
+     * </p>
+     *
+     * @return True if the output is the same as the input.
+     */
+    public boolean isIdentity() {
+        if (swapped || opaque || getWidth() != inWidth || getHeight() != inHeight) {
+            return false;
+        }
+        for (int x = 0; x < across.length; x++) {
+            if (across[x] != x) {
+                return false;
+            }
+        }
+        for (int y = 0; y < down.length; y++) {
+            if (down[y] != y) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <p>
+     * Check whether this remap keeps a rectangle of the input as it is.
+     * </p>
+     *
+     * @return True if there is at least one output column and row, and they
+     *         are each a run of input columns and rows in order.
+     */
+    private boolean isWindow() {
+        if (swapped || opaque || across.length == 0 || down.length == 0) {
+            return false;
+        }
+        for (int x = 1; x < across.length; x++) {
+            if (across[x] != across[0] + x) {
+                return false;
+            }
+        }
+        for (int y = 1; y < down.length; y++) {
+            if (down[y] != down[0] + y) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <p>
+     * Copy the pixels of an image to where this remap sends them.
+     * </p>
+     *
+     * <p>
+     * Each output row is made in one pass and the rows are split across every
+     * core.
+     * The result has the same colour model as the input, or is TYPE_INT_RGB if
+     * the remap includes a resize.
+     * If the remap is the identity the input itself is returned, and if it only
+     * keeps a rectangle of the input the result is a view made with
+     * {@link BufferedImage#getSubimage}; code that changes an image in place
+     * should take a {@link Pixels#unshared} copy first.
+     * </p>
+     *
+     * @param input The image to remap, which must be the size this remap was
+     *              made for.
+     * @return The remapped image.
+     */
+    public BufferedImage apply(BufferedImage input) {
+        if (input.getWidth() != inWidth || input.getHeight() != inHeight) {
+            throw new IllegalArgumentException("Remap is for a " + inWidth + " x " + inHeight + " image");
+        }
+        if (isIdentity()) {
+            return input;
+        }
+        if (isWindow()) {
+            return input.getSubimage(across[0], down[0], getWidth(), getHeight());
+        }
+        int width = getWidth();
+        int height = getHeight();
+        BufferedImage output = opaque ? Pixels.create(input, width, height, BufferedImage.TYPE_INT_RGB)
+                : Pixels.createCompatible(input, width, height);
+        Raw source = Raw.of(input);
+        Raw target = Raw.of(output);
+        if (source != null && target != null && source.matches(target)
+                && input.getColorModel().equals(output.getColorModel())) {
+            if (swapped) {
+                TileScheduler.forEachBand(height, BLOCK, (y0, y1) -> swappedRaw(source, target, y0, y1));
+            } else {
+                TileScheduler.forEachBand(height, 1, (y0, y1) -> rowsRaw(source, target, y0, y1));
+            }
+        } else if (swapped) {
+            TileScheduler.forEachBand(height, CHUNK, (y0, y1) -> swappedRows(input, output, y0, y1));
+        } else {
+            TileScheduler.forEachBand(height, 1, (y0, y1) -> rows(input, output, y0, y1));
+        }
+        return output;
+    }
+
+    /**
+     * <p>
+     * Make output rows y0 to y1 when the axes are not swapped.
+     * </p>
+     *
+     * <p>
+     * Each output row comes from one input row, so the part of that row that is
+     * used is read once and the output gathered from it.
+     * </p>
+     */
+    private void rows(BufferedImage input, BufferedImage output, int y0, int y1) {
+        int width = getWidth();
+        int min = min(across, 0, width);
+        int span = max(across, 0, width) - min + 1;
+        int[] row = new int[span];
+        int[] out = new int[width];
+        int last = -1;
+        for (int y = y0; y < y1; y++) {
+            if (down[y] != last) {
+                last = down[y];
+                Pixels.read(input, min, last, span, 1, row, 0, span);
+                for (int x = 0; x < width; x++) {
+                    out[x] = row[across[x] - min];
+                }
+            }
+            Pixels.write(output, 0, y, width, 1, out, 0, width);
+        }
+    }
+
+    /**
+     * <p>
+     * Make output rows y0 to y1 when the axes are swapped.
+     * </p>
+     *
+     * <p>
+     * Each output row comes from an input column, so reading columns one at a
+     * time would jump through memory.
+     * Instead the rows are made {@link #CHUNK} at a time: for each input row the
+     * chunk needs, the span of columns the chunk covers is read once and
+     * scattered into the chunk's output rows.
+     * </p>
+     */
+    private void swappedRows(BufferedImage input, BufferedImage output, int y0, int y1) {
+        int width = getWidth();
+        int[] out = new int[Math.min(CHUNK, y1 - y0) * width];
+        for (int cy = y0; cy < y1; cy += CHUNK) {
+            int rows = Math.min(CHUNK, y1 - cy);
+            int min = min(down, cy, cy + rows);
+            int span = max(down, cy, cy + rows) - min + 1;
+            int[] segment = new int[span];
+            int last = -1;
+            for (int x = 0; x < width; x++) {
+                if (across[x] != last) {
+                    last = across[x];
+                    Pixels.read(input, min, last, span, 1, segment, 0, span);
+                }
+                for (int r = 0; r < rows; r++) {
+                    out[r * width + x] = segment[down[cy + r] - min];
+                }
+            }
+            Pixels.write(output, 0, cy, width, rows, out, 0, width);
+        }
+    }
+
+    /**
+     * <p>
+     * The backing array of an image and where each pixel is in it.
+     * </p>
+     */
+    private static final class Raw {
+        /** The int[] or byte[] holding the samples. */
+        final Object data;
+        /** The number of array elements per pixel. */
+        final int pixel;
+        /** The number of array elements per row. */
+        final int scan;
+        /** The index of the first element of pixel (0, 0). */
+        final int base;
+        /** The sample model, to check that two images store pixels alike. */
+        final SampleModel model;
+
+        private Raw(Object data, int pixel, int scan, int base, SampleModel model) {
+            this.data = data;
+            this.pixel = pixel;
+            this.scan = scan;
+            this.base = base;
+            this.model = model;
+        }
+
+        /**
+         * @param image An image.
+         * @return Its layout, or null if its pixels are not one run of ints or
+         *         bytes each.
+         */
+        static Raw of(BufferedImage image) {
+            WritableRaster raster = image.getRaster();
+            DataBuffer buffer = raster.getDataBuffer();
+            SampleModel model = raster.getSampleModel();
+            if (buffer.getNumBanks() != 1) {
+                return null;
+            }
+            int offset = buffer.getOffset();
+            int tx = raster.getSampleModelTranslateX();
+            int ty = raster.getSampleModelTranslateY();
+            if (buffer instanceof DataBufferInt && model instanceof SinglePixelPackedSampleModel) {
+                int scan = ((SinglePixelPackedSampleModel) model).getScanlineStride();
+                return new Raw(((DataBufferInt) buffer).getData(), 1, scan, offset - ty * scan - tx, model);
+            }
+            if (buffer instanceof DataBufferByte && model instanceof ComponentSampleModel) {
+                ComponentSampleModel component = (ComponentSampleModel) model;
+                int pixel = component.getPixelStride();
+                for (int band : component.getBandOffsets()) {
+                    if (band < 0 || band >= pixel) {
+                        return null;
+                    }
+                }
+                int scan = component.getScanlineStride();
+                return new Raw(((DataBufferByte) buffer).getData(), pixel, scan,
+                        offset - ty * scan - tx * pixel, model);
+            }
+            return null;
+        }
+
+        /**
+         * @param other The layout of another image.
+         * @return True if a pixel can be copied from one to the other as raw
+         *         elements.
+         */
+        boolean matches(Raw other) {
+            if (data.getClass() != other.data.getClass() || pixel != other.pixel
+                    || model.getClass() != other.model.getClass()) {
+                return false;
+            }
+            if (model instanceof SinglePixelPackedSampleModel) {
+                return Arrays.equals(((SinglePixelPackedSampleModel) model).getBitMasks(),
+                        ((SinglePixelPackedSampleModel) other.model).getBitMasks());
+            }
+            return Arrays.equals(((ComponentSampleModel) model).getBandOffsets(),
+                    ((ComponentSampleModel) other.model).getBandOffsets());
+        }
+    }
+
+    /**
+     * <p>
+     * Copy output rows y0 to y1 as raw samples when the axes are not swapped.
+     * </p>
+     *
+     * <p>
+     * Where the output columns are a run of input columns in order, as after a
+     * crop or a vertical flip, each row is a single array copy.
+     * </p>
+     */
+    private void rowsRaw(Raw in, Raw out, int y0, int y1) {
+        int width = getWidth();
+        int p = in.pixel;
+        boolean run = true;
+        for (int x = 1; x < width && run; x++) {
+            run = across[x] == across[0] + x;
+        }
+        for (int y = y0; y < y1; y++) {
+            int s = in.base + down[y] * in.scan;
+            int d = out.base + y * out.scan;
+            if (run) {
+                System.arraycopy(in.data, s + across[0] * p, out.data, d, width * p);
+            } else if (p == 1 && in.data instanceof int[]) {
+                int[] src = (int[]) in.data;
+                int[] dst = (int[]) out.data;
+                for (int x = 0; x < width; x++) {
+                    dst[d + x] = src[s + across[x]];
+                }
+            } else {
+                byte[] src = (byte[]) in.data;
+                byte[] dst = (byte[]) out.data;
+                for (int x = 0; x < width; x++) {
+                    int sx = s + across[x] * p;
+                    int dx = d + x * p;
+                    for (int k = 0; k < p; k++) {
+                        dst[dx + k] = src[sx + k];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Copy output rows y0 to y1 as raw samples when the axes are swapped.
+     * </p>
+     *
+     * <p>
+     * Each output column comes from an input row, so the rows are copied
+     * {@link #BLOCK} by {@link #BLOCK} pixels at a time: within a block the
+     * input rows are read in order and the output columns written, and both
+     * fit in the cache however wide the image is.
+     * </p>
+     */
+    private void swappedRaw(Raw in, Raw out, int y0, int y1) {
+        int width = getWidth();
+        int p = in.pixel;
+        for (int by = y0; by < y1; by += BLOCK) {
+            int ey = Math.min(by + BLOCK, y1);
+            for (int bx = 0; bx < width; bx += BLOCK) {
+                int ex = Math.min(bx + BLOCK, width);
+                if (p == 1 && in.data instanceof int[]) {
+                    int[] src = (int[]) in.data;
+                    int[] dst = (int[]) out.data;
+                    for (int x = bx; x < ex; x++) {
+                        int s = in.base + across[x] * in.scan;
+                        int d = out.base + x;
+                        for (int y = by; y < ey; y++) {
+                            dst[d + y * out.scan] = src[s + down[y]];
+                        }
+                    }
+                } else {
+                    byte[] src = (byte[]) in.data;
+                    byte[] dst = (byte[]) out.data;
+                    for (int x = bx; x < ex; x++) {
+                        int s = in.base + across[x] * in.scan;
+                        int d = out.base + x * p;
+                        for (int y = by; y < ey; y++) {
+                            int sy = s + down[y] * p;
+                            int dy = d + y * out.scan;
+                            for (int k = 0; k < p; k++) {
+                                dst[dy + k] = src[sy + k];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int min(int[] values, int from, int to) {
+        int min = Integer.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    private static int max(int[] values, int from, int to) {
+        int max = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,454 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Resizing an image by filtering with a resampling kernel.
+ * </p>
+ *
+ * <p>
+ * Each output pixel is a weighted sum of the input pixels near the point it
+ * maps back to, with the weights given by a {@link Kernel}.
+ * The kernels are separable, so the image is filtered along rows and then down
+ * columns, and the weights for each output column and each output row are
+ * worked out once rather than for every pixel.
+ * When shrinking, the kernel is stretched to cover every input pixel that falls
+ * under an output pixel, so fine detail is averaged rather than aliased.
+ * </p>
+ *
+ * <p>
+ * Shrinking a very large image to a small one with a stretched kernel would
+ * need dozens of taps per pixel along each axis.
+ * Instead, the image is first halved by averaging blocks of two by two pixels
+ * until the kernel has less than four times further to go, which costs little
+ * and loses nothing the final filter would have kept.
+ * </p>
+ *
+ * <p>
+ * Colours are filtered premultiplied by alpha, so transparent pixels do not
+ * bleed their colour into the pixels around them.
+ * The output rows are split into bands across every core; each band filters
+ * the input rows it needs along the row once and keeps only as many of them as
+ * the tallest column of taps.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see Resize
+ * @version 1.0
+ */
+public final class Resampler {
+
+    /** The fewest output rows in a band, so each band's rows of taps are shared. */
+    private static final int BAND_ROWS = 16;
+
+    /**
+     * <p>
+     * The filters an image can be resampled with.
+     * </p>
+     */
+    public enum Kernel {
+        /** The input pixel under the centre of each output pixel. */
+        NEAREST("Nearest", 0.5) {
+            double weight(double x) {
+                return x >= -0.5 && x < 0.5 ? 1 : 0;
+            }
+        },
+        /** The average of the input pixels each output pixel covers. */
+        BOX("Box", 0.5) {
+            double weight(double x) {
+                return x >= -0.5 && x < 0.5 ? 1 : 0;
+            }
+        },
+        /** Linear interpolation between the nearest pixels. */
+        BILINEAR("Bilinear", 1) {
+            double weight(double x) {
+                x = Math.abs(x);
+                return x < 1 ? 1 - x : 0;
+            }
+        },
+        /** Catmull-Rom cubic interpolation, which is sharp but may ring slightly. */
+        BICUBIC("Bicubic", 2) {
+            double weight(double x) {
+                x = Math.abs(x);
+                if (x < 1) {
+                    return (1.5 * x - 2.5) * x * x + 1;
+                }
+                return x < 2 ? ((-0.5 * x + 2.5) * x - 4) * x + 2 : 0;
+            }
+        },
+        /** The Mitchell-Netravali cubic, balancing sharpness against ringing. */
+        MITCHELL("Mitchell", 2) {
+            double weight(double x) {
+                x = Math.abs(x);
+                if (x < 1) {
+                    return ((7 * x - 12) * x * x + 16.0 / 3) / 6;
+                }
+                return x < 2 ? (((-7.0 / 3 * x + 12) * x - 20) * x + 32.0 / 3) / 6 : 0;
+            }
+        },
+        /** A three-lobed windowed sinc, the sharpest, for photographs. */
+        LANCZOS3("Lanczos 3", 3) {
+            double weight(double x) {
+                if (x == 0) {
+                    return 1;
+                }
+                if (Math.abs(x) >= 3) {
+                    return 0;
+                }
+                double px = Math.PI * x;
+                return 3 * Math.sin(px) * Math.sin(px / 3) / (px * px);
+            }
+        };
+
+        /** The name shown to the user. */
+        private final String label;
+
+        /** How far from the centre, in input pixels, the weights are not zero. */
+        private final double radius;
+
+        private Kernel(String label, double radius) {
+            this.label = label;
+            this.radius = radius;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+
+        /**
+         * @param x A distance from the centre, in input pixels at full scale.
+         * @return The weight of a pixel at that distance.
+         */
+        abstract double weight(double x);
+    }
+
+    /**
+     * <p>
+     * The taps along one axis: for each output position, which input
+     * positions it is made from and how much of each.
+     * </p>
+     */
+    private static final class Taps {
+        /** Where each output position's taps start in index and weight. */
+        final int[] first;
+        /** The input position of each tap, in increasing order for each output. */
+        final int[] index;
+        /** The weight of each tap; the weights for each output add up to 1. */
+        final float[] weight;
+        /** The most input positions, first to last, any output spans. */
+        final int window;
+
+        /**
+         * @param from   The number of input positions.
+         * @param to     The number of output positions.
+         * @param kernel The kernel to weight the taps with.
+         */
+        Taps(int from, int to, Kernel kernel) {
+            double scale = (double) to / from;
+            double stretch = Math.max(1.0, 1.0 / scale);
+            double support = kernel.radius * stretch;
+            int most = (int) Math.ceil(2 * support) + 2;
+            int[] indices = new int[to * most];
+            double[] weights = new double[to * most];
+            first = new int[to + 1];
+            int n = 0;
+            int widest = 1;
+            for (int i = 0; i < to; i++) {
+                first[i] = n;
+                double centre = (i + 0.5) / scale;
+                double sum = 0;
+                int lo = (int) Math.floor(centre - support);
+                int hi = (int) Math.ceil(centre + support);
+                for (int j = lo; j <= hi; j++) {
+                    double w = kernel.weight((j + 0.5 - centre) / stretch);
+                    if (w == 0) {
+                        continue;
+                    }
+                    // Past the edges, repeat the edge pixel.
+                    int k = Math.min(from - 1, Math.max(0, j));
+                    if (n > first[i] && indices[n - 1] == k) {
+                        weights[n - 1] += w;
+                    } else {
+                        indices[n] = k;
+                        weights[n++] = w;
+                    }
+                    sum += w;
+                }
+                if (sum == 0) {
+                    n = first[i];
+                    indices[n] = Math.min(from - 1, (int) centre);
+                    weights[n++] = 1;
+                    sum = 1;
+                }
+                for (int t = first[i]; t < n; t++) {
+                    weights[t] /= sum;
+                }
+                widest = Math.max(widest, indices[n - 1] - indices[first[i]] + 1);
+            }
+            first[to] = n;
+            index = Arrays.copyOf(indices, n);
+            weight = new float[n];
+            for (int t = 0; t < n; t++) {
+                weight[t] = (float) weights[t];
+            }
+            window = widest;
+        }
+    }
+
+    private Resampler() {
+    }
+
+    /**
+     * <p>
+     * Resize an image with a kernel.
+     * </p>
+     *
+     * <p>
+     * The result has alpha if the input does, and is TYPE_INT_ARGB or
+     * TYPE_INT_RGB; it is a {@link MappedImage} if the input is.
+     * The {@link Kernel#NEAREST} kernel instead gives a TYPE_INT_RGB image,
+     * exactly as {@link Remap#scale} does.
+     * </p>
+     *
+     * @param input  The image to resize.
+     * @param width  The width of the result.
+     * @param height The height of the result.
+     * @param kernel The kernel to filter with.
+     * @return The resized image.
+     */
+    public static BufferedImage resize(BufferedImage input, int width, int height, Kernel kernel) {
+        return resize(input, Remap.identity(input.getWidth(), input.getHeight()), width, height, kernel);
+    }
+
+    /**
+     * <p>
+     * Resize the image a remap would make from an input, reading the input
+     * through the remap rather than making that image first where possible.
+     * </p>
+     *
+     * @param input  The image the remap applies to.
+     * @param before The remap to resize the result of.
+     * @param width  The width of the result.
+     * @param height The height of the result.
+     * @param kernel The kernel to filter with.
+     * @return The resized image.
+     * @see #resize(BufferedImage, int, int, Kernel)
+     */
+    static BufferedImage resize(BufferedImage input, Remap before, int width, int height, Kernel kernel) {
+        if (kernel == Kernel.NEAREST) {
+            return before.then(Remap.scale(before.getWidth(), before.getHeight(), width, height)).apply(input);
+        }
+        boolean alpha = input.getColorModel().hasAlpha();
+        BufferedImage output = Pixels.create(input, width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+
+        // Turned images are read by column, and halving reads whole images, so
+        // both start from the remapped image.
+        boolean halve = shouldHalve(before.getWidth(), before.getHeight(), width, height);
+        if (before.isSwapped() || halve) {
+            input = before.apply(input);
+            while (shouldHalve(input.getWidth(), input.getHeight(), width, height)) {
+                input = halve(input);
+            }
+            before = Remap.identity(input.getWidth(), input.getHeight());
+        }
+
+        BufferedImage source = input;
+        int[] columns = before.columns();
+        int[] rows = before.rows();
+        Taps across = new Taps(before.getWidth(), width, kernel);
+        Taps down = new Taps(before.getHeight(), height, kernel);
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int column : columns) {
+            min = Math.min(min, column);
+            max = Math.max(max, column);
+        }
+        int left = min;
+        int span = max - min + 1;
+        // Send the taps along each row straight to the input columns.
+        int[] sourceColumns = new int[across.index.length];
+        for (int t = 0; t < sourceColumns.length; t++) {
+            sourceColumns[t] = 4 * (columns[across.index[t]] - left);
+        }
+
+        TileScheduler.forEachBand(height, BAND_ROWS, (y0, y1) -> {
+            float[][] filtered = new float[down.window][4 * width];
+            int[] row = new int[span];
+            float[] premultiplied = new float[4 * span];
+            float[] sum = new float[4 * width];
+            int[] out = new int[width];
+            int next = 0;
+            for (int y = y0; y < y1; y++) {
+                int top = down.index[down.first[y]];
+                int bottom = down.index[down.first[y + 1] - 1];
+                next = Math.max(next, top);
+                // Filter the input rows this output row reaches that no
+                // earlier row did, overwriting the ones no longer needed.
+                for (; next <= bottom; next++) {
+                    Pixels.read(source, left, rows[next], span, 1, row, 0, span);
+                    premultiply(row, premultiplied);
+                    filterRow(premultiplied, across, sourceColumns, filtered[next % down.window], width);
+                }
+                Arrays.fill(sum, 0);
+                for (int t = down.first[y]; t < down.first[y + 1]; t++) {
+                    float w = down.weight[t];
+                    float[] line = filtered[down.index[t] % down.window];
+                    for (int i = 0; i < sum.length; i++) {
+                        sum[i] += w * line[i];
+                    }
+                }
+                pack(sum, out, alpha);
+                Pixels.write(output, 0, y, width, 1, out, 0, width);
+            }
+        });
+        return output;
+    }
+
+    /**
+     * @return True if an image of width by height should be halved before being
+     *         resized to target width by target height.
+     */
+    private static boolean shouldHalve(int width, int height, int targetWidth, int targetHeight) {
+        return (width + 1) / 2 >= 2 * targetWidth && (height + 1) / 2 >= 2 * targetHeight;
+    }
+
+    /**
+     * <p>
+     * Split packed ARGB pixels into alpha and colours premultiplied by alpha.
+     * </p>
+     */
+    private static void premultiply(int[] pixels, float[] channels) {
+        for (int i = 0; i < pixels.length; i++) {
+            int p = pixels[i];
+            int a = p >>> 24;
+            float f = a / 255f;
+            channels[4 * i] = a;
+            channels[4 * i + 1] = ((p >> 16) & 0xFF) * f;
+            channels[4 * i + 2] = ((p >> 8) & 0xFF) * f;
+            channels[4 * i + 3] = (p & 0xFF) * f;
+        }
+    }
+
+    /**
+     * <p>
+     * Filter one row along its length.
+     * </p>
+     */
+    private static void filterRow(float[] channels, Taps taps, int[] sourceColumns, float[] filtered, int width) {
+        for (int x = 0; x < width; x++) {
+            float a = 0, r = 0, g = 0, b = 0;
+            for (int t = taps.first[x]; t < taps.first[x + 1]; t++) {
+                float w = taps.weight[t];
+                int c = sourceColumns[t];
+                a += w * channels[c];
+                r += w * channels[c + 1];
+                g += w * channels[c + 2];
+                b += w * channels[c + 3];
+            }
+            filtered[4 * x] = a;
+            filtered[4 * x + 1] = r;
+            filtered[4 * x + 2] = g;
+            filtered[4 * x + 3] = b;
+        }
+    }
+
+    /**
+     * <p>
+     * Turn filtered channels back into packed ARGB pixels.
+     * </p>
+     */
+    private static void pack(float[] channels, int[] pixels, boolean alpha) {
+        for (int x = 0; x < pixels.length; x++) {
+            float a = channels[4 * x];
+            if (alpha && a < 0.5f) {
+                pixels[x] = 0;
+                continue;
+            }
+            float f = alpha ? 255 / a : 1;
+            pixels[x] = (alpha ? clamp(a) : 255) << 24 | clamp(channels[4 * x + 1] * f) << 16
+                    | clamp(channels[4 * x + 2] * f) << 8 | clamp(channels[4 * x + 3] * f);
+        }
+    }
+
+    private static int clamp(float value) {
+        return value <= 0 ? 0 : value >= 255 ? 255 : (int) (value + 0.5f);
+    }
+
+    /**
+     * <p>
+     * Make an image half the size of another.
+     * </p>
+     *
+     * <p>
+     * Each output pixel is the average of a block of two by two input pixels,
+     * weighted by alpha so that transparent pixels do not darken the colour.
+     * On an odd edge the block is cut short.
+     * The work is split into bands of rows and done on every core.
+     * </p>
+     *
+     * @param image The image to shrink.
+     * @return A new image, half the size rounded up, with alpha.
+     */
+    static BufferedImage halve(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int outWidth = (width + 1) / 2;
+        int outHeight = (height + 1) / 2;
+        BufferedImage output = MappedImage.isMapped(image) && MappedImage.shouldMap(outWidth, outHeight)
+                ? MappedImage.create(outWidth, outHeight, true)
+                : new BufferedImage(outWidth, outHeight, BufferedImage.TYPE_INT_ARGB);
+        TileScheduler.forEachBand(outHeight, 1, (y0, y1) -> {
+            int[] in = new int[2 * width];
+            int[] out = new int[outWidth];
+            for (int oy = y0; oy < y1; oy++) {
+                int rows = Math.min(2, height - 2 * oy);
+                Pixels.read(image, 0, 2 * oy, width, rows, in, 0, width);
+                if (rows == 1) {
+                    System.arraycopy(in, 0, in, width, width);
+                }
+                for (int ox = 0; ox < outWidth; ox++) {
+                    int x = 2 * ox;
+                    int x1 = Math.min(x + 1, width - 1);
+                    out[ox] = average(in[x], in[x1], in[width + x], in[width + x1]);
+                }
+                Pixels.write(output, 0, oy, outWidth, 1, out, 0, outWidth);
+            }
+        });
+        return output;
+    }
+
+    /**
+     * <p>
+     * Average four pixels, weighting the colours by alpha.
+     * </p>
+     *
+     * @param a A pixel, as a packed ARGB value.
+     * @param b A pixel.
+     * @param c A pixel.
+     * @param d A pixel.
+     * @return The average pixel.
+     */
+    private static int average(int a, int b, int c, int d) {
+        int aa = a >>> 24, ba = b >>> 24, ca = c >>> 24, da = d >>> 24;
+        int alpha = aa + ba + ca + da;
+        if (alpha == 0) {
+            return 0;
+        }
+        int red = ((a >> 16) & 0xFF) * aa + ((b >> 16) & 0xFF) * ba + ((c >> 16) & 0xFF) * ca
+                + ((d >> 16) & 0xFF) * da;
+        int green = ((a >> 8) & 0xFF) * aa + ((b >> 8) & 0xFF) * ba + ((c >> 8) & 0xFF) * ca
+                + ((d >> 8) & 0xFF) * da;
+        int blue = (a & 0xFF) * aa + (b & 0xFF) * ba + (c & 0xFF) * ca + (d & 0xFF) * da;
+        int half = alpha / 2;
+        return ((alpha + 2) / 4) << 24 | ((red + half) / alpha) << 16 | ((green + half) / alpha) << 8
+                | ((blue + half) / alpha);
+    }
+}
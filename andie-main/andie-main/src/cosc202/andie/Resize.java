@@ -1,7 +1,6 @@
 package cosc202.andie;
 
-import java.awt.image.*;
-import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 
 /**
  * <p>
@@ -10,6 +9,9 @@ import java.awt.Graphics2D;
  * 
  * <p>
  * The image produced by this operation is resized given a percentage.
+ * It is resampled with a {@link Resampler.Kernel}; the nearest pixel kernel
+ * simply picks pixels, and the others filter them so that shrinking does not
+ * alias and enlarging is smooth.
  * </p>
  * 
  * <p>
@@ -20,43 +22,98 @@ import java.awt.Graphics2D;
  * @author Josh Lawson
  * @version 1.0
  */
-public class Resize implements ImageOperation, java.io.Serializable {
+public class Resize implements GeometricOperation, java.io.Serializable {
     /**
      * The percentage of resize to apply.
      */
     public int size;
 
+    /**
+     * The kernel to resample with, or null in operations saved before there
+     * was a choice, which picked the nearest pixel.
+     */
+    private Resampler.Kernel kernel;
+
+    /** The UID from before {@link kernel} was added, so old files still read. */
+    private static final long serialVersionUID = 1260687693315163253L;
+
     /**
      * <p>
-     * Construct a resized image with the given percentage.
+     * Construct a resized image with the given percentage, picking the nearest
+     * pixel.
      * </p>
      * 
      * @param size The percentage of the newly resized image
      */
     public Resize(int size) {
+        this(size, Resampler.Kernel.NEAREST);
+    }
+
+    /**
+     * <p>
+     * Construct a resized image with the given percentage and kernel.
+     * </p>
+     * 
+     * @param size   The percentage of the newly resized image
+     * @param kernel The kernel to resample with.
+     */
+    public Resize(int size, Resampler.Kernel kernel) {
         this.size = size;
+        this.kernel = kernel;
     }
 
     /**
      * <p>
-     * Apply resize transformation to an image.
+     * Returns the kernel the image is resampled with.
      * </p>
      * 
-     * @param input The image to be resized
-     * @return The resulting resized image.
+     * @return The kernel.
+     */
+    public Resampler.Kernel getKernel() {
+        return kernel == null ? Resampler.Kernel.NEAREST : kernel;
+    }
+
+    /**
+     * <p>
+     * Get the remap that resizes an image to the percentage by picking pixels.
+     * </p>
+     * 
+     * <p>
+     * Each pixel of the resized image is the pixel of the original under its
+     * centre, and the result has no alpha channel.
+     * </p>
+     * 
+     * @param width  The width of the image to be resized.
+     * @param height The height of the image to be resized.
+     * @return The remap, or null if the kernel filters pixels.
      */
-    public BufferedImage apply(BufferedImage input) {
-        int inputWidth = input.getWidth();
-        int inputHeight = input.getHeight();
-        int targetWidth = inputWidth * size / 100;
-        int targetHeight = inputHeight * size / 100;
+    public Remap getRemap(int width, int height) {
+        if (getKernel() != Resampler.Kernel.NEAREST) {
+            return null;
+        }
+        return Remap.scale(width, height, targetSize(width), targetSize(height));
+    }
 
-        BufferedImage resizedImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
-        Graphics2D graphics2D = resizedImage.createGraphics();
-        graphics2D.drawImage(input, 0, 0, targetWidth, targetHeight, null);
-        graphics2D.dispose();
+    /**
+     * <p>
+     * Apply resize transformation to the image a remap makes.
+     * </p>
+     * 
+     * @param input  The image the remap applies to.
+     * @param before The remap to apply first.
+     * @return The resulting resized image.
+     */
+    public BufferedImage apply(BufferedImage input, Remap before) {
+        return Resampler.resize(input, before, targetSize(before.getWidth()), targetSize(before.getHeight()),
+                getKernel());
+    }
 
-        return resizedImage;
+    /**
+     * @param length A width or height.
+     * @return The length resized by the percentage.
+     */
+    private int targetSize(int length) {
+        return (int) ((long) length * size / 100);
     }
 
-}
\ No newline at end of file
+}
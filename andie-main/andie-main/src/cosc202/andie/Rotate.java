@@ -1,9 +1,5 @@
 package cosc202.andie;
 
-import java.awt.image.*;
-import java.awt.Graphics2D;
-import java.awt.geom.AffineTransform;
-
 /**
  * <p>
  * ImageOperation to rotate an image.
@@ -20,10 +16,12 @@ import java.awt.geom.AffineTransform;
  * 
  * @author Ivan Chevtchenko
  */
-public class Rotate implements ImageOperation, java.io.Serializable {
+public class Rotate implements GeometricOperation, java.io.Serializable {
     // The angle to rotate the image by.
     private int rotationAngle = 0;
 
+    private static final long serialVersionUID = -8535210963313006834L;
+
     /**
      * <p>
      * Create a new Rotate operation.
@@ -50,34 +48,21 @@ public class Rotate implements ImageOperation, java.io.Serializable {
 
     /**
      * <p>
-     * Apply rotate transformation to an image.
+     * Get the remap that rotates an image clockwise by the rotation angle.
+     * </p>
+     * 
+     * <p>
+     * Only right angles are supported, so the angle is rounded to the nearest
+     * one; every pixel is kept exactly, and a quarter turn swaps the width and
+     * height.
      * </p>
      * 
-     * @param input The image to be rotated.
-     * @return The resulting rotated image.
+     * @param width  The width of the image to be rotated.
+     * @param height The height of the image to be rotated.
+     * @return The remap.
      */
-    public BufferedImage apply(BufferedImage input) {
-
-        double radians = Math.toRadians(this.rotationAngle);
-        int width = input.getWidth();
-        int height = input.getHeight();
-        int newWidth = (int) Math.round(width * Math.abs(Math.cos(radians)) + height * Math.abs(Math.sin(radians)));
-        int newHeight = (int) Math.round(width * Math.abs(Math.sin(radians)) + height * Math.abs(Math.cos(radians)));
-
-        BufferedImage rotatedImage = new BufferedImage(newWidth, newHeight, input.getType());
-        Graphics2D g = rotatedImage.createGraphics();
-        AffineTransform at = new AffineTransform();
-        at.translate((newWidth - width) / 2, (newHeight - height) / 2);
-        at.rotate(radians, width / 2, height / 2);
-
-        g.setTransform(at);
-        g.drawImage(input, 0, 0, null);
-        g.dispose();
-
-        AffineTransformOp op = new AffineTransformOp(at, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-        input = op.filter(input, null);
-
-        return input;
+    public Remap getRemap(int width, int height) {
+        return Remap.rotate(width, height, (int) Math.round(rotationAngle / 90.0));
     }
 
     /**
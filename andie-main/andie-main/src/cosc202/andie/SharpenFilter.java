@@ -24,7 +24,16 @@ import java.awt.image.*;
  * @version 1.0
  */
 
-public class SharpenFilter implements ImageOperation, java.io.Serializable {
+public class SharpenFilter implements TiledImageOperation, java.io.Serializable {
+
+    /**
+     * The kernel the filter convolves with.
+     */
+    private static final Kernel KERNEL = new Kernel(3, 3, new float[] { 0, -1 / 2.0f, 0,
+            -1 / 2.0f, 3, -1 / 2.0f,
+            0, -1 / 2.0f, 0 });
+
+    private static final long serialVersionUID = -8659711214999441409L;
 
     /**
      * The size of filter to apply.
@@ -78,16 +87,53 @@ public class SharpenFilter implements ImageOperation, java.io.Serializable {
         // the formula for the mean filter has been replaced with the sharpen filter
         // equation
 
-        float[] array = { 0, -1 / 2.0f, 0,
-                -1 / 2.0f, 3, -1 / 2.0f,
-                0, -1 / 2.0f, 0 };
-        // fixed size 3x3 kernel
-        Kernel kernel = new Kernel(3, 3, array);
-        System.out.println("Before convolve");
-        BufferedImage output = Convolve.convolve(input, kernel);
-        System.out.println("After convolve");
+        return TileScheduler.apply(this, input);
+    }
+
+    /**
+     * <p>
+     * Get the halo the 3x3 kernel needs.
+     * </p>
+     *
+     * @return 1, the radius of the kernel.
+     */
+    public int getHalo() {
+        return 1;
+    }
 
-        return output;
+    /**
+     * <p>
+     * Pixels outside the image count as black.
+     * </p>
+     *
+     * @return False, so the border is filled with zeros.
+     */
+    public boolean extendsEdges() {
+        return false;
+    }
+
+    /**
+     * <p>
+     * Create an opaque RGB image to hold the result.
+     * </p>
+     *
+     * @param input The image the filter is being applied to.
+     * @return A new TYPE_INT_RGB image the same size as the input.
+     */
+    public BufferedImage createOutput(BufferedImage input) {
+        return Pixels.create(input, input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * <p>
+     * Convolve a band of rows with the kernel.
+     * </p>
+     *
+     * @see TiledImageOperation#applyTile(int[], int, int[], int, int, int)
+     */
+    public void applyTile(int[] source, int sourceWidth, int[] output, int width, int y0, int y1) {
+        Convolve.convolveRows(source, sourceWidth, Convolve.taps(KERNEL, sourceWidth), output, width, y0, y1,
+                false, false);
     }
 
 }
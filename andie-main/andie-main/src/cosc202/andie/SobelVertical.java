@@ -14,7 +14,16 @@ import java.awt.image.*;
  * 
  * @author Shyamalima Shreya DAs
  */
-public class SobelVertical implements ImageOperation, java.io.Serializable {
+public class SobelVertical implements TiledImageOperation, java.io.Serializable {
+
+    /**
+     * The kernel the filter convolves with.
+     */
+    private static final Kernel KERNEL = new Kernel(3, 3, new float[] { -0.5f, -1.0f, -0.5f,
+            0, 0, 0,
+            +0.5f, +1.0f, +0.5f });
+
+    private static final long serialVersionUID = 235247233694574085L;
     /**
      * <p>
      * Applies the Emboss filter to an input BufferedImage.
@@ -37,19 +46,53 @@ public class SobelVertical implements ImageOperation, java.io.Serializable {
      */
 
     public BufferedImage apply(BufferedImage input) {
-        float[] array = { -0.5f, -1.0f, -0.5f,
-                0, 0, 0,
-                +0.5f, +1.0f, +0.5f };
+        return TileScheduler.apply(this, input);
+    }
 
-        // Make a filter from the array
-        Kernel kernel = new Kernel(3, 3, array);
-        System.out.println("Before convolve");
+    /**
+     * <p>
+     * Get the halo the 3x3 kernel needs.
+     * </p>
+     *
+     * @return 1, the radius of the kernel.
+     */
+    public int getHalo() {
+        return 1;
+    }
 
-        BufferedImage output = Convolve.convolve(input, kernel);
+    /**
+     * <p>
+     * Pixels outside the image count as black.
+     * </p>
+     *
+     * @return False, so the border is filled with zeros.
+     */
+    public boolean extendsEdges() {
+        return false;
+    }
 
-        System.out.println("After convolve");
+    /**
+     * <p>
+     * Create an opaque RGB image to hold the result.
+     * </p>
+     *
+     * @param input The image the filter is being applied to.
+     * @return A new TYPE_INT_RGB image the same size as the input.
+     */
+    public BufferedImage createOutput(BufferedImage input) {
+        return Pixels.create(input, input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
+    }
 
-        return output;
+    /**
+     * <p>
+     * Convolve a band of rows with the kernel.
+     * </p>
+     *
+     * @see TiledImageOperation#applyTile(int[], int, int[], int, int, int)
+     */
+    public void applyTile(int[] source, int sourceWidth, int[] output, int width, int y0, int y1) {
+        Convolve.convolveRows(source, sourceWidth, Convolve.taps(KERNEL, sourceWidth), output, width, y0, y1,
+                false, false);
     }
 
 }
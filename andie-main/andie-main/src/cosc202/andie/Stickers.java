@@ -1,10 +1,9 @@
 package cosc202.andie;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.*;
@@ -189,10 +188,32 @@ public class Stickers extends JFrame {
      * to the buffered image.
      * </p>
      */
-    public class StickerOperation implements ImageOperation, java.io.Serializable {
+    public static class StickerOperation implements ImageOperation {
+
+        /**
+         * Writes and reads sticker operations in operations files. The sticker is
+         * stored as a shared PNG asset, so a sticker used many times is saved once.
+         */
+        static final OpsFormat.Codec<StickerOperation> CODEC = new OpsFormat.Codec<StickerOperation>() {
+            public void write(StickerOperation op, OpsFormat.Output out) throws IOException {
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                ImageIO.write(op.stickerImage, "png", png);
+                out.writeAsset(png.toByteArray());
+                out.writeInt(op.stickerPosition.x);
+                out.writeInt(op.stickerPosition.y);
+            }
+
+            public StickerOperation read(OpsFormat.Input in) throws IOException {
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(in.readAsset()));
+                if (image == null) {
+                    throw new IOException("Sticker image is not a PNG");
+                }
+                return new StickerOperation(image, new Point(in.readInt(), in.readInt()));
+            }
+        };
 
         private Point stickerPosition;
-        private transient BufferedImage stickerImage;
+        private BufferedImage stickerImage;
 
         public StickerOperation(BufferedImage stickerImage, Point stickerPosition) {
             this.stickerImage = stickerImage;
@@ -201,22 +222,12 @@ public class Stickers extends JFrame {
 
         @Override
         public BufferedImage apply(BufferedImage input) {
+            input = Pixels.unshared(input);
             Graphics2D g = input.createGraphics();
             g.drawImage(stickerImage, stickerPosition.x - (stickerImage.getWidth() / 2), stickerPosition.y - (stickerImage.getHeight() / 2), null);
             g.dispose();
             return input;
         }
-
-        private void writeObject(ObjectOutputStream out) throws IOException {
-            out.defaultWriteObject();
-            ImageIO.write(stickerImage, "png", out);
-        }
-    
-        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
-            in.defaultReadObject();
-            stickerImage = ImageIO.read(in);
-        }
-
     }
 
     /**
@@ -254,9 +265,7 @@ public class Stickers extends JFrame {
         
         public void actionPerformed(ActionEvent e) {
             if (ImagePanel.image.hasImage()) {
-                target.getImage().apply(new StickerOperation(stickerImage, stickerPosition));
-                target.repaint();
-                target.getParent().revalidate();
+                OperationRunner.apply(target, new StickerOperation(stickerImage, stickerPosition));
             }
         }
     }
@@ -0,0 +1,229 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * Runs image operations on all processor cores.
+ * </p>
+ *
+ * <p>
+ * The image is split into bands of rows and the bands are worked on in
+ * parallel by a fork-join pool with one thread per core.
+ * The rows are split in half again and again until each piece is small enough,
+ * so idle threads can steal work from busy ones and the load stays even when
+ * some rows take longer than others.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see TiledImageOperation
+ * @version 1.0
+ */
+public class TileScheduler {
+
+    /** The smallest band of rows worth giving to a thread. */
+    private static final int MIN_ROWS = 16;
+
+    /** The number of bands to aim for on each thread, to help balance the load. */
+    private static final int BANDS_PER_THREAD = 4;
+
+    /** The pool that bands are run on. */
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private TileScheduler() {
+    }
+
+    /**
+     * <p>
+     * Work to be done on a band of rows.
+     * </p>
+     */
+    public interface BandTask {
+        /**
+         * <p>
+         * Do the work for rows y0 up to, but not including, y1.
+         * </p>
+         *
+         * @param y0 The first row of the band.
+         * @param y1 One past the last row of the band.
+         */
+        public void run(int y0, int y1);
+    }
+
+    /**
+     * <p>
+     * A band of rows that splits itself in two until it is small enough.
+     * </p>
+     */
+    private static class Band extends RecursiveAction {
+        private static final long serialVersionUID = 8764278719443960806L;
+
+        private final int y0;
+        private final int y1;
+        private final int grain;
+        private final BandTask task;
+
+        Band(int y0, int y1, int grain, BandTask task) {
+            this.y0 = y0;
+            this.y1 = y1;
+            this.grain = grain;
+            this.task = task;
+        }
+
+        @Override
+        protected void compute() {
+            if (y1 - y0 <= grain) {
+                task.run(y0, y1);
+            } else {
+                int middle = (y0 + y1) >>> 1;
+                invokeAll(new Band(y0, middle, grain, task), new Band(middle, y1, grain, task));
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Get the number of threads bands are run on.
+     * </p>
+     *
+     * @return The parallelism of the pool.
+     */
+    public static int getParallelism() {
+        return POOL.getParallelism();
+    }
+
+    /**
+     * <p>
+     * Run a task over every row of an image in parallel bands.
+     * </p>
+     *
+     * <p>
+     * Each row is in exactly one band.
+     * This method returns once every band is done, and any exception thrown by
+     * the task is thrown again here.
+     * </p>
+     *
+     * <p>
+     * If the calling thread has a {@link Progress}, the rows are counted
+     * towards it as each band finishes, and a cancelled job stops before the
+     * next band starts.
+     * Likewise, if an operation is being measured by {@link OperationStats},
+     * the CPU time and memory of the bands run by the pool's threads are added
+     * to its figures.
+     * </p>
+     *
+     * @param height  The number of rows.
+     * @param minRows The fewest rows a band should have, for tasks that have a
+     *                cost to set up each band.
+     * @param task    The work to do on each band.
+     */
+    public static void forEachBand(int height, int minRows, BandTask task) {
+        Progress progress = Progress.current();
+        BandTask tracked = task;
+        if (progress != null) {
+            progress.checkCancelled();
+            progress.expect(height);
+            tracked = (y0, y1) -> {
+                progress.checkCancelled();
+                task.run(y0, y1);
+                progress.advance(y1 - y0);
+            };
+        }
+        OperationStats.Usage usage = OperationStats.Usage.current();
+        if (usage != null) {
+            Thread caller = Thread.currentThread();
+            BandTask counted = tracked;
+            tracked = (y0, y1) -> {
+                if (Thread.currentThread() == caller) {
+                    counted.run(y0, y1);
+                } else {
+                    usage.measure(() -> counted.run(y0, y1));
+                }
+            };
+        }
+
+        int bands = POOL.getParallelism() * BANDS_PER_THREAD;
+        int grain = Math.max(Math.max(MIN_ROWS, minRows), (height + bands - 1) / bands);
+        if (height <= grain) {
+            tracked.run(0, height);
+        } else {
+            POOL.invoke(new Band(0, height, grain, tracked));
+        }
+    }
+
+    /**
+     * <p>
+     * Apply a tiled operation to an image using every core.
+     * </p>
+     *
+     * <p>
+     * The input is copied once into a padded array with the halo the operation
+     * asks for, the bands are computed in parallel, and the results are written
+     * into the image given by {@link TiledImageOperation#createOutput}.
+     * The input image is not changed.
+     * </p>
+     *
+     * <p>
+     * A {@link MappedImage} is too big to copy into one array, so it is worked
+     * through a strip of rows at a time instead, each strip padded with the halo
+     * rows above and below it.
+     * </p>
+     *
+     * @param op    The operation to apply.
+     * @param input The image to apply it to.
+     * @return The resulting image.
+     */
+    public static BufferedImage apply(TiledImageOperation op, BufferedImage input) {
+        if (MappedImage.isMapped(input)) {
+            return applyInStrips(op, input);
+        }
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int halo = op.getHalo();
+        int[] source = Convolve.pad(input, halo, halo, halo, halo, op.extendsEdges());
+        int sourceWidth = width + 2 * halo;
+        int[] pixels = new int[width * height];
+        forEachBand(height, 2 * halo + 1, (y0, y1) -> op.applyTile(source, sourceWidth, pixels, width, y0, y1));
+
+        BufferedImage output = op.createOutput(input);
+        Pixels.write(output, pixels);
+        return output;
+    }
+
+    /**
+     * <p>
+     * Apply a tiled operation to an image one strip of rows at a time.
+     * </p>
+     *
+     * <p>
+     * Only one strip of input and output is held on the heap at once, and the
+     * rows of each strip are still split into bands across every core.
+     * </p>
+     *
+     * @param op    The operation to apply.
+     * @param input The image to apply it to.
+     * @return The resulting image.
+     */
+    private static BufferedImage applyInStrips(TiledImageOperation op, BufferedImage input) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int halo = op.getHalo();
+        int sourceWidth = width + 2 * halo;
+        int rows = Math.max(2 * halo + 1, Pixels.STRIP_PIXELS / sourceWidth);
+        BufferedImage output = op.createOutput(input);
+        int[] pixels = new int[width * Math.min(rows, height)];
+        for (int y = 0; y < height; y += rows) {
+            int h = Math.min(rows, height - y);
+            int[] source = Convolve.pad(input, y, y + h, halo, op.extendsEdges());
+            forEachBand(h, 2 * halo + 1, (y0, y1) -> op.applyTile(source, sourceWidth, pixels, width, y0, y1));
+            Pixels.write(output, 0, y, width, h, pixels, 0, width);
+        }
+        return output;
+    }
+}
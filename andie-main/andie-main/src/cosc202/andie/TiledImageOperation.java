@@ -0,0 +1,99 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * <p>
+ * Interface for operations that can be applied to an image one band of rows at
+ * a time.
+ * </p>
+ *
+ * <p>
+ * Many operations, such as filters and colour adjustments, work out each output
+ * pixel from a small neighbourhood of input pixels.
+ * Those operations can be split into bands of rows that are worked on in
+ * parallel by the {@link TileScheduler}.
+ * The scheduler copies the input into an array of packed ARGB pixels with a
+ * border (the halo) around it, so each band can read the neighbourhood of every
+ * pixel it computes, including pixels outside the image.
+ * </p>
+ *
+ * <p>
+ * An operation's {@link ImageOperation#apply(BufferedImage)} method will
+ * normally just call {@link TileScheduler#apply(TiledImageOperation, BufferedImage)}.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see TileScheduler
+ * @version 1.0
+ */
+public interface TiledImageOperation extends ImageOperation {
+
+    /**
+     * <p>
+     * Get the number of pixels around each output pixel the operation reads.
+     * </p>
+     *
+     * <p>
+     * For a convolution this is the radius of the kernel, and for an operation
+     * that only looks at one pixel at a time it is zero.
+     * </p>
+     *
+     * @return The width of the border needed on each side of the image.
+     */
+    public int getHalo();
+
+    /**
+     * <p>
+     * Say how the border around the image should be filled in.
+     * </p>
+     *
+     * @return True if pixels outside the image copy the nearest edge pixel, false
+     *         if they are zero (transparent black).
+     */
+    public default boolean extendsEdges() {
+        return true;
+    }
+
+    /**
+     * <p>
+     * Create the image that the result of the operation is written into.
+     * </p>
+     *
+     * <p>
+     * By default this is a new image of the same size and type as the input.
+     * </p>
+     *
+     * @param input The image the operation is being applied to.
+     * @return A new image to hold the result.
+     */
+    public default BufferedImage createOutput(BufferedImage input) {
+        return Pixels.createCompatible(input, input.getWidth(), input.getHeight());
+    }
+
+    /**
+     * <p>
+     * Compute a band of output rows.
+     * </p>
+     *
+     * <p>
+     * The source holds the whole input image with a border of {@link #getHalo()}
+     * pixels on every side, so input pixel (x, y) is at index
+     * (y + halo) * sourceWidth + (x + halo).
+     * This method may be called from several threads at once for different
+     * bands, so it must not change any state in the operation.
+     * </p>
+     *
+     * @param source      The padded input pixels, as packed ARGB values.
+     * @param sourceWidth The number of pixels per row of source.
+     * @param output      The array to write output pixels to, width per row.
+     * @param width       The width of the image.
+     * @param y0          The first output row to compute.
+     * @param y1          One past the last output row to compute.
+     */
+    public void applyTile(int[] source, int sourceWidth, int[] output, int width, int y0, int y1);
+}
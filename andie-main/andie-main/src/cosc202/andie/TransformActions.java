@@ -155,9 +155,7 @@ public class TransformActions {
      */
     public void actionPerformed(ActionEvent e) {
       if (ImagePanel.image.hasImage()) {
-        target.getImage().apply(new Rotate(270));
-        target.repaint();
-        target.getParent().revalidate();
+        OperationRunner.apply(target, new Rotate(270));
       } else {
         try {
           Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -218,9 +216,7 @@ public class TransformActions {
      */
     public void actionPerformed(ActionEvent e) {
       if (ImagePanel.image.hasImage()) {
-        target.getImage().apply(new Rotate(90));
-        target.repaint();
-        target.getParent().revalidate();
+        OperationRunner.apply(target, new Rotate(90));
       } else {
         try {
           Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -278,9 +274,7 @@ public class TransformActions {
      */
     public void actionPerformed(ActionEvent e) {
       if (ImagePanel.image.hasImage()) {
-        target.getImage().apply(new Rotate(180));
-        target.repaint();
-        target.getParent().revalidate();
+        OperationRunner.apply(target, new Rotate(180));
       } else {
         try {
           Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -338,9 +332,7 @@ public class TransformActions {
      */
     public void actionPerformed(ActionEvent e) {
       if (ImagePanel.image.hasImage()) {
-        target.getImage().apply(new FlipHorizontal());
-        target.repaint();
-        target.getParent().revalidate();
+        OperationRunner.apply(target, new FlipHorizontal());
       } else {
         try {
           Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -393,9 +385,7 @@ public class TransformActions {
      */
     public void actionPerformed(ActionEvent e) {
       if (ImagePanel.image.hasImage()) {
-        target.getImage().apply(new FlipVertical());
-        target.repaint();
-        target.getParent().revalidate();
+        OperationRunner.apply(target, new FlipVertical());
       } else {
         try {
           Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
@@ -451,6 +441,14 @@ public class TransformActions {
         int size = 100;
 
         JPanel sliderPanel = createSliderPanel();
+        JComboBox<Resampler.Kernel> kernelBox = new JComboBox<Resampler.Kernel>(
+          Resampler.Kernel.values()
+        );
+        kernelBox.setSelectedItem(Resampler.Kernel.MITCHELL);
+        JPanel kernelPanel = new JPanel();
+        kernelPanel.add(new JLabel(Andie.bundle.getString("resize_menu_kernel_text") + ":"));
+        kernelPanel.add(kernelBox);
+        sliderPanel.add(kernelPanel, BorderLayout.NORTH);
         int option = JOptionPane.showOptionDialog(
           null,
           sliderPanel,
@@ -469,9 +467,10 @@ public class TransformActions {
           size = sizeSlider.getValue();
         }
 
-        target.getImage().apply(new Resize(size));
-        target.repaint();
-        target.getParent().revalidate();
+        OperationRunner.apply(
+          target,
+          new Resize(size, (Resampler.Kernel) kernelBox.getSelectedItem())
+        );
       } else {
         try {
           Andie.createErrorMessage(Andie.bundle.getString("no_file_error"));
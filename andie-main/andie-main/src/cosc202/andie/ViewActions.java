@@ -67,6 +67,14 @@ public class ViewActions {
         Integer.valueOf(KeyEvent.VK_BACK_SLASH)
       )
     );
+    actions.add(
+      new DiagnosticsAction(
+        Andie.bundle.getString("diagnostics_title"),
+        null,
+        Andie.bundle.getString("diagnostics_desc"),
+        null
+      )
+    );
   }
 
   /**
@@ -155,14 +163,16 @@ public class ViewActions {
      *
      * <p>
      * This method is called whenever the ZoomInAction is triggered.
-     * It increases the zoom level by 10%, to a maximum of 200%.
+     * It increases the zoom level by 10% between 50% and 200%, and doubles it
+     * outside that range, up to {@link ImagePanel#MAX_ZOOM}.
      * </p>
      *
      * @param e The event triggering this callback.
      */
     public void actionPerformed(ActionEvent e) {
       if (ImagePanel.image.hasImage()) {
-        target.setZoom(target.getZoom() + 10);
+        double zoom = target.getZoom();
+        target.setZoom(zoom < 50 ? Math.min(50, zoom * 2) : zoom < 200 ? zoom + 10 : zoom * 2);
         target.repaint();
         target.getParent().revalidate();
       } else {
@@ -213,14 +223,16 @@ public class ViewActions {
      *
      * <p>
      * This method is called whenever the ZoomOutAction is triggered.
-     * It decreases the zoom level by 10%, to a minimum of 50%.
+     * It decreases the zoom level by 10% between 50% and 200%, and halves it
+     * outside that range, down to {@link ImagePanel#MIN_ZOOM}.
      * </p>
      *
      * @param e The event triggering this callback.
      */
     public void actionPerformed(ActionEvent e) {
       if (ImagePanel.image.hasImage()) {
-        target.setZoom(target.getZoom() - 10);
+        double zoom = target.getZoom();
+        target.setZoom(zoom > 200 ? Math.max(200, zoom / 2) : zoom > 50 ? zoom - 10 : zoom / 2);
         target.repaint();
         target.getParent().revalidate();
       } else {
@@ -294,4 +306,59 @@ public class ViewActions {
       }
     }
   }
+
+  /**
+   * <p>
+   * Action to show how long operations have taken.
+   * </p>
+   *
+   * <p>
+   * The diagnostics window is not modal, so it can be left open while editing.
+   * </p>
+   *
+   * @see DiagnosticsPanel
+   */
+  public class DiagnosticsAction extends ImageAction {
+
+    private static final long serialVersionUID = -6696978910869444561L;
+
+    /** The diagnostics window, made the first time it is shown. */
+    private JDialog dialog;
+
+    /**
+     * <p>
+     * Create a new diagnostics action.
+     * </p>
+     *
+     * @param name     The name of the action (ignored if null).
+     * @param icon     An icon to use to represent the action (ignored if null).
+     * @param desc     A brief description of the action (ignored if null).
+     * @param mnemonic A mnemonic key to use as a shortcut (ignored if null).
+     */
+    DiagnosticsAction(String name, ImageIcon icon, String desc, Integer mnemonic) {
+      super(name, icon, desc, mnemonic);
+    }
+
+    /**
+     * <p>
+     * Callback for when the diagnostics action is triggered.
+     * </p>
+     *
+     * <p>
+     * This method is called whenever the DiagnosticsAction is triggered.
+     * It shows the diagnostics window, which works with or without an image.
+     * </p>
+     *
+     * @param e The event triggering this callback.
+     */
+    public void actionPerformed(ActionEvent e) {
+      if (dialog == null) {
+        dialog = new JDialog(Andie.frame, Andie.bundle.getString("diagnostics_title"), false);
+        dialog.getContentPane().add(new DiagnosticsPanel(target.getImage()));
+        dialog.setSize(720, 320);
+        dialog.setLocationRelativeTo(Andie.frame);
+      }
+      dialog.setVisible(true);
+    }
+  }
 }
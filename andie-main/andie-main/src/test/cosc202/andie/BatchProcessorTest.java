@@ -0,0 +1,60 @@
+package test.cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cosc202.andie.BatchProcessor;
+import cosc202.andie.BrightnessFilter;
+import cosc202.andie.FlipHorizontal;
+import cosc202.andie.ImageOperation;
+import cosc202.andie.NegativeFilter;
+
+public class BatchProcessorTest {
+
+    /*
+     * A single star only matches files in the directory the pattern starts from,
+     * and a double star matches in every directory below it too.
+     */
+    @Test
+    public void testExpandGlob(@TempDir Path dir) throws Exception {
+        Files.createDirectories(dir.resolve("sub"));
+        Files.createFile(dir.resolve("a.png"));
+        Files.createFile(dir.resolve("b.jpg"));
+        Files.createFile(dir.resolve("sub/c.png"));
+
+        List<Path> top = BatchProcessor.expand(dir + "/*.png");
+        Assertions.assertEquals(List.of(dir.resolve("a.png")), top);
+        List<Path> all = BatchProcessor.expand(dir + "/**.png");
+        Assertions.assertEquals(List.of(dir.resolve("a.png"), dir.resolve("sub/c.png")), all);
+    }
+
+    /*
+     * Replaying gives the same image as applying each operation in turn.
+     */
+    @Test
+    public void testReplayMatchesApplyingInOrder() {
+        BufferedImage image = new BufferedImage(7, 5, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++) {
+                image.setRGB(x, y, x * 30 + (y << 12));
+            }
+        }
+        List<ImageOperation> ops = List.of(new BrightnessFilter(30), new FlipHorizontal(), new NegativeFilter());
+        BufferedImage expected = image;
+        for (ImageOperation op : ops) {
+            expected = op.apply(expected);
+        }
+        BufferedImage actual = BatchProcessor.replay(ops, image);
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++) {
+                Assertions.assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+}
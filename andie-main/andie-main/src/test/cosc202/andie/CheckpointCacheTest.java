@@ -0,0 +1,116 @@
+package test.cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.CheckpointCache;
+
+public class CheckpointCacheTest {
+
+    private static BufferedImage image(int type, int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage image(long seed) {
+        return image(BufferedImage.TYPE_INT_RGB, 10, 10, seed);
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        Assertions.assertEquals(expected.getType(), actual.getType());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                Assertions.assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    /*
+     * Checkpoints are kept every interval, or after a slow operation, and undo
+     * finds the deepest one at or before the depth it wants.
+     */
+    @Test
+    public void testOfferAndFloor() {
+        CheckpointCache cache = new CheckpointCache(1 << 20, 4, 100);
+        Assertions.assertFalse(cache.offer(3, image(3), 5));
+        Assertions.assertTrue(cache.offer(4, image(4), 5));
+        Assertions.assertTrue(cache.offer(6, image(6), 500));
+        Assertions.assertEquals(0, cache.floorDepth(3));
+        Assertions.assertEquals(4, cache.floorDepth(5));
+        Assertions.assertEquals(6, cache.floorDepth(9));
+        assertSamePixels(image(6), cache.restore(6));
+
+        cache.discardFrom(5);
+        Assertions.assertEquals(4, cache.floorDepth(9));
+        Assertions.assertEquals(CheckpointCache.sizeOf(image(0)), cache.getRawUsed());
+        Assertions.assertEquals(0.75, cache.getHitRate(), 1e-9);
+    }
+
+    /*
+     * Restored checkpoints are exact copies for every kind of image, and
+     * changing one does not change the cache.
+     */
+    @Test
+    public void testRestoreIsExactCopy() {
+        int[] types = { BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_BYTE_GRAY,
+                BufferedImage.TYPE_USHORT_GRAY };
+        for (int type : types) {
+            CheckpointCache cache = new CheckpointCache(1 << 24, 1, 0);
+            BufferedImage original = image(type, 300, 270, 1);
+            cache.put(1, original);
+            BufferedImage restored = cache.restore(1);
+            Assertions.assertArrayEquals(original.getRaster().getPixels(0, 0, 300, 270, (int[]) null),
+                    restored.getRaster().getPixels(0, 0, 300, 270, (int[]) null));
+            restored.setRGB(0, 0, 0);
+            assertSamePixels(original, cache.restore(1));
+        }
+    }
+
+    /*
+     * Two checkpoints that only differ in one place share the tiles that are the
+     * same, so the second costs much less than the first.
+     */
+    @Test
+    public void testUnchangedTilesShared() {
+        CheckpointCache cache = new CheckpointCache(1 << 26, 1, 0);
+        BufferedImage before = image(BufferedImage.TYPE_INT_ARGB, 1024, 512, 2);
+        cache.put(1, before);
+        long first = cache.getUsed();
+        BufferedImage after = image(BufferedImage.TYPE_INT_ARGB, 1024, 512, 2);
+        after.setRGB(700, 300, 0);
+        cache.put(2, after);
+        Assertions.assertTrue(cache.getUsed() < first * 1.25);
+        assertSamePixels(before, cache.restore(1));
+        assertSamePixels(after, cache.restore(2));
+
+        cache.discardFrom(1);
+        Assertions.assertEquals(0, cache.getUsed());
+    }
+
+    /*
+     * Going over budget throws away the least recently used checkpoint.
+     */
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        CheckpointCache cache = new CheckpointCache(1 << 20, 1, 0);
+        cache.put(1, image(1));
+        long size = cache.getUsed();
+        cache.setBudget(size * 5 / 2);
+        cache.put(2, image(2));
+        cache.restore(1);
+        cache.put(3, image(3));
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertNotNull(cache.restore(1));
+        Assertions.assertNull(cache.restore(2));
+        Assertions.assertTrue(cache.getUsed() <= cache.getBudget());
+    }
+}
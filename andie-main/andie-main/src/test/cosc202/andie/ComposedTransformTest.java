@@ -0,0 +1,101 @@
+package test.cosc202.andie;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.ComposedTransform;
+import cosc202.andie.Crop;
+import cosc202.andie.FlipHorizontal;
+import cosc202.andie.FlipVertical;
+import cosc202.andie.GeometricOperation;
+import cosc202.andie.Resize;
+import cosc202.andie.Rotate;
+
+public class ComposedTransformTest {
+
+    private static BufferedImage randomImage(int width, int height, int type, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        Assertions.assertEquals(expected.getWidth(), actual.getWidth());
+        Assertions.assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                Assertions.assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    /*
+     * A quarter turn clockwise should move the bottom left corner to the top left,
+     * and swap the width and height even when they are odd.
+     */
+    @Test
+    public void testRotateClockwise() {
+        BufferedImage input = randomImage(7, 3, BufferedImage.TYPE_INT_ARGB, 1);
+        BufferedImage output = new Rotate(90).apply(input);
+        Assertions.assertEquals(3, output.getWidth());
+        Assertions.assertEquals(7, output.getHeight());
+        for (int y = 0; y < 7; y++) {
+            for (int x = 0; x < 3; x++) {
+                Assertions.assertEquals(input.getRGB(y, 2 - x), output.getRGB(x, y));
+            }
+        }
+    }
+
+    /*
+     * A run of geometric operations done in one pass should give exactly the same
+     * image as applying them one at a time.
+     */
+    @Test
+    public void testMatchesSequential() {
+        List<GeometricOperation> run = Arrays.asList(new Rotate(90), new FlipHorizontal(),
+                new Crop(new Rectangle(2, 3, 15, 9)), new Rotate(180), new Resize(150), new FlipVertical(),
+                new Rotate(270), new Resize(40));
+        int[] types = { BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR };
+        for (int type : types) {
+            BufferedImage input = randomImage(23, 19, type, type);
+            for (int start = 0; start < run.size(); start++) {
+                List<GeometricOperation> ops = run.subList(start, run.size());
+                BufferedImage expected = input;
+                for (GeometricOperation op : ops) {
+                    expected = op.apply(expected);
+                }
+                BufferedImage actual = new ComposedTransform(ops).apply(input);
+                Assertions.assertEquals(expected.getType(), actual.getType());
+                assertSamePixels(expected, actual);
+            }
+        }
+    }
+
+    /*
+     * Operations that undo each other should leave the image untouched rather
+     * than copying it.
+     */
+    @Test
+    public void testCancelsOut() {
+        BufferedImage input = randomImage(9, 5, BufferedImage.TYPE_INT_ARGB, 2);
+        List<List<GeometricOperation>> runs = Arrays.asList(
+                Arrays.asList(new FlipHorizontal(), new FlipHorizontal()),
+                Arrays.asList(new Rotate(90), new Rotate(270)),
+                Arrays.asList(new Rotate(90), new Rotate(90), new FlipHorizontal(), new FlipVertical()),
+                Arrays.asList(new Crop(new Rectangle(-4, -4, 20, 20)), new Rotate(180), new Rotate(180)));
+        for (List<GeometricOperation> run : runs) {
+            Assertions.assertSame(input, new ComposedTransform(run).apply(input));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package test.cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Kernel;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.Convolve;
+
+public class ConvolveTest {
+
+    private static final float[] EMBOSS = { +1.0f, 0, 0,
+            0, 0, 0,
+            0, 0, -1.0f };
+
+    private static final float[] SOBEL = { -0.5f, 0, +0.5f,
+            -1.0f, 0, +1.0f,
+            -0.5f, 0, +0.5f };
+
+    /*
+     * Makes a small image filled with random colours so every channel gets
+     * exercised, including partially transparent pixels.
+     */
+    private static BufferedImage randomImage(int type, int width, int height) {
+        Random random = new Random(202);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    private static Kernel mean(int radius) {
+        int side = 2 * radius + 1;
+        float[] array = new float[side * side];
+        java.util.Arrays.fill(array, 1.0f / array.length);
+        return new Kernel(side, side, array);
+    }
+
+    /*
+     * The nearest-edge convolution the way it used to be written, one getRGB per
+     * kernel tap, kept here to check the new version against.
+     */
+    private static BufferedImage referenceFilter(BufferedImage input, Kernel kernel, boolean applyOffset) {
+        BufferedImage output = new BufferedImage(input.getColorModel(), input.copyData(null),
+                input.isAlphaPremultiplied(), null);
+        float[] kData = kernel.getKernelData(null);
+        for (int x = 0; x < input.getWidth(); x++) {
+            for (int y = 0; y < input.getHeight(); y++) {
+                float[] sums = new float[4];
+                for (int kx = 0; kx < kernel.getWidth(); kx++) {
+                    for (int ky = 0; ky < kernel.getHeight(); ky++) {
+                        int sx = Math.min(Math.max(x - kernel.getXOrigin() + kx, 0), input.getWidth() - 1);
+                        int sy = Math.min(Math.max(y - kernel.getYOrigin() + ky, 0), input.getHeight() - 1);
+                        int p = input.getRGB(sx, sy);
+                        float[] c = { p >>> 24, (p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF };
+                        for (int i = 0; i < 4; i++) {
+                            sums[i] += c[i] * kData[ky * kernel.getWidth() + kx];
+                        }
+                    }
+                }
+                int argb = 0;
+                for (int i = 0; i < 4; i++) {
+                    int c = Math.round(sums[i]) + (applyOffset ? 127 : 0);
+                    argb = (argb << 8) | Math.min(Math.max(c, 0), 255);
+                }
+                output.setRGB(x, y, argb);
+            }
+        }
+        return output;
+    }
+
+    /*
+     * The zero-edge RGB convolution the way it used to be written.
+     */
+    private static BufferedImage referenceConvolve(BufferedImage image, Kernel kernel) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        float[] kData = kernel.getKernelData(null);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                float r = 0, g = 0, b = 0;
+                for (int i = 0; i < kernel.getWidth(); i++) {
+                    for (int j = 0; j < kernel.getHeight(); j++) {
+                        int px = x + i - kernel.getWidth() / 2;
+                        int py = y + j - kernel.getHeight() / 2;
+                        if (px >= 0 && px < width && py >= 0 && py < height) {
+                            int p = image.getRGB(px, py);
+                            float k = kData[j * kernel.getWidth() + i];
+                            r += k * ((p >> 16) & 0xFF);
+                            g += k * ((p >> 8) & 0xFF);
+                            b += k * (p & 0xFF);
+                        }
+                    }
+                }
+                int rgb = (Math.min(Math.max(Math.round(r), 0), 255) << 16)
+                        | (Math.min(Math.max(Math.round(g), 0), 255) << 8)
+                        | Math.min(Math.max(Math.round(b), 0), 255);
+                output.setRGB(x, y, rgb);
+            }
+        }
+        return output;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        Assertions.assertEquals(expected.getType(), actual.getType());
+        Assertions.assertEquals(expected.getWidth(), actual.getWidth());
+        Assertions.assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                Assertions.assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    /*
+     * The filter should give exactly the same pixels as the old nearest-edge
+     * version for ARGB, RGB and byte images, with and without the offset.
+     */
+    @Test
+    public void testFilterMatchesReference() {
+        int[] types = { BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR };
+        for (int type : types) {
+            BufferedImage input = randomImage(type, 23, 17);
+            assertSamePixels(referenceFilter(input, mean(2), false), Convolve.filter(input, mean(2), false));
+            Kernel emboss = new Kernel(3, 3, EMBOSS);
+            assertSamePixels(referenceFilter(input, emboss, true), Convolve.filter(input, emboss, true));
+        }
+    }
+
+    /*
+     * A kernel wider than the image still clamps every sample to the edge.
+     */
+    @Test
+    public void testFilterKernelLargerThanImage() {
+        BufferedImage input = randomImage(BufferedImage.TYPE_INT_ARGB, 3, 2);
+        assertSamePixels(referenceFilter(input, mean(4), false), Convolve.filter(input, mean(4), false));
+    }
+
+    /*
+     * The RGB convolution should give exactly the same pixels as the old
+     * zero-edge version.
+     */
+    @Test
+    public void testConvolveMatchesReference() {
+        BufferedImage input = randomImage(BufferedImage.TYPE_INT_ARGB, 19, 21);
+        Kernel sobel = new Kernel(3, 3, SOBEL);
+        assertSamePixels(referenceConvolve(input, sobel), Convolve.convolve(input, sobel));
+        assertSamePixels(referenceConvolve(input, mean(3)), Convolve.convolve(input, mean(3)));
+    }
+
+    private static void assertClosePixels(BufferedImage expected, BufferedImage actual) {
+        Assertions.assertEquals(expected.getType(), actual.getType());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int e = expected.getRGB(x, y);
+                int a = actual.getRGB(x, y);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int diff = Math.abs(((e >>> shift) & 0xFF) - ((a >>> shift) & 0xFF));
+                    Assertions.assertTrue(diff <= 1, "pixel " + x + "," + y + " differs by " + diff);
+                }
+            }
+        }
+    }
+
+    /*
+     * Running a separable kernel as two passes should match the full 2D kernel
+     * to within rounding, for both kinds of edge handling.
+     */
+    @Test
+    public void testSeparableMatchesFullKernel() {
+        float[] weights = { 0.1f, 0.2f, 0.4f, 0.2f, 0.1f };
+        float[] full = new float[25];
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 5; x++) {
+                full[y * 5 + x] = weights[x] * weights[y];
+            }
+        }
+        Kernel kernel = new Kernel(5, 5, full);
+        Kernel row = new Kernel(5, 1, weights);
+        Kernel column = new Kernel(1, 5, weights);
+
+        BufferedImage input = randomImage(BufferedImage.TYPE_INT_ARGB, 150, 90);
+        assertClosePixels(Convolve.filter(input, kernel, false), Convolve.filter(input, row, column));
+        assertClosePixels(Convolve.convolve(input, kernel), Convolve.convolve(input, row, column));
+    }
+}
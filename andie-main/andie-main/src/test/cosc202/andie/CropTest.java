@@ -0,0 +1,101 @@
+package test.cosc202.andie;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.Crop;
+import cosc202.andie.Draw;
+import cosc202.andie.MappedImage;
+import cosc202.andie.Pixels;
+
+public class CropTest {
+
+    private static int[] numbered(int count) {
+        int[] pixels = new int[count];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | i * 0x010305;
+        }
+        return pixels;
+    }
+
+    /*
+     * A crop should share the pixels of its input, and drawing on it afterwards
+     * should copy it rather than change the input.
+     */
+    @Test
+    public void testViewCopiedOnWrite() {
+        BufferedImage input = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        Pixels.write(input, numbered(40 * 30));
+        int[] before = Pixels.read(input);
+
+        BufferedImage cropped = new Crop(new Rectangle(5, 7, 20, 10)).apply(input);
+        Assertions.assertSame(input.getRaster().getDataBuffer(), cropped.getRaster().getDataBuffer());
+        Assertions.assertEquals(20, cropped.getWidth());
+        Assertions.assertEquals(input.getRGB(5, 7), cropped.getRGB(0, 0));
+        Assertions.assertEquals(input.getRGB(24, 16), cropped.getRGB(19, 9));
+
+        BufferedImage drawn = new Draw("Rectangle", "Red", new Rectangle(0, 0, 20, 10), new Point(),
+                new Point()).apply(cropped);
+        Assertions.assertEquals(0xFFFF0000, drawn.getRGB(3, 3));
+        Assertions.assertArrayEquals(before, Pixels.read(input));
+    }
+
+    /*
+     * Pixels should read a crop of a mapped image from the right rows and
+     * columns of the mapped file.
+     */
+    @Test
+    public void testMappedView() {
+        BufferedImage mapped = MappedImage.create(50, 40, true);
+        Pixels.write(mapped, numbered(50 * 40));
+        BufferedImage cropped = new Crop(new Rectangle(11, 13, 17, 19)).apply(mapped);
+        Assertions.assertTrue(MappedImage.isMapped(cropped));
+        int[] pixels = Pixels.read(cropped);
+        for (int y = 0; y < 19; y++) {
+            for (int x = 0; x < 17; x++) {
+                Assertions.assertEquals(mapped.getRGB(11 + x, 13 + y), pixels[y * 17 + x]);
+            }
+        }
+    }
+
+    /*
+     * A crop should survive Java serialization, like the other geometric
+     * operations. Older versions of ANDIE could not serialize crops, so no old
+     * .ops file contains one; this only checks the current class.
+     */
+    @Test
+    public void testSerializable() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new Crop(new Rectangle(1, 2, 3, 4)));
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assertions.assertEquals(new Rectangle(1, 2, 3, 4), ((Crop) in.readObject()).getSelection());
+        }
+    }
+
+    /*
+     * A selection that misses the image entirely leaves nothing to keep, so
+     * the crop should be refused rather than fail part way through.
+     */
+    @Test
+    public void testSelectionOutsideImage() {
+        BufferedImage input = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        Crop crop = new Crop(new Rectangle(50, 5, 10, 10));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> crop.apply(input));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new Crop(new Rectangle(-20, -20, 10, 10)).apply(input));
+
+        BufferedImage edge = new Crop(new Rectangle(35, 25, 10, 10)).apply(input);
+        Assertions.assertEquals(5, edge.getWidth());
+        Assertions.assertEquals(5, edge.getHeight());
+    }
+}
@@ -0,0 +1,126 @@
+package test.cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.CancellationException;
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.EditableImage;
+import cosc202.andie.FlipHorizontal;
+import cosc202.andie.ImageOperation;
+import cosc202.andie.NegativeFilter;
+
+public class EditableImageTest {
+
+    /*
+     * A large image is shown subsampled at first, at its full size, and an
+     * operation applied before it has been read in full waits for it and is
+     * applied to the full image.
+     */
+    @Test
+    public void testStartOpenShowsSubsampledCopy() throws Exception {
+        BufferedImage big = new BufferedImage(4097, 4097, BufferedImage.TYPE_BYTE_GRAY);
+        big.getRaster().setSample(0, 0, 0, 255);
+        File file = Files.createTempFile("andie", ".png").toFile();
+        file.deleteOnExit();
+        ImageIO.write(big, "png", file);
+
+        EditableImage image = new EditableImage();
+        image.startOpen(file.getPath());
+        Assertions.assertTrue(image.hasImage());
+        Assertions.assertNull(image.getCurrentImage());
+        Assertions.assertEquals(4097, image.getWidth());
+        Assertions.assertEquals(4097, image.getHeight());
+        Assertions.assertEquals(1366, image.getSubsampled().getWidth());
+
+        Thread queued = new Thread(() -> image.apply(new FlipHorizontal()));
+        queued.start();
+        while (queued.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        image.finishOpen();
+        queued.join();
+
+        BufferedImage current = image.getCurrentImage();
+        Assertions.assertNull(image.getSubsampled());
+        Assertions.assertEquals(4097, current.getWidth());
+        Assertions.assertEquals(0xFFFFFFFF, current.getRGB(4096, 0));
+        Assertions.assertEquals(0xFF000000, current.getRGB(0, 0));
+    }
+
+    /*
+     * Even a small image is not decoded until finishOpen, so starting to open
+     * it on the event dispatch thread only reads its header.
+     */
+    @Test
+    public void testStartOpenLeavesSmallImageToFinishOpen() throws Exception {
+        BufferedImage small = new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB);
+        small.setRGB(29, 19, 0xFF0000);
+        File file = Files.createTempFile("andie", ".png").toFile();
+        file.deleteOnExit();
+        ImageIO.write(small, "png", file);
+
+        EditableImage image = new EditableImage();
+        image.startOpen(file.getPath());
+        Assertions.assertTrue(image.hasImage());
+        Assertions.assertNull(image.getCurrentImage());
+        Assertions.assertEquals(30, image.getWidth());
+        Assertions.assertEquals(20, image.getHeight());
+        Assertions.assertNotNull(image.getSubsampled());
+
+        image.finishOpen();
+        Assertions.assertNull(image.getSubsampled());
+        Assertions.assertEquals(0xFFFF0000, image.getCurrentImage().getRGB(29, 19));
+    }
+
+    /*
+     * Cancelling an undo while the operations before it are replayed leaves
+     * the image and its operations as they were, so the next undo still
+     * undoes the same operation.
+     */
+    @Test
+    public void testCancelledUndoChangesNothing() {
+        EditableImage image = new EditableImage();
+        image.setImage(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB));
+        // The first operation may be slow enough to be checkpointed, so the
+        // one that is cancelled comes after it.
+        image.apply(new NegativeFilter());
+        Mark mark = new Mark();
+        image.apply(mark);
+        image.apply(new NegativeFilter());
+        BufferedImage before = image.getCurrentImage();
+        long version = image.getVersion();
+
+        mark.cancel = true;
+        Assertions.assertThrows(CancellationException.class, image::undo);
+        Assertions.assertSame(before, image.getCurrentImage());
+        Assertions.assertEquals(version, image.getVersion());
+
+        mark.cancel = false;
+        Assertions.assertTrue(image.undo());
+        Assertions.assertEquals(0xFFFFFFFF, image.getCurrentImage().getRGB(0, 0));
+        Assertions.assertTrue(image.undo());
+        Assertions.assertTrue(image.undo());
+        Assertions.assertEquals(0xFF000000, image.getCurrentImage().getRGB(0, 0));
+        Assertions.assertFalse(image.undo());
+    }
+
+    /** Sets the top left pixel to white, or is cancelled if asked to be. */
+    private static class Mark implements ImageOperation {
+        boolean cancel;
+
+        public BufferedImage apply(BufferedImage input) {
+            if (cancel) {
+                throw new CancellationException();
+            }
+            BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), input.getType());
+            output.setData(input.getRaster());
+            output.setRGB(0, 0, 0xFFFFFFFF);
+            return output;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package test.cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.BrightnessFilter;
+import cosc202.andie.ContrastFilter;
+import cosc202.andie.ConvertToGrey;
+import cosc202.andie.FusedPointOperation;
+import cosc202.andie.NegativeFilter;
+import cosc202.andie.PointOperation;
+
+public class FusedPointOperationTest {
+
+    /*
+     * A run of colour adjustments done in one pass should give exactly the same
+     * image as applying them one at a time, including the kind of image and its
+     * alpha.
+     */
+    @Test
+    public void testMatchesSequential() {
+        List<PointOperation> run = Arrays.asList(new ConvertToGrey(), new BrightnessFilter(30),
+                new ContrastFilter(60), new NegativeFilter(255), new BrightnessFilter(-20), new ConvertToGrey(),
+                new ContrastFilter(-40));
+        int[] types = { BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR };
+        Random random = new Random(202);
+        for (int type : types) {
+            for (int start = 0; start < run.size(); start++) {
+                BufferedImage input = new BufferedImage(31, 23, type);
+                for (int y = 0; y < input.getHeight(); y++) {
+                    for (int x = 0; x < input.getWidth(); x++) {
+                        input.setRGB(x, y, random.nextInt());
+                    }
+                }
+                List<PointOperation> ops = run.subList(start, run.size());
+                BufferedImage expected = input;
+                for (PointOperation op : ops) {
+                    expected = op.apply(expected);
+                }
+                BufferedImage actual = new FusedPointOperation(ops).apply(input);
+
+                Assertions.assertEquals(expected.getType(), actual.getType());
+                for (int y = 0; y < input.getHeight(); y++) {
+                    for (int x = 0; x < input.getWidth(); x++) {
+                        Assertions.assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -18,7 +18,8 @@ public class ImagePanelTest {
         ImagePanel testPanel = new ImagePanel();
         testPanel.setZoom(0.0);
         Assertions.assertFalse(testPanel.getZoom() == 100.0);
-        Assertions.assertTrue(testPanel.getZoom() >= 50.0);
-
+        Assertions.assertEquals(ImagePanel.MIN_ZOOM, testPanel.getZoom());
+        testPanel.setZoom(10000.0);
+        Assertions.assertEquals(ImagePanel.MAX_ZOOM, testPanel.getZoom());
     }
 }
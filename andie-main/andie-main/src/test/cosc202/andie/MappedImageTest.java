@@ -0,0 +1,59 @@
+package test.cosc202.andie;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.MappedImage;
+import cosc202.andie.MeanFilter;
+import cosc202.andie.Pixels;
+
+public class MappedImageTest {
+
+    /*
+     * Pixels written to a mapped image read back the same as from a heap image
+     * of the same kind, through Pixels and through getRGB.
+     */
+    @Test
+    public void testReadsLikeHeapImage() {
+        for (boolean alpha : new boolean[] { true, false }) {
+            BufferedImage mapped = MappedImage.create(31, 17, alpha);
+            BufferedImage heap = new BufferedImage(31, 17,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            int[] pixels = new int[31 * 17];
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = i * 0x01030507;
+            }
+            Pixels.write(mapped, pixels);
+            Pixels.write(heap, pixels);
+
+            Assertions.assertTrue(MappedImage.isMapped(mapped));
+            Assertions.assertArrayEquals(Pixels.read(heap), Pixels.read(mapped));
+            Assertions.assertEquals(heap.getRGB(30, 16), mapped.getRGB(30, 16));
+        }
+    }
+
+    /*
+     * A filter worked through a mapped image in strips gives the same result as
+     * on the heap, including at the edges between strips, and makes a mapped
+     * image.
+     */
+    @Test
+    public void testFilterInStrips() {
+        int width = 1100;
+        int height = 4000;
+        BufferedImage heap = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (i * 7919) ^ (i >> 5);
+        }
+        Pixels.write(heap, pixels);
+        BufferedImage mapped = MappedImage.copy(heap);
+
+        BufferedImage expected = new MeanFilter(2).apply(heap);
+        BufferedImage actual = new MeanFilter(2).apply(mapped);
+        Assertions.assertTrue(MappedImage.isMapped(actual));
+        Assertions.assertArrayEquals(Pixels.read(expected), Pixels.read(actual));
+    }
+}
@@ -1,8 +1,18 @@
 package test.cosc202.andie;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.Kernel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import cosc202.andie.Convolve;
 import cosc202.andie.MeanFilter;
 
 public class MeanFilterTest {
@@ -20,4 +30,49 @@ public class MeanFilterTest {
         Assertions.assertNotNull(mf);
 
     }
+
+    /*
+     * The running-sum mean filter should match a convolution with a full square
+     * kernel of equal weights to within rounding, including at the edges.
+     */
+    @Test
+    public void testMatchesFullKernel() {
+        Random random = new Random(202);
+        BufferedImage input = new BufferedImage(37, 29, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < input.getHeight(); y++) {
+            for (int x = 0; x < input.getWidth(); x++) {
+                input.setRGB(x, y, random.nextInt());
+            }
+        }
+        for (int radius : new int[] { 1, 3, 20 }) {
+            int side = 2 * radius + 1;
+            float[] array = new float[side * side];
+            Arrays.fill(array, 1.0f / array.length);
+            BufferedImage expected = Convolve.filter(input, new Kernel(side, side, array), false);
+            BufferedImage actual = new MeanFilter(radius).apply(input);
+            for (int y = 0; y < input.getHeight(); y++) {
+                for (int x = 0; x < input.getWidth(); x++) {
+                    int e = expected.getRGB(x, y);
+                    int a = actual.getRGB(x, y);
+                    for (int shift = 0; shift < 32; shift += 8) {
+                        Assertions.assertTrue(Math.abs(((e >>> shift) & 0xFF) - ((a >>> shift) & 0xFF)) <= 1);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Mean filters are saved in .ops files, so they must still serialise.
+     */
+    @Test
+    public void testSerializable() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(new MeanFilter(7));
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        MeanFilter mf = (MeanFilter) in.readObject();
+        Assertions.assertEquals(7, mf.radius);
+    }
 }
@@ -1,5 +1,9 @@
 package test.cosc202.andie;
 
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -31,4 +35,67 @@ public class MedianFilterTest {
         Assertions.assertEquals(50, mf.radius);
     }
 
+    private static BufferedImage randomImage(int width, int height) {
+        Random random = new Random(202);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    /*
+     * Sorts every channel of the window around each pixel, with samples outside
+     * the image clamped to the edge, to check the histogram version against.
+     */
+    @Test
+    public void testMatchesSortedWindow() {
+        BufferedImage input = randomImage(31, 23);
+        for (int radius : new int[] { 1, 2, 5 }) {
+            BufferedImage output = new MedianFilter(radius).apply(input);
+            int side = 2 * radius + 1;
+            for (int y = 0; y < input.getHeight(); y++) {
+                for (int x = 0; x < input.getWidth(); x++) {
+                    int[][] window = new int[3][side * side];
+                    int i = 0;
+                    for (int ky = -radius; ky <= radius; ky++) {
+                        for (int kx = -radius; kx <= radius; kx++) {
+                            int sx = Math.min(Math.max(x + kx, 0), input.getWidth() - 1);
+                            int sy = Math.min(Math.max(y + ky, 0), input.getHeight() - 1);
+                            int p = input.getRGB(sx, sy);
+                            window[0][i] = (p >> 16) & 0xFF;
+                            window[1][i] = (p >> 8) & 0xFF;
+                            window[2][i] = p & 0xFF;
+                            i++;
+                        }
+                    }
+                    int expected = input.getRGB(x, y) & 0xFF000000;
+                    for (int c = 0; c < 3; c++) {
+                        Arrays.sort(window[c]);
+                        expected |= window[c][side * side / 2] << (16 - 8 * c);
+                    }
+                    Assertions.assertEquals(expected, output.getRGB(x, y), "pixel " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    /*
+     * The filter should leave its input alone and return a new image.
+     */
+    @Test
+    public void testInputUnchanged() {
+        BufferedImage input = randomImage(16, 16);
+        BufferedImage copy = randomImage(16, 16);
+        BufferedImage output = new MedianFilter(2).apply(input);
+        Assertions.assertNotSame(input, output);
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 16; x++) {
+                Assertions.assertEquals(copy.getRGB(x, y), input.getRGB(x, y));
+            }
+        }
+    }
+
 }
@@ -0,0 +1,44 @@
+package test.cosc202.andie;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.MipmapPyramid;
+
+public class MipmapPyramidTest {
+
+    /*
+     * Each level is half the size of the one before, rounded up, down to a
+     * single pixel, and averages the pixels it covers.
+     */
+    @Test
+    public void testLevels() {
+        BufferedImage image = new BufferedImage(5, 3, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0x000000);
+        image.setRGB(1, 0, 0x404040);
+        image.setRGB(0, 1, 0x808080);
+        image.setRGB(1, 1, 0xC0C0C0);
+        MipmapPyramid pyramid = new MipmapPyramid(image);
+
+        Assertions.assertEquals(4, pyramid.getLevelCount());
+        Assertions.assertSame(image, pyramid.getLevel(0));
+        Assertions.assertEquals(3, pyramid.getLevel(1).getWidth());
+        Assertions.assertEquals(2, pyramid.getLevel(1).getHeight());
+        Assertions.assertEquals(0xFF606060, pyramid.getLevel(1).getRGB(0, 0));
+        Assertions.assertEquals(1, pyramid.getLevel(10).getWidth());
+        Assertions.assertEquals(1, pyramid.getLevel(10).getHeight());
+    }
+
+    /*
+     * The level drawn from is never less than the size it is shown at.
+     */
+    @Test
+    public void testLevelFor() {
+        Assertions.assertEquals(0, MipmapPyramid.levelFor(32));
+        Assertions.assertEquals(0, MipmapPyramid.levelFor(0.6));
+        Assertions.assertEquals(1, MipmapPyramid.levelFor(0.5));
+        Assertions.assertEquals(6, MipmapPyramid.levelFor(0.01));
+    }
+}
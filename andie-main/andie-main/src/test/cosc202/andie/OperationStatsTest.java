@@ -0,0 +1,72 @@
+package test.cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.FlipVertical;
+import cosc202.andie.ImageOperation;
+import cosc202.andie.OperationStats;
+import cosc202.andie.TileScheduler;
+
+public class OperationStatsTest {
+
+    /*
+     * Each measured operation is added to the totals for its class and to the
+     * list of recent operations.
+     */
+    @Test
+    public void testApplyIsRecorded() {
+        OperationStats stats = OperationStats.get();
+        stats.reset();
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0xabcdef);
+        BufferedImage output = OperationStats.apply(new FlipVertical(), image);
+        OperationStats.apply(new FlipVertical(), output);
+
+        Assertions.assertEquals(0xabcdef, output.getRGB(0, 29) & 0xffffff);
+        List<OperationStats.Summary> summaries = stats.getSummaries();
+        Assertions.assertEquals(1, summaries.size());
+        Assertions.assertEquals("FlipVertical", summaries.get(0).getName());
+        Assertions.assertEquals(2, summaries.get(0).getCount());
+        Assertions.assertEquals(2, stats.getRecent().size());
+        Assertions.assertEquals(1200, stats.getRecent().get(0).getWidth() * stats.getRecent().get(0).getHeight());
+        stats.reset();
+    }
+
+    /*
+     * Memory allocated by bands the tile scheduler runs in its pool counts
+     * towards the operation that handed them out.
+     */
+    @Test
+    public void testBandsInOtherThreadsAreCounted() {
+        OperationStats stats = OperationStats.get();
+        stats.reset();
+        BandAllocator op = new BandAllocator();
+        OperationStats.apply(op, new BufferedImage(10, 256, BufferedImage.TYPE_INT_RGB));
+
+        long allocated = stats.getRecent().get(0).getAllocatedBytes();
+        if (allocated >= 0) {
+            Assertions.assertTrue(allocated >= op.bands.get() * (long) BandAllocator.BYTES,
+                    allocated + " bytes for " + op.bands.get() + " bands");
+        }
+        stats.reset();
+    }
+
+    private static class BandAllocator implements ImageOperation {
+        static final int BYTES = 1 << 20;
+        final AtomicInteger bands = new AtomicInteger();
+        volatile byte[] sink;
+
+        public BufferedImage apply(BufferedImage input) {
+            TileScheduler.forEachBand(input.getHeight(), 1, (y0, y1) -> {
+                bands.incrementAndGet();
+                sink = new byte[BYTES];
+            });
+            return input;
+        }
+    }
+}
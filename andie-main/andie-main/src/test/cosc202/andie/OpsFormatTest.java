@@ -0,0 +1,185 @@
+package test.cosc202.andie;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Stack;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.Andie;
+import cosc202.andie.BrightnessFilter;
+import cosc202.andie.Crop;
+import cosc202.andie.FlipHorizontal;
+import cosc202.andie.FlipVertical;
+import cosc202.andie.ImageOperation;
+import cosc202.andie.OpsFormat;
+import cosc202.andie.Resampler;
+import cosc202.andie.Resize;
+import cosc202.andie.Rotate;
+import cosc202.andie.Stickers;
+
+public class OpsFormatTest {
+
+    /*
+     * Operations read back have the same kinds and parameters, in the same order.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<ImageOperation> ops = List.of(new BrightnessFilter(-40), new FlipHorizontal(), new Rotate(270),
+                new Crop(new Rectangle(1, 2, 3, 4)), new Resize(25), new Resize(150, Resampler.Kernel.LANCZOS3));
+        Stack<ImageOperation> read = OpsFormat.fromByteArray(OpsFormat.toByteArray(ops));
+
+        Assertions.assertEquals(6, read.size());
+        Assertions.assertEquals(-40, ((BrightnessFilter) read.get(0)).brightness);
+        Assertions.assertTrue(read.get(1) instanceof FlipHorizontal);
+        Assertions.assertEquals(270, ((Rotate) read.get(2)).getRotationAngle());
+        Assertions.assertEquals(new Rectangle(1, 2, 3, 4), ((Crop) read.get(3)).getSelection());
+        Assertions.assertEquals(25, ((Resize) read.get(4)).size);
+        Assertions.assertEquals(Resampler.Kernel.NEAREST, ((Resize) read.get(4)).getKernel());
+        Assertions.assertEquals(150, ((Resize) read.get(5)).size);
+        Assertions.assertEquals(Resampler.Kernel.LANCZOS3, ((Resize) read.get(5)).getKernel());
+    }
+
+    /*
+     * The same sticker used many times is only stored once.
+     */
+    @Test
+    public void testSharedAssetStoredOnce() throws Exception {
+        Andie.registerOperations();
+        BufferedImage sticker = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                sticker.setRGB(x, y, x * 0x10203 + y * 0x3010701);
+            }
+        }
+        List<ImageOperation> once = List.of(new Stickers.StickerOperation(sticker, new Point(5, 6)));
+        List<ImageOperation> many = List.of(new Stickers.StickerOperation(sticker, new Point(5, 6)),
+                new Stickers.StickerOperation(sticker, new Point(7, 8)),
+                new Stickers.StickerOperation(sticker, new Point(9, 10)));
+        byte[] oneCopy = OpsFormat.toByteArray(once);
+        byte[] threeCopies = OpsFormat.toByteArray(many);
+
+        Assertions.assertTrue(threeCopies.length < oneCopy.length + 100);
+        Assertions.assertEquals(3, OpsFormat.fromByteArray(threeCopies).size());
+    }
+
+    /*
+     * Old files made with Java serialization are read, but only if they contain
+     * nothing except operations.
+     */
+    @Test
+    public void testLegacyFilesOnlyCreateOperations() throws Exception {
+        Stack<Object> ops = new Stack<Object>();
+        ops.add(new BrightnessFilter(10));
+        Assertions.assertEquals(10, ((BrightnessFilter) OpsFormat.fromByteArray(serialize(ops)).get(0)).brightness);
+
+        ops.add(new File("anything"));
+        Assertions.assertThrows(IOException.class, () -> OpsFormat.fromByteArray(serialize(ops)));
+    }
+
+    /*
+     * Geometric operations saved by the version of ANDIE before operations
+     * files had their own format still read, with their parameters. Each stream
+     * is a one-operation stack serialized by that version.
+     */
+    @Test
+    public void testLegacyGeometricOperationsRead() throws Exception {
+        String head = "rO0ABXNyAA9qYXZhLnV0aWwuU3RhY2sQ/irCuwmGHQIAAHhyABBqYXZhLnV0aWwuVmVjdG9y2Zd9W4A7rwEDAANJABFjYXBhY2l0"
+                + "eUluY3JlbWVudEkADGVsZW1lbnRDb3VudFsAC2VsZW1lbnREYXRhdAATW0xqYXZhL2xhbmcvT2JqZWN0O3hwAAAAAAAAAAF1cgAT"
+                + "W0xqYXZhLmxhbmcuT2JqZWN0O5DOWJ8QcylsAgAAeHAAAAAKc3IA";
+
+        Rotate rotate = (Rotate) legacy(head
+                + "FGNvc2MyMDIuYW5kaWUuUm90YXRliYzW2bC1Zw4CAAFJAA1yb3RhdGlvbkFuZ2xleHAAAABacHBwcHBwcHBweA==");
+        Assertions.assertEquals(90, rotate.getRotationAngle());
+
+        Assertions.assertTrue(legacy(head
+                + "HGNvc2MyMDIuYW5kaWUuRmxpcEhvcml6b250YWyMZWFBjWLC2AIAAHhwcHBwcHBwcHBweA==") instanceof FlipHorizontal);
+
+        Assertions.assertTrue(legacy(head
+                + "GmNvc2MyMDIuYW5kaWUuRmxpcFZlcnRpY2FsPuvC+3C2RJQCAAB4cHBwcHBwcHBwcHg=") instanceof FlipVertical);
+
+        Resize resize = (Resize) legacy(head
+                + "FGNvc2MyMDIuYW5kaWUuUmVzaXplEX7cxxTBxHUCAAFJAARzaXpleHAAAAAycHBwcHBwcHBweA==");
+        Assertions.assertEquals(50, resize.size);
+        Assertions.assertEquals(Resampler.Kernel.NEAREST, resize.getKernel());
+    }
+
+    /** Read the one operation in a legacy file encoded in Base64. */
+    private static ImageOperation legacy(String base64) throws IOException {
+        Stack<ImageOperation> ops = OpsFormat.fromByteArray(Base64.getDecoder().decode(base64));
+        Assertions.assertEquals(1, ops.size());
+        return ops.get(0);
+    }
+
+    /*
+     * Drawing and sticker operations in old files were saved along with the
+     * windows they came from, so they cannot be read, and the error says which
+     * operation is the problem.
+     */
+    @Test
+    public void testLegacyDrawingsRefused() throws Exception {
+        Andie.registerOperations();
+        for (String name : List.of("draw:cosc202.andie.Draw", "sticker:cosc202.andie.Stickers$StickerOperation")) {
+            String[] parts = name.split(":");
+            Stack<Object> ops = new Stack<Object>();
+            ops.add(new StandIn());
+            byte[] legacy = renameClass(serialize(ops), StandIn.class.getName(), parts[1]);
+            IOException ex = Assertions.assertThrows(IOException.class, () -> OpsFormat.fromByteArray(legacy));
+            Assertions.assertEquals(parts[0] + " operations saved by older versions of ANDIE cannot be read",
+                    ex.getMessage());
+        }
+    }
+
+    /** A serializable class whose name is swapped for an operation's. */
+    private static class StandIn implements java.io.Serializable {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Replace the name of a class in a serialization stream, as though an
+     * object of another class had been written.
+     */
+    private static byte[] renameClass(byte[] stream, String from, String to) {
+        byte[] find = utf(from);
+        byte[] replace = utf(to);
+        for (int i = 0; i + find.length <= stream.length; i++) {
+            if (Arrays.equals(stream, i, i + find.length, find, 0, find.length)) {
+                byte[] renamed = new byte[stream.length - find.length + replace.length];
+                System.arraycopy(stream, 0, renamed, 0, i);
+                System.arraycopy(replace, 0, renamed, i, replace.length);
+                System.arraycopy(stream, i + find.length, renamed, i + replace.length,
+                        stream.length - i - find.length);
+                return renamed;
+            }
+        }
+        throw new IllegalArgumentException(from + " is not in the stream");
+    }
+
+    /** A class name as serialization writes it: its length, then its bytes. */
+    private static byte[] utf(String name) {
+        byte[] chars = name.getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[chars.length + 2];
+        out[0] = (byte) (chars.length >> 8);
+        out[1] = (byte) chars.length;
+        System.arraycopy(chars, 0, out, 2, chars.length);
+        return out;
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+}
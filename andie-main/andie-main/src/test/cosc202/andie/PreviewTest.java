@@ -0,0 +1,47 @@
+package test.cosc202.andie;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.Preview;
+
+public class PreviewTest {
+
+    /*
+     * The proxy covers just the region asked for, shrunk by the scale, and is
+     * reused when the same view of the same version is previewed again.
+     */
+    @Test
+    public void testProxyIsShrunkRegion() {
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_3BYTE_BGR);
+        image.setRGB(100, 50, 0xff0000);
+        Rectangle region = new Rectangle(100, 50, 200, 100);
+
+        BufferedImage full = Preview.proxy(image, 0, region, 1.0);
+        Assertions.assertEquals(200, full.getWidth());
+        Assertions.assertEquals(100, full.getHeight());
+        Assertions.assertEquals(0xffff0000, full.getRGB(0, 0));
+        Assertions.assertSame(full, Preview.proxy(image, 0, region, 1.0));
+
+        // Drawing on the image changes its version but not the image object.
+        image.setRGB(100, 50, 0x00ff00);
+        Assertions.assertEquals(0xff00ff00, Preview.proxy(image, 1, region, 1.0).getRGB(0, 0));
+
+        BufferedImage small = Preview.proxy(image, 0, region, 0.1);
+        Assertions.assertEquals(20, small.getWidth());
+        Assertions.assertEquals(10, small.getHeight());
+    }
+
+    /*
+     * Radii shrink with the proxy but never below 1.
+     */
+    @Test
+    public void testScaleRadius() {
+        Assertions.assertEquals(10, Preview.scaleRadius(10, 1.0));
+        Assertions.assertEquals(5, Preview.scaleRadius(10, 0.5));
+        Assertions.assertEquals(1, Preview.scaleRadius(1, 0.25));
+    }
+}
@@ -0,0 +1,112 @@
+package test.cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.ComposedTransform;
+import cosc202.andie.FlipHorizontal;
+import cosc202.andie.FlipVertical;
+import cosc202.andie.GeometricOperation;
+import cosc202.andie.Resampler;
+import cosc202.andie.Resize;
+import cosc202.andie.Rotate;
+
+public class ResamplerTest {
+
+    /*
+     * An image of one colour stays that colour, alpha included, whatever the
+     * kernel and whichever way it is resized.
+     */
+    @Test
+    public void testFlatStaysFlat() {
+        BufferedImage input = new BufferedImage(37, 23, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 23; y++) {
+            for (int x = 0; x < 37; x++) {
+                input.setRGB(x, y, 0x80C04020);
+            }
+        }
+        for (Resampler.Kernel kernel : Resampler.Kernel.values()) {
+            if (kernel == Resampler.Kernel.NEAREST) {
+                continue;
+            }
+            for (int[] size : new int[][] { { 11, 7 }, { 90, 61 }, { 5, 40 } }) {
+                BufferedImage output = Resampler.resize(input, size[0], size[1], kernel);
+                Assertions.assertEquals(BufferedImage.TYPE_INT_ARGB, output.getType());
+                for (int y = 0; y < size[1]; y++) {
+                    for (int x = 0; x < size[0]; x++) {
+                        Assertions.assertEquals(0x80C04020, output.getRGB(x, y), kernel + " at " + x + "," + y);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Shrinking a pattern finer than the output can show gives an even grey,
+     * where picking the nearest pixel aliases it to black or white.
+     */
+    @Test
+    public void testShrinkDoesNotAlias() {
+        BufferedImage input = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 200; x++) {
+                input.setRGB(x, y, (x + y) % 2 == 0 ? 0xFFFFFF : 0);
+            }
+        }
+        for (Resampler.Kernel kernel : Resampler.Kernel.values()) {
+            BufferedImage output = Resampler.resize(input, 20, 20, kernel);
+            int lo = 255;
+            int hi = 0;
+            for (int y = 0; y < 20; y++) {
+                for (int x = 0; x < 20; x++) {
+                    int grey = output.getRGB(x, y) & 0xFF;
+                    lo = Math.min(lo, grey);
+                    hi = Math.max(hi, grey);
+                }
+            }
+            if (kernel == Resampler.Kernel.NEAREST) {
+                Assertions.assertTrue((lo == 0 || lo == 255) && (hi == 0 || hi == 255));
+            } else {
+                Assertions.assertTrue(lo >= 125 && hi <= 130, kernel + " gave " + lo + " to " + hi);
+            }
+        }
+    }
+
+    /*
+     * A filtered resize after flips and turns gives the same image whether the
+     * run is composed or applied one operation at a time.
+     */
+    @Test
+    public void testComposedMatchesSequential() {
+        BufferedImage input = new BufferedImage(45, 31, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(24);
+        for (int y = 0; y < 31; y++) {
+            for (int x = 0; x < 45; x++) {
+                input.setRGB(x, y, random.nextInt());
+            }
+        }
+        List<List<GeometricOperation>> runs = Arrays.asList(
+                Arrays.asList(new FlipHorizontal(), new FlipVertical(), new Resize(60, Resampler.Kernel.LANCZOS3)),
+                Arrays.asList(new Rotate(90), new Resize(170, Resampler.Kernel.BICUBIC), new FlipVertical()),
+                Arrays.asList(new Resize(30, Resampler.Kernel.BOX), new Resize(300, Resampler.Kernel.BILINEAR)));
+        for (List<GeometricOperation> run : runs) {
+            BufferedImage expected = input;
+            for (GeometricOperation op : run) {
+                expected = op.apply(expected);
+            }
+            BufferedImage actual = new ComposedTransform(run).apply(input);
+            Assertions.assertEquals(expected.getWidth(), actual.getWidth());
+            Assertions.assertEquals(expected.getHeight(), actual.getHeight());
+            for (int y = 0; y < expected.getHeight(); y++) {
+                for (int x = 0; x < expected.getWidth(); x++) {
+                    Assertions.assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+                }
+            }
+        }
+    }
+}
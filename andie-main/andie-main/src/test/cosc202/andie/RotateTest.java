@@ -1,8 +1,13 @@
 package test.cosc202.andie;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import cosc202.andie.FlipVertical;
 import cosc202.andie.Rotate;
 
 public class RotateTest {
@@ -21,4 +26,40 @@ public class RotateTest {
         Assertions.assertNotNull(r);
 
     }
-}
\ No newline at end of file
+
+    /*
+     * Rotating should keep the kind of image and every sample exactly, even for
+     * grey images, which lose levels if converted through packed RGB values.
+     */
+    @Test
+    public void testLosslessSamples() {
+        int[] types = { BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_INT_ARGB };
+        Random random = new Random(22);
+        for (int type : types) {
+            BufferedImage input = new BufferedImage(67, 130, type);
+            WritableRaster in = input.getRaster();
+            for (int y = 0; y < 130; y++) {
+                for (int x = 0; x < 67; x++) {
+                    for (int b = 0; b < in.getNumBands(); b++) {
+                        in.setSample(x, y, b, random.nextInt(256));
+                    }
+                }
+            }
+            for (int angle : new int[] { 90, 180, 270 }) {
+                BufferedImage output = new Rotate(angle).apply(new FlipVertical().apply(input));
+                Assertions.assertEquals(type, output.getType());
+                WritableRaster out = output.getRaster();
+                for (int y = 0; y < output.getHeight(); y++) {
+                    for (int x = 0; x < output.getWidth(); x++) {
+                        // Follow the output pixel back through the rotation and the flip.
+                        int sx = angle == 90 ? y : angle == 180 ? 66 - x : 66 - y;
+                        int sy = angle == 90 ? 129 - x : angle == 180 ? 129 - y : x;
+                        for (int b = 0; b < in.getNumBands(); b++) {
+                            Assertions.assertEquals(in.getSample(sx, 129 - sy, b), out.getSample(x, y, b));
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
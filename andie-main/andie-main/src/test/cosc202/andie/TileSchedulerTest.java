@@ -0,0 +1,67 @@
+package test.cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import cosc202.andie.MedianFilter;
+import cosc202.andie.TileScheduler;
+
+public class TileSchedulerTest {
+
+    /*
+     * Every row should be handed to exactly one band, whatever the height.
+     */
+    @Test
+    public void testEveryRowOnce() {
+        for (int height : new int[] { 1, 15, 16, 17, 1000, 4097 }) {
+            AtomicIntegerArray counts = new AtomicIntegerArray(height);
+            TileScheduler.forEachBand(height, 1, (y0, y1) -> {
+                for (int y = y0; y < y1; y++) {
+                    counts.incrementAndGet(y);
+                }
+            });
+            for (int y = 0; y < height; y++) {
+                Assertions.assertEquals(1, counts.get(y), "row " + y + " of " + height);
+            }
+        }
+    }
+
+    /*
+     * Splitting an image into bands should not change the result, so the tiled
+     * filter should match the same filter run over the whole image as one band.
+     */
+    @Test
+    public void testTiledMatchesSingleBand() {
+        Random random = new Random(202);
+        int width = 61;
+        int height = 300;
+        BufferedImage input = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                input.setRGB(x, y, random.nextInt());
+            }
+        }
+        MedianFilter median = new MedianFilter(2);
+        int[] padded = new int[(width + 4) * (height + 4)];
+        for (int y = 0; y < height + 4; y++) {
+            for (int x = 0; x < width + 4; x++) {
+                int sx = Math.min(Math.max(x - 2, 0), width - 1);
+                int sy = Math.min(Math.max(y - 2, 0), height - 1);
+                padded[y * (width + 4) + x] = input.getRGB(sx, sy);
+            }
+        }
+        int[] expected = new int[width * height];
+        median.applyTile(padded, width + 4, expected, width, 0, height);
+
+        BufferedImage actual = median.apply(input);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                Assertions.assertEquals(expected[y * width + x], actual.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+}